@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.timer;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.View;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Verifies that rendering a running time through {@link CountingTimerView} allocates nothing per
+ * frame once the view has warmed up.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CountingTimerViewTest {
+
+    private static final int SIZE = 400;
+
+    /** The number of frames rendered in each measured pass; about one second at 60 Hz. */
+    private static final int FRAMES = 60;
+
+    @Test
+    public void unchangedDigitsAllocateNothing() {
+        // A timer counting down within a single second displays the same digits every frame.
+        assertZeroAllocations(false, 90 * 1000 + 999, -16);
+    }
+
+    @Test
+    public void changingHundredthsAllocateNothing() {
+        // A stopwatch changes its hundredths every frame but speaks only whole seconds.
+        assertZeroAllocations(true, 90 * 1000, 16);
+    }
+
+    private static void assertZeroAllocations(final boolean showHundredths, final long startTime,
+            final long frameTime) {
+        final int[] allocations = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                final CountingTimerView view =
+                        new CountingTimerView(InstrumentationRegistry.getTargetContext());
+                view.measure(View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY),
+                        View.MeasureSpec.makeMeasureSpec(SIZE, View.MeasureSpec.EXACTLY));
+                view.layout(0, 0, SIZE, SIZE);
+                final Canvas canvas =
+                        new Canvas(Bitmap.createBitmap(SIZE, SIZE, Bitmap.Config.ARGB_8888));
+
+                // Warm up the formatted number caches, text measurement and the description.
+                renderFrames(view, canvas, showHundredths, startTime, frameTime);
+
+                Debug.startAllocCounting();
+                try {
+                    Debug.resetThreadAllocCount();
+                    renderFrames(view, canvas, showHundredths, startTime, frameTime);
+                    allocations[0] = Debug.getThreadAllocCount();
+                } finally {
+                    Debug.stopAllocCounting();
+                }
+            }
+        });
+
+        assertEquals("allocations over " + FRAMES + " frames", 0, allocations[0]);
+    }
+
+    private static void renderFrames(CountingTimerView view, Canvas canvas,
+            boolean showHundredths, long startTime, long frameTime) {
+        for (int frame = 0; frame < FRAMES; frame++) {
+            view.setTime(startTime + frame * frameTime, showHundredths);
+            view.draw(canvas);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.wizardsofm.alarmclock;
+
+import android.content.Context;
+import android.text.format.DateFormat;
+
+import com.wizardsofm.deskclock.Utils;
+import com.wizardsofm.deskclock.data.City;
+import com.wizardsofm.deskclock.data.DataModel;
+import com.wizardsofm.deskclock.data.ZoneTransitions;
+
+import java.text.DateFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static android.text.format.DateUtils.MINUTE_IN_MILLIS;
+
+/**
+ * An immutable description of the world city clocks displayed by the digital widgets, shared by
+ * every {@link DigitalAppWidgetCityViewsFactory}. A snapshot is computed at most once per minute,
+ * or sooner if {@link #invalidate() invalidated} because the cities or locale changed, so widget
+ * list rows can be built from plain array reads.
+ *
+ * The rows hold no formatted time; each clock is a {@link android.widget.TextClock} that keeps its
+ * own time once given the city's time zone.
+ */
+final class CitySnapshot {
+
+    /** The snapshot shared by all factories; {@code null} until first computed. */
+    private static volatile CitySnapshot sSnapshot;
+
+    /** Incremented on the main thread each time the displayed cities may have changed. */
+    private static volatile int sGeneration;
+
+    /** The minute, in minutes since the epoch, at which this snapshot was computed. */
+    private final long mMinute;
+
+    /** The value of {@link #sGeneration} before the data of this snapshot was fetched. */
+    private final int mGeneration;
+
+    /** The names, time zone ids and day labels of the displayed cities, home clock first. */
+    private final String[] mNames;
+    private final String[] mTimeZoneIds;
+    private final String[] mDayLabels;
+
+    /** The number of displayed cities selected by the user, i.e. excluding the home clock. */
+    private final int mSelectedCityCount;
+
+    private final CharSequence mFormat12Hour;
+    private final CharSequence mFormat24Hour;
+    private final boolean mIs24HourFormat;
+
+    private CitySnapshot(long minute, int generation, String[] names, String[] timeZoneIds,
+            String[] dayLabels, int selectedCityCount, CharSequence format12Hour,
+            CharSequence format24Hour, boolean is24HourFormat) {
+        mMinute = minute;
+        mGeneration = generation;
+        mNames = names;
+        mTimeZoneIds = timeZoneIds;
+        mDayLabels = dayLabels;
+        mSelectedCityCount = selectedCityCount;
+        mFormat12Hour = format12Hour;
+        mFormat24Hour = format24Hour;
+        mIs24HourFormat = is24HourFormat;
+    }
+
+    /**
+     * Must not be called on the main thread; the city data is fetched from it. No lock is held
+     * while fetching, so factories racing to replace a stale snapshot may each compute one.
+     *
+     * @return the snapshot for the current minute, computing it if necessary
+     */
+    static CitySnapshot get(Context context) {
+        final long minute = System.currentTimeMillis() / MINUTE_IN_MILLIS;
+        CitySnapshot snapshot = sSnapshot;
+        if (snapshot == null || snapshot.mMinute != minute || snapshot.mGeneration != sGeneration) {
+            snapshot = create(context, minute, sGeneration);
+            sSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Marks the shared snapshot stale so the next {@link #get} recomputes it. Must be called on
+     * the main thread.
+     */
+    static void invalidate() {
+        sGeneration++;
+    }
+
+    /**
+     * @return the number of city clocks to display
+     */
+    int getCityCount() {
+        return mNames.length;
+    }
+
+    /**
+     * @return the number of city clocks selected by the user; the home clock is not counted
+     */
+    int getSelectedCityCount() {
+        return mSelectedCityCount;
+    }
+
+    String getName(int index) {
+        return mNames[index];
+    }
+
+    String getTimeZoneId(int index) {
+        return mTimeZoneIds[index];
+    }
+
+    /**
+     * @return the week day label of the city at {@code index}, or {@code null} if the city shares
+     *      the week day of the device time zone
+     */
+    String getDayLabel(int index) {
+        return mDayLabels[index];
+    }
+
+    CharSequence getFormat12Hour() {
+        return mFormat12Hour;
+    }
+
+    CharSequence getFormat24Hour() {
+        return mFormat24Hour;
+    }
+
+    boolean is24HourFormat() {
+        return mIs24HourFormat;
+    }
+
+    private static CitySnapshot create(Context context, long minute, int generation) {
+        // Fetch the data on the main Looper.
+        final RefreshRunnable refreshRunnable = new RefreshRunnable();
+        DataModel.getDataModel().run(refreshRunnable);
+        final List<City> cities = refreshRunnable.mCities;
+
+        final int count = cities.size();
+        final String[] names = new String[count];
+        final String[] timeZoneIds = new String[count];
+        final String[] dayLabels = new String[count];
+
+        final long now = minute * MINUTE_IN_MILLIS;
+        final TimeZone localZone = TimeZone.getDefault();
+        final String[] weekdays = DateFormatSymbols.getInstance(Locale.getDefault())
+                .getShortWeekdays();
+        for (int i = 0; i < count; i++) {
+            final City city = cities.get(i);
+            final TimeZone cityZone = city.getTimeZone();
+            names[i] = city.getName();
+            timeZoneIds[i] = cityZone.getID();
+
+            // Label the city with its week day if it differs from that of the current timezone.
+            if (ZoneTransitions.isDifferentDay(localZone, cityZone, now)) {
+                final String weekday = weekdays[ZoneTransitions.getDayOfWeek(cityZone, now)];
+                dayLabels[i] = context.getString(
+                        com.wizardsofm.deskclock.R.string.world_day_of_week_label, weekday);
+            }
+        }
+
+        return new CitySnapshot(minute, generation, names, timeZoneIds, dayLabels,
+                refreshRunnable.mSelectedCityCount, Utils.get12ModeFormat(0.4f),
+                Utils.get24ModeFormat(), DateFormat.is24HourFormat(context));
+    }
+
+    /**
+     * This Runnable fetches the displayed cities on the main thread to ensure all DataModel reads
+     * occur on the main thread.
+     */
+    private static final class RefreshRunnable implements Runnable {
+
+        private List<City> mCities;
+        private int mSelectedCityCount;
+
+        @Override
+        public void run() {
+            final DataModel dataModel = DataModel.getDataModel();
+            final List<City> selectedCities = dataModel.getSelectedCities();
+            mCities = new ArrayList<>(selectedCities.size() + 1);
+            if (dataModel.getShowHomeClock()) {
+                mCities.add(dataModel.getHomeCity());
+            }
+            mCities.addAll(selectedCities);
+            mSelectedCityCount = selectedCities.size();
+        }
+    }
+}
@@ -19,27 +19,15 @@ package com.wizardsofm.alarmclock;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
-import android.text.format.DateFormat;
 import android.util.TypedValue;
 import android.view.View;
 import android.widget.RemoteViews;
 import android.widget.RemoteViewsService.RemoteViewsFactory;
 
 import com.wizardsofm.deskclock.LogUtils;
-import com.wizardsofm.deskclock.Utils;
-import com.wizardsofm.deskclock.data.City;
-import com.wizardsofm.deskclock.data.DataModel;
-
-import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Collections;
-import java.util.List;
-import java.util.Locale;
-import java.util.TimeZone;
 
 import static android.appwidget.AppWidgetManager.EXTRA_APPWIDGET_ID;
 import static android.appwidget.AppWidgetManager.INVALID_APPWIDGET_ID;
-import static java.util.Calendar.DAY_OF_WEEK;
 
 /**
  * This factory produces entries in the world cities list view displayed at the bottom of the
@@ -55,11 +43,10 @@ public class DigitalAppWidgetCityViewsFactory implements RemoteViewsFactory {
     private final float m12HourFontSize;
     private final float m24HourFontSize;
     private final int mWidgetId;
-    private float mFontScale = 1;
 
-    private City mHomeCity;
-    private boolean mShowHomeClock;
-    private List<City> mCities = Collections.emptyList();
+    /** The cities displayed by this factory; replaced wholesale by {@link #onDataSetChanged}. */
+    private volatile CitySnapshot mSnapshot;
+    private volatile float mFontScale = 1;
 
     public DigitalAppWidgetCityViewsFactory(Context context, Intent intent) {
         mContext = context;
@@ -80,57 +67,48 @@ public class DigitalAppWidgetCityViewsFactory implements RemoteViewsFactory {
         LOGGER.i("DigitalAppWidgetCityViewsFactory onDestroy " + mWidgetId);
     }
 
-    /**
-     * <p>Synchronized to ensure single-threaded reading/writing of mCities, mHomeCity and
-     * mShowHomeClock.</p>
-     *
-     * {@inheritDoc}
-     */
     @Override
-    public synchronized int getCount() {
-        final int homeClockCount = mShowHomeClock ? 1 : 0;
-        final int worldClockCount = mCities.size();
-        final double totalClockCount = homeClockCount + worldClockCount;
+    public int getCount() {
+        final CitySnapshot snapshot = mSnapshot;
+        final double totalClockCount = snapshot == null ? 0 : snapshot.getCityCount();
 
         // number of clocks / 2 clocks per row
         return (int) Math.ceil(totalClockCount / 2);
     }
 
     /**
-     * <p>Synchronized to ensure single-threaded reading/writing of mCities, mHomeCity and
-     * mShowHomeClock.</p>
+     * <p>Reads only the immutable snapshot captured by the last {@link #onDataSetChanged}, so no
+     * lock is required.</p>
      *
      * {@inheritDoc}
      */
     @Override
-    public synchronized RemoteViews getViewAt(int position) {
-        final int homeClockOffset = mShowHomeClock ? -1 : 0;
-        final int leftIndex = position * 2 + homeClockOffset;
+    public RemoteViews getViewAt(int position) {
+        final CitySnapshot snapshot = mSnapshot;
+        final float fontScale = mFontScale;
+        final int count = snapshot == null ? 0 : snapshot.getCityCount();
+        final int leftIndex = position * 2;
         final int rightIndex = leftIndex + 1;
 
-        final City left = leftIndex == -1 ? mHomeCity :
-                (leftIndex < mCities.size() ? mCities.get(leftIndex) : null);
-        final City right = rightIndex < mCities.size() ? mCities.get(rightIndex) : null;
-
         final RemoteViews rv =
                 new RemoteViews(mContext.getPackageName(), com.wizardsofm.deskclock.R.layout.world_clock_remote_list_item);
 
         // Show the left clock if one exists.
-        if (left != null) {
-            update(rv, left, com.wizardsofm.deskclock.R.id.left_clock, com.wizardsofm.deskclock.R.id.city_name_left, com.wizardsofm.deskclock.R.id.city_day_left);
+        if (leftIndex < count) {
+            update(rv, snapshot, leftIndex, fontScale, com.wizardsofm.deskclock.R.id.left_clock, com.wizardsofm.deskclock.R.id.city_name_left, com.wizardsofm.deskclock.R.id.city_day_left);
         } else {
             hide(rv, com.wizardsofm.deskclock.R.id.left_clock, com.wizardsofm.deskclock.R.id.city_name_left, com.wizardsofm.deskclock.R.id.city_day_left);
         }
 
         // Show the right clock if one exists.
-        if (right != null) {
-            update(rv, right, com.wizardsofm.deskclock.R.id.right_clock, com.wizardsofm.deskclock.R.id.city_name_right, com.wizardsofm.deskclock.R.id.city_day_right);
+        if (rightIndex < count) {
+            update(rv, snapshot, rightIndex, fontScale, com.wizardsofm.deskclock.R.id.right_clock, com.wizardsofm.deskclock.R.id.city_name_right, com.wizardsofm.deskclock.R.id.city_day_right);
         } else {
             hide(rv, com.wizardsofm.deskclock.R.id.right_clock, com.wizardsofm.deskclock.R.id.city_name_right, com.wizardsofm.deskclock.R.id.city_day_right);
         }
 
         // Hide last spacer in last row; show for all others.
-        final boolean lastRow = position == getCount() - 1;
+        final boolean lastRow = rightIndex >= count - 1;
         rv.setViewVisibility(com.wizardsofm.deskclock.R.id.city_spacer, lastRow ? View.GONE : View.VISIBLE);
 
         rv.setOnClickFillInIntent(com.wizardsofm.deskclock.R.id.widget_item, mFillInIntent);
@@ -157,49 +135,32 @@ public class DigitalAppWidgetCityViewsFactory implements RemoteViewsFactory {
         return false;
     }
 
-    /**
-     * <p>Synchronized to ensure single-threaded reading/writing of mCities, mHomeCity and
-     * mShowHomeClock.</p>
-     *
-     * {@inheritDoc}
-     */
     @Override
-    public synchronized void onDataSetChanged() {
-        // Fetch the data on the main Looper.
-        final RefreshRunnable refreshRunnable = new RefreshRunnable();
-        DataModel.getDataModel().run(refreshRunnable);
-
-        // Store the data in local variables.
-        mHomeCity = refreshRunnable.mHomeCity;
-        mCities = refreshRunnable.mCities;
-        mShowHomeClock = refreshRunnable.mShowHomeClock;
-        mFontScale = WidgetUtils.getScaleRatio(mContext, null, mWidgetId, mCities.size());
+    public void onDataSetChanged() {
+        // Share the cities computed for this minute with the factories of all other widgets.
+        final CitySnapshot snapshot = CitySnapshot.get(mContext);
+        mFontScale = WidgetUtils.getScaleRatio(mContext, null, mWidgetId,
+                snapshot.getSelectedCityCount());
+        mSnapshot = snapshot;
     }
 
-    private void update(RemoteViews rv, City city, int clockId, int labelId, int dayId) {
-        rv.setCharSequence(clockId, "setFormat12Hour", Utils.get12ModeFormat(0.4f));
-        rv.setCharSequence(clockId, "setFormat24Hour", Utils.get24ModeFormat());
-
-        final boolean is24HourFormat = DateFormat.is24HourFormat(mContext);
-        final float fontSize = is24HourFormat ? m24HourFontSize : m12HourFontSize;
-        rv.setTextViewTextSize(clockId, TypedValue.COMPLEX_UNIT_PX, fontSize * mFontScale);
-        rv.setString(clockId, "setTimeZone", city.getTimeZone().getID());
-        rv.setTextViewText(labelId, city.getName());
-
-        // Compute if the city week day matches the weekday of the current timezone.
-        final Calendar localCal = Calendar.getInstance(TimeZone.getDefault());
-        final Calendar cityCal = Calendar.getInstance(city.getTimeZone());
-        final boolean displayDayOfWeek = localCal.get(DAY_OF_WEEK) != cityCal.get(DAY_OF_WEEK);
-
-        // Bind the week day display.
-        if (displayDayOfWeek) {
-            final Locale locale = Locale.getDefault();
-            final String weekday = cityCal.getDisplayName(DAY_OF_WEEK, Calendar.SHORT, locale);
-            final String slashDay = mContext.getString(com.wizardsofm.deskclock.R.string.world_day_of_week_label, weekday);
-            rv.setTextViewText(dayId, slashDay);
+    private void update(RemoteViews rv, CitySnapshot snapshot, int index, float fontScale,
+            int clockId, int labelId, int dayId) {
+        rv.setCharSequence(clockId, "setFormat12Hour", snapshot.getFormat12Hour());
+        rv.setCharSequence(clockId, "setFormat24Hour", snapshot.getFormat24Hour());
+
+        final float fontSize = snapshot.is24HourFormat() ? m24HourFontSize : m12HourFontSize;
+        rv.setTextViewTextSize(clockId, TypedValue.COMPLEX_UNIT_PX, fontSize * fontScale);
+        rv.setString(clockId, "setTimeZone", snapshot.getTimeZoneId(index));
+        rv.setTextViewText(labelId, snapshot.getName(index));
+
+        // Bind the week day display if the city week day differs from the current timezone's.
+        final String dayLabel = snapshot.getDayLabel(index);
+        if (dayLabel != null) {
+            rv.setTextViewText(dayId, dayLabel);
         }
 
-        rv.setViewVisibility(dayId, displayDayOfWeek ? View.VISIBLE : View.GONE);
+        rv.setViewVisibility(dayId, dayLabel != null ? View.VISIBLE : View.GONE);
         rv.setViewVisibility(clockId, View.VISIBLE);
         rv.setViewVisibility(labelId, View.VISIBLE);
     }
@@ -209,22 +170,4 @@ public class DigitalAppWidgetCityViewsFactory implements RemoteViewsFactory {
         clock.setViewVisibility(clockId, View.INVISIBLE);
         clock.setViewVisibility(labelId, View.INVISIBLE);
     }
-
-    /**
-     * This Runnable fetches data for this factory on the main thread to ensure all DataModel reads
-     * occur on the main thread.
-     */
-    private static final class RefreshRunnable implements Runnable {
-
-        private City mHomeCity;
-        private List<City> mCities;
-        private boolean mShowHomeClock;
-
-        @Override
-        public void run() {
-            mHomeCity = DataModel.getDataModel().getHomeCity();
-            mCities = new ArrayList<>(DataModel.getDataModel().getSelectedCities());
-            mShowHomeClock = DataModel.getDataModel().getShowHomeClock();
-        }
-    }
 }
@@ -32,12 +32,14 @@ import android.support.annotation.NonNull;
 import android.text.TextUtils;
 import android.text.format.DateFormat;
 import android.util.ArraySet;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.widget.RemoteViews;
 import android.widget.TextClock;
 import android.widget.TextView;
 
+import com.wizardsofm.alarmclock.WidgetUpdateScheduler.Reason;
 import com.wizardsofm.deskclock.DeskClock;
 import com.wizardsofm.deskclock.LogUtils;
 import com.wizardsofm.deskclock.Utils;
@@ -46,6 +48,7 @@ import com.wizardsofm.deskclock.data.DataModel;
 import com.wizardsofm.deskclock.uidata.UiDataModel;
 import com.wizardsofm.deskclock.worldclock.CitySelectionActivity;
 
+import java.io.PrintWriter;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
@@ -106,6 +109,15 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
     /** Intent used to deliver the {@link #ACTION_ON_DAY_CHANGE} callback. */
     private static final Intent DAY_CHANGE_INTENT = new Intent(ACTION_ON_DAY_CHANGE);
 
+    /** The reasons that change the content or layout of the world city list. */
+    private static final int CITY_LIST_REASONS = Reason.UPDATE.getBit() | Reason.OPTIONS.getBit()
+            | Reason.DAY_CHANGE.getBit() | Reason.TIMEZONE.getBit() | Reason.LOCALE.getBit()
+            | Reason.CITIES.getBit();
+
+    /** Coalesces the widget updates requested by bursts of broadcasts. */
+    private static final WidgetUpdateScheduler sScheduler =
+            new WidgetUpdateScheduler("DigitalWidgetUpdates", new DigitalWidgetUpdater());
+
     @Override
     public void onEnabled(Context context) {
         super.onEnabled(context);
@@ -135,24 +147,62 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
         final ComponentName provider = new ComponentName(context, getClass());
         final int[] widgetIds = wm.getAppWidgetIds(provider);
 
-        switch (intent.getAction()) {
+        final Reason reason = getReason(intent.getAction());
+        if (reason != null) {
+            sScheduler.schedule(widgetIds, reason);
+
+            // The shared world city rows must be recomputed before the city lists are refreshed.
+            if ((reason.getBit() & CITY_LIST_REASONS) != 0) {
+                CitySnapshot.invalidate();
+            }
+        }
+
+        final DataModel dm = DataModel.getDataModel();
+        dm.updateWidgetCount(getClass(), widgetIds.length, com.wizardsofm.deskclock.R.string.category_digital_widget);
+
+        // Coalesce this update with any others that arrive shortly; the day-change callback is
+        // rescheduled once they are applied.
+        if (sScheduler.hasDirtyWidgets()) {
+            sScheduler.flushLater(context, goAsync());
+        } else {
+            updateDayChangeCallback(context);
+        }
+    }
+
+    /**
+     * Writes the widget update counts of each update reason to {@code writer}.
+     */
+    public static void dump(PrintWriter writer) {
+        sScheduler.dump(writer);
+    }
+
+    /**
+     * @return the reason the widgets must be updated in response to {@code action}, or
+     *      {@code null} if they need not be updated
+     */
+    private static Reason getReason(String action) {
+        if (action == null) {
+            return null;
+        }
+
+        switch (action) {
             case ACTION_SCREEN_ON:
-            case ACTION_DATE_CHANGED:
+                return Reason.SCREEN_ON;
             case ACTION_ALARM_CHANGED:
+            case ACTION_NEXT_ALARM_CLOCK_CHANGED:
+                return Reason.NEXT_ALARM;
+            case ACTION_DATE_CHANGED:
             case ACTION_ON_DAY_CHANGE:
+                return Reason.DAY_CHANGE;
             case ACTION_LOCALE_CHANGED:
+                return Reason.LOCALE;
             case ACTION_TIMEZONE_CHANGED:
+                return Reason.TIMEZONE;
             case ACTION_WORLD_CITIES_CHANGED:
-            case ACTION_NEXT_ALARM_CLOCK_CHANGED:
-                for (int widgetId : widgetIds) {
-                    relayoutWidget(context, wm, widgetId, wm.getAppWidgetOptions(widgetId));
-                }
+                return Reason.CITIES;
+            default:
+                return null;
         }
-
-        final DataModel dm = DataModel.getDataModel();
-        dm.updateWidgetCount(getClass(), widgetIds.length, com.wizardsofm.deskclock.R.string.category_digital_widget);
-
-        updateDayChangeCallback(context);
     }
 
     /**
@@ -162,9 +212,8 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
     public void onUpdate(Context context, AppWidgetManager wm, int[] widgetIds) {
         super.onUpdate(context, wm, widgetIds);
 
-        for (int widgetId : widgetIds) {
-            relayoutWidget(context, wm, widgetId, wm.getAppWidgetOptions(widgetId));
-        }
+        // Applied once onReceive() returns and the coalescing window closes.
+        sScheduler.schedule(widgetIds, Reason.UPDATE);
     }
 
     /**
@@ -176,7 +225,7 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
         super.onAppWidgetOptionsChanged(context, wm, widgetId, options);
 
         // scale the fonts of the clock to fit inside the new size
-        relayoutWidget(context, AppWidgetManager.getInstance(context), widgetId, options);
+        sScheduler.schedule(new int[] { widgetId }, Reason.OPTIONS);
     }
 
     /**
@@ -184,12 +233,15 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
      * using the last known widget size and apply them to the widget.
      */
     private static void relayoutWidget(Context context, AppWidgetManager wm, int widgetId,
-            Bundle options) {
+            boolean refreshCities) {
+        final Bundle options = wm.getAppWidgetOptions(widgetId);
         final RemoteViews portrait = relayoutWidget(context, wm, widgetId, options, true);
         final RemoteViews landscape = relayoutWidget(context, wm, widgetId, options, false);
         final RemoteViews widget = new RemoteViews(landscape, portrait);
         wm.updateAppWidget(widgetId, widget);
-        wm.notifyAppWidgetViewDataChanged(widgetId, com.wizardsofm.deskclock.R.id.world_city_list);
+        if (refreshCities) {
+            wm.notifyAppWidgetViewDataChanged(widgetId, com.wizardsofm.deskclock.R.id.world_city_list);
+        }
     }
 
     /**
@@ -243,7 +295,7 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
         final Sizes template = new Sizes(targetWidthPx, targetHeightPx, largestClockFontSizePx);
 
         // Compute optimal font sizes and icon sizes to fit within the widget bounds.
-        final Sizes sizes = optimizeSizes(context, template, nextAlarmTime);
+        final Sizes sizes = getSizes(context, template, nextAlarmTime);
         if (LOGGER.isVerboseLoggable()) {
             LOGGER.v(sizes.toString());
         }
@@ -278,6 +330,41 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
         return rv;
     }
 
+    /**
+     * Reuse the sizes computed earlier for the same widget bounds and content if possible;
+     * otherwise compute and cache them.
+     */
+    private static Sizes getSizes(Context context, Sizes template, String nextAlarmTime) {
+        final CharSequence date = DateFormat.format(getDateFormat(context), new Date());
+        final String key = WidgetSizeCache.getKey(template.mTargetWidthPx,
+                template.mTargetHeightPx, template.getLargestClockFontSizePx(),
+                DateFormat.is24HourFormat(context), date, nextAlarmTime);
+
+        final WidgetSizeCache.Entry entry = WidgetSizeCache.get(context, key);
+        if (entry != null) {
+            final Sizes sizes = template.newSize();
+            sizes.setClockFontSizePx(entry.mClockFontSizePx);
+            sizes.mMeasuredWidthPx = entry.mMeasuredWidthPx;
+            sizes.mMeasuredHeightPx = entry.mMeasuredHeightPx;
+            if (TextUtils.isEmpty(nextAlarmTime)) {
+                return sizes;
+            }
+
+            sizes.mIconBitmap = WidgetSizeCache.getIcon(context, sizes.mFontSizePx);
+            if (sizes.mIconBitmap != null) {
+                return sizes;
+            }
+        }
+
+        final Sizes sizes = optimizeSizes(context, template, nextAlarmTime);
+        WidgetSizeCache.put(context, key, new WidgetSizeCache.Entry(sizes.mClockFontSizePx,
+                sizes.mMeasuredWidthPx, sizes.mMeasuredHeightPx));
+        if (sizes.mIconBitmap != null) {
+            WidgetSizeCache.putIcon(context, sizes.mFontSizePx, sizes.mIconBitmap);
+        }
+        return sizes;
+    }
+
     /**
      * Inflate an offscreen copy of the widget views. Binary search through the range of sizes until
      * the optimal sizes that fit within the widget bounds are located.
@@ -341,7 +428,7 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
      * Remove the existing day-change callback if it is not needed (no selected cities exist).
      * Add the day-change callback if it is needed (selected cities exist).
      */
-    private void updateDayChangeCallback(Context context) {
+    private static void updateDayChangeCallback(Context context) {
         final List<City> selectedCities = DataModel.getDataModel().getSelectedCities();
         if (selectedCities.isEmpty()) {
             // Remove the existing day-change callback.
@@ -366,7 +453,7 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
     /**
      * Remove the existing day-change callback.
      */
-    private void removeDayChangeCallback(Context context) {
+    private static void removeDayChangeCallback(Context context) {
         final PendingIntent pi =
                 PendingIntent.getBroadcast(context, 0, DAY_CHANGE_INTENT, FLAG_NO_CREATE);
         if (pi != null) {
@@ -446,6 +533,53 @@ public class DigitalAppWidgetProvider extends AppWidgetProvider {
         return DateFormat.getBestDateTimePattern(locale, skeleton);
     }
 
+    /**
+     * Applies coalesced updates to digital widgets. A change of the next alarm text alone is
+     * applied as a partial update when the new text measures the same as the displayed text;
+     * everything else relayouts the widget.
+     */
+    private static final class DigitalWidgetUpdater implements WidgetUpdateScheduler.Updater {
+
+        /** The next alarm text last applied to each widget by a full update. */
+        private final SparseArray<String> mNextAlarms = new SparseArray<>();
+
+        @Override
+        public boolean updateWidget(Context context, AppWidgetManager wm, int widgetId,
+                int reasons) {
+            final String nextAlarm = Utils.getNextAlarm(context);
+            final String appliedNextAlarm = mNextAlarms.get(widgetId);
+            if (reasons == Reason.NEXT_ALARM.getBit()
+                    && !TextUtils.isEmpty(nextAlarm) && !TextUtils.isEmpty(appliedNextAlarm)
+                    && WidgetSizeCache.getWidthClass(nextAlarm)
+                            .equals(WidgetSizeCache.getWidthClass(appliedNextAlarm))) {
+                // The widget was installed with landscape and portrait layouts; the partial update
+                // must carry both or the host drops it.
+                final RemoteViews widget = new RemoteViews(createNextAlarmViews(context, nextAlarm),
+                        createNextAlarmViews(context, nextAlarm));
+                wm.partiallyUpdateAppWidget(widgetId, widget);
+                mNextAlarms.put(widgetId, nextAlarm);
+                return true;
+            }
+
+            final boolean refreshCities = (reasons & CITY_LIST_REASONS) != 0;
+            relayoutWidget(context, wm, widgetId, refreshCities);
+            mNextAlarms.put(widgetId, nextAlarm);
+            return false;
+        }
+
+        @Override
+        public void onWidgetsUpdated(Context context) {
+            updateDayChangeCallback(context);
+        }
+
+        private static RemoteViews createNextAlarmViews(Context context, String nextAlarm) {
+            final RemoteViews rv = new RemoteViews(context.getPackageName(),
+                    com.wizardsofm.deskclock.R.layout.digital_widget);
+            rv.setTextViewText(com.wizardsofm.deskclock.R.id.nextAlarm, nextAlarm);
+            return rv;
+        }
+    }
+
     /**
      * This class stores the target size of the widget as well as the measured size using a given
      * clock font size. All other fonts and icons are scaled proportional to the clock font.
@@ -0,0 +1,207 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.alarmclock;
+
+import android.annotation.TargetApi;
+import android.app.PendingIntent;
+import android.appwidget.AppWidgetManager;
+import android.appwidget.AppWidgetProvider;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+import android.text.TextUtils;
+import android.text.format.DateFormat;
+import android.widget.RemoteViews;
+
+import com.wizardsofm.deskclock.HandleDeskClockApiCalls;
+import com.wizardsofm.deskclock.R;
+import com.wizardsofm.deskclock.Utils;
+import com.wizardsofm.deskclock.data.DataModel;
+import com.wizardsofm.deskclock.data.Timer;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static android.content.Intent.ACTION_LOCALE_CHANGED;
+import static android.text.format.DateUtils.SECOND_IN_MILLIS;
+import static android.view.View.GONE;
+import static android.view.View.VISIBLE;
+import static com.wizardsofm.deskclock.data.DataModel.ACTION_TIMERS_CHANGED;
+
+/**
+ * Widget that shows the timer closest to expiring. On N and later a running timer counts down in
+ * a {@link android.widget.Chronometer} hosted by the launcher, so the widget is pushed new
+ * {@link RemoteViews} only when timers change (start, pause, expire, add minute, ...) and never
+ * once per second. Every widget instance shows the same timer, so each change results in a single
+ * update shared by all instances.
+ */
+public class TimerAppWidgetProvider extends AppWidgetProvider {
+
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        super.onReceive(context, intent);
+
+        final AppWidgetManager wm = AppWidgetManager.getInstance(context);
+        if (wm == null) {
+            return;
+        }
+
+        final ComponentName provider = new ComponentName(context, getClass());
+        final int[] widgetIds = wm.getAppWidgetIds(provider);
+
+        switch (intent.getAction()) {
+            case ACTION_LOCALE_CHANGED:
+            case ACTION_TIMERS_CHANGED:
+                updateWidgets(context, wm, widgetIds);
+        }
+
+        // Send events for newly created/deleted widgets.
+        final DataModel dm = DataModel.getDataModel();
+        dm.updateWidgetCount(getClass(), widgetIds.length, R.string.category_timer_widget);
+    }
+
+    /**
+     * Called when widgets must provide remote views.
+     */
+    @Override
+    public void onUpdate(Context context, AppWidgetManager wm, int[] widgetIds) {
+        super.onUpdate(context, wm, widgetIds);
+
+        updateWidgets(context, wm, widgetIds);
+    }
+
+    /**
+     * Builds the remote views for the current timer once and applies them to all
+     * {@code widgetIds}. Widgets on the lock screen share a second copy that cannot be tapped.
+     */
+    private static void updateWidgets(Context context, AppWidgetManager wm, int[] widgetIds) {
+        if (widgetIds.length == 0) {
+            return;
+        }
+
+        // Separate the widgets that may open the app from those on the lock screen.
+        final int[] clickableIds = new int[widgetIds.length];
+        final int[] lockedIds = new int[widgetIds.length];
+        int clickableCount = 0;
+        int lockedCount = 0;
+        for (int widgetId : widgetIds) {
+            if (Utils.isWidgetClickable(wm, widgetId)) {
+                clickableIds[clickableCount++] = widgetId;
+            } else {
+                lockedIds[lockedCount++] = widgetId;
+            }
+        }
+
+        final Timer timer = getDisplayedTimer();
+
+        if (lockedCount > 0) {
+            final RemoteViews widget = createWidget(context, timer);
+            wm.updateAppWidget(Arrays.copyOf(lockedIds, lockedCount), widget);
+        }
+
+        if (clickableCount > 0) {
+            final RemoteViews widget = createWidget(context, timer);
+
+            // Tapping on the widget opens the app to the timer.
+            final Intent showApp = new Intent(context, HandleDeskClockApiCalls.class)
+                    .setAction(HandleDeskClockApiCalls.ACTION_SHOW_TIMERS)
+                    .putExtra(HandleDeskClockApiCalls.EXTRA_EVENT_LABEL, R.string.label_widget);
+            if (timer != null) {
+                showApp.putExtra(HandleDeskClockApiCalls.EXTRA_TIMER_ID, timer.getId());
+            }
+            final PendingIntent pi = PendingIntent.getActivity(context, 0, showApp,
+                    PendingIntent.FLAG_UPDATE_CURRENT);
+            widget.setOnClickPendingIntent(R.id.timer_widget, pi);
+
+            wm.updateAppWidget(Arrays.copyOf(clickableIds, clickableCount), widget);
+        }
+    }
+
+    private static RemoteViews createWidget(Context context, Timer timer) {
+        final RemoteViews widget =
+                new RemoteViews(context.getPackageName(), R.layout.timer_appwidget);
+
+        if (timer == null) {
+            widget.setViewVisibility(R.id.timer_widget_chronometer, GONE);
+            widget.setTextViewText(R.id.timer_widget_state,
+                    context.getString(R.string.no_timers_exist));
+            return widget;
+        }
+
+        final String stateText;
+        switch (timer.getState()) {
+            case PAUSED:
+                stateText = context.getString(R.string.timer_paused);
+                break;
+            case EXPIRED:
+                stateText = context.getString(R.string.timer_times_up);
+                break;
+            default:
+                final String label = timer.getLabel();
+                stateText = TextUtils.isEmpty(label)
+                        ? context.getString(R.string.timer_notification_label) : label;
+        }
+        widget.setTextViewText(R.id.timer_widget_state, stateText);
+
+        final boolean counting = timer.isRunning() || timer.isExpired();
+        final long remaining = timer.getPhaseRemainingTime();
+        if (Utils.isNOrLater()) {
+            widget.setViewVisibility(R.id.timer_widget_chronometer, VISIBLE);
+            setCountDown(widget, remaining, counting);
+        } else if (!counting) {
+            // A stopped count-up chronometer displays the time between its base and now.
+            widget.setViewVisibility(R.id.timer_widget_chronometer, VISIBLE);
+            widget.setChronometer(R.id.timer_widget_chronometer,
+                    SystemClock.elapsedRealtime() - remaining, null, false);
+        } else {
+            // Chronometers cannot count down before N; show when the timer expires instead.
+            widget.setViewVisibility(R.id.timer_widget_chronometer, GONE);
+            if (timer.isRunning()) {
+                final Date expiry = new Date(System.currentTimeMillis() + remaining);
+                final String time = DateFormat.getTimeFormat(context).format(expiry);
+                widget.setTextViewText(R.id.timer_widget_state,
+                        context.getString(R.string.timer_widget_ends_at, time));
+            }
+        }
+
+        return widget;
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private static void setCountDown(RemoteViews widget, long remaining, boolean started) {
+        // Mirror the in-app display, which rounds positive times *up* to the next second.
+        final long adjustedRemaining = remaining < 0 ? remaining : remaining + SECOND_IN_MILLIS;
+        final long base = SystemClock.elapsedRealtime() + adjustedRemaining;
+        widget.setChronometerCountDown(R.id.timer_widget_chronometer, true);
+        widget.setChronometer(R.id.timer_widget_chronometer, base, null, started);
+    }
+
+    /**
+     * @return the timer closest to expiring, or {@code null} if no timers exist
+     */
+    private static Timer getDisplayedTimer() {
+        Timer displayed = null;
+        for (Timer timer : DataModel.getDataModel().getTimers()) {
+            if (displayed == null || Timer.EXPIRY_COMPARATOR.compare(timer, displayed) < 0) {
+                displayed = timer;
+            }
+        }
+        return displayed;
+    }
+}
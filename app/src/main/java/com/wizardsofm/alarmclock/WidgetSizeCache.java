@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.wizardsofm.alarmclock;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.util.SparseArray;
+
+import com.wizardsofm.deskclock.LogUtils;
+import com.wizardsofm.deskclock.Utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Remembers the font sizes chosen by {@link DigitalAppWidgetProvider} for each combination of
+ * widget bounds and displayed content so that relayouts with an unchanged combination skip the
+ * offscreen inflation and measurement passes. Results are persisted across process restarts and
+ * are discarded wholesale whenever the system build, app version, font scale or display density
+ * changes, since any of those may alter text measurements.
+ */
+final class WidgetSizeCache {
+
+    private static final String PREFS_NAME = "digital_widget_sizes";
+
+    /** Key of the preference holding the environment signature of the cached entries. */
+    private static final String KEY_SIGNATURE = "signature";
+
+    /** The maximum number of cached entries; the cache is cleared when it grows beyond this. */
+    private static final int MAX_ENTRIES = 64;
+
+    /** Directory, within the cache directory, of the rendered next alarm icons. */
+    private static final String ICON_DIR = "widget_icons";
+
+    /** Next alarm icons rendered in this process, keyed by label font size. */
+    private static final SparseArray<Bitmap> sIcons = new SparseArray<>();
+
+    /** The parts of the environment signature that cannot change while this process lives. */
+    private static String sPackageSignature;
+
+    /** The sizes measured for one cache key. */
+    static final class Entry {
+
+        final int mClockFontSizePx;
+        final int mMeasuredWidthPx;
+        final int mMeasuredHeightPx;
+
+        Entry(int clockFontSizePx, int measuredWidthPx, int measuredHeightPx) {
+            mClockFontSizePx = clockFontSizePx;
+            mMeasuredWidthPx = measuredWidthPx;
+            mMeasuredHeightPx = measuredHeightPx;
+        }
+    }
+
+    private WidgetSizeCache() {}
+
+    /**
+     * @param targetWidthPx the width the widget must fit within
+     * @param targetHeightPx the height the widget must fit within
+     * @param largestClockFontSizePx the upper bound of the clock font size
+     * @param is24Hour {@code true} iff the clock displays 24 hour time
+     * @param date the date currently displayed by the widget
+     * @param nextAlarm the next alarm time displayed by the widget, or {@code null} if none
+     * @return the key identifying the sizes computed for the given inputs
+     */
+    static String getKey(int targetWidthPx, int targetHeightPx, int largestClockFontSizePx,
+            boolean is24Hour, CharSequence date, CharSequence nextAlarm) {
+        return targetWidthPx + "x" + targetHeightPx + "|" + largestClockFontSizePx + "|"
+                + Locale.getDefault() + "|" + (is24Hour ? "24" : "12") + "|"
+                + getWidthClass(date) + "|" + getWidthClass(nextAlarm);
+    }
+
+    /**
+     * @return the sizes cached for {@code key}, or {@code null} if none are cached
+     */
+    static synchronized Entry get(Context context, String key) {
+        final String value = getSharedPreferences(context).getString(key, null);
+        if (value == null) {
+            return null;
+        }
+
+        final String[] parts = value.split(",");
+        if (parts.length != 3) {
+            return null;
+        }
+        try {
+            return new Entry(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                    Integer.parseInt(parts[2]));
+        } catch (NumberFormatException e) {
+            LogUtils.e("Unable to parse cached widget sizes: " + value, e);
+            return null;
+        }
+    }
+
+    /**
+     * Caches the sizes computed for {@code key}.
+     */
+    static synchronized void put(Context context, String key, Entry entry) {
+        final SharedPreferences prefs = getSharedPreferences(context);
+        final SharedPreferences.Editor editor = prefs.edit();
+        if (prefs.getAll().size() > MAX_ENTRIES) {
+            editor.clear().putString(KEY_SIGNATURE, getSignature(context));
+        }
+        editor.putString(key, entry.mClockFontSizePx + "," + entry.mMeasuredWidthPx + ","
+                + entry.mMeasuredHeightPx).apply();
+    }
+
+    /**
+     * @return the next alarm icon rendered at the given label font size, or {@code null}
+     */
+    static synchronized Bitmap getIcon(Context context, int fontSizePx) {
+        // Validate the signature first so icons rendered in another environment are discarded.
+        getSharedPreferences(context);
+
+        Bitmap icon = sIcons.get(fontSizePx);
+        if (icon == null) {
+            final File file = getIconFile(context, fontSizePx);
+            if (file.exists()) {
+                icon = BitmapFactory.decodeFile(file.getPath());
+                if (icon != null) {
+                    sIcons.put(fontSizePx, icon);
+                }
+            }
+        }
+        return icon;
+    }
+
+    /**
+     * Caches the next alarm icon rendered at the given label font size.
+     */
+    static synchronized void putIcon(Context context, int fontSizePx, Bitmap icon) {
+        sIcons.put(fontSizePx, icon);
+
+        final File file = getIconFile(context, fontSizePx);
+        final File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            LogUtils.w("Unable to create widget icon directory " + dir);
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            icon.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } catch (IOException e) {
+            LogUtils.e("Unable to write widget icon " + file, e);
+            file.delete();
+        }
+    }
+
+    /**
+     * @return the cache preferences, cleared first if they were written in another environment
+     */
+    private static SharedPreferences getSharedPreferences(Context context) {
+        final SharedPreferences prefs =
+                getStorageContext(context).getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        final String signature = getSignature(context);
+        if (!signature.equals(prefs.getString(KEY_SIGNATURE, null))) {
+            prefs.edit().clear().putString(KEY_SIGNATURE, signature).apply();
+            clearIcons(context);
+        }
+        return prefs;
+    }
+
+    private static void clearIcons(Context context) {
+        sIcons.clear();
+        final File[] files = getIconDir(context).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * @return a description of everything outside the cache key that affects text measurement
+     */
+    private static String getSignature(Context context) {
+        if (sPackageSignature == null) {
+            long lastUpdateTime = 0;
+            try {
+                lastUpdateTime = context.getPackageManager()
+                        .getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+            } catch (PackageManager.NameNotFoundException e) {
+                LogUtils.e("Unable to locate own package", e);
+            }
+            sPackageSignature = Build.FINGERPRINT + "|" + lastUpdateTime;
+        }
+
+        final Configuration config = context.getResources().getConfiguration();
+        return sPackageSignature + "|" + config.fontScale + "|"
+                + context.getResources().getDisplayMetrics().densityDpi;
+    }
+
+    /**
+     * Digits are drawn with equal widths in the widget fonts, so strings that differ only in
+     * their digits measure identically and may share cached sizes.
+     *
+     * @return {@code text} with every digit replaced by {@code 0}
+     */
+    static String getWidthClass(CharSequence text) {
+        if (text == null) {
+            return "";
+        }
+
+        final char[] chars = new char[text.length()];
+        for (int i = 0; i < chars.length; i++) {
+            final char c = text.charAt(i);
+            chars[i] = Character.isDigit(c) ? '0' : c;
+        }
+        return new String(chars);
+    }
+
+    private static File getIconDir(Context context) {
+        return new File(getStorageContext(context).getCacheDir(), ICON_DIR);
+    }
+
+    private static File getIconFile(Context context, int fontSizePx) {
+        return new File(getIconDir(context), "next_alarm_" + fontSizePx + ".png");
+    }
+
+    private static Context getStorageContext(Context context) {
+        // Widgets are laid out before the user unlocks the device, so the cache lives alongside
+        // the preferences in device encrypted storage.
+        return Utils.isNOrLater() ? context.createDeviceProtectedStorageContext() : context;
+    }
+}
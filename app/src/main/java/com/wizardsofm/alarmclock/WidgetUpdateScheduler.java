@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.wizardsofm.alarmclock;
+
+import android.appwidget.AppWidgetManager;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseIntArray;
+
+import com.wizardsofm.deskclock.LogUtils;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the reasons each widget must be updated and applies them together once a short window
+ * has passed, so that a burst of broadcasts (e.g. a bulk alarm edit) costs one update per widget
+ * rather than one per broadcast. The broadcasts that requested updates are held open via
+ * {@link BroadcastReceiver#goAsync()} until the updates are applied.
+ *
+ * All methods must be called on the main thread.
+ */
+final class WidgetUpdateScheduler {
+
+    /** The reasons a widget may need updating. */
+    enum Reason {
+        /** The host requested an update of the widget. */
+        UPDATE,
+        /** The widget was resized. */
+        OPTIONS,
+        /** The screen turned on. */
+        SCREEN_ON,
+        /** The next alarm changed. */
+        NEXT_ALARM,
+        /** The date changed in the local time zone or in a world city. */
+        DAY_CHANGE,
+        /** The device time zone changed. */
+        TIMEZONE,
+        /** The device locale changed. */
+        LOCALE,
+        /** The selected world cities changed. */
+        CITIES;
+
+        int getBit() {
+            return 1 << ordinal();
+        }
+    }
+
+    /** Applies the collected reasons to the widgets. */
+    interface Updater {
+        /**
+         * @param reasons a bit set of the {@link Reason reasons} the widget must be updated
+         * @return {@code true} if the widget was partially updated; {@code false} if it was
+         *      updated in full
+         */
+        boolean updateWidget(Context context, AppWidgetManager wm, int widgetId, int reasons);
+
+        /**
+         * Called once all dirty widgets have been updated.
+         */
+        void onWidgetsUpdated(Context context);
+    }
+
+    /** Updates requested within this many milliseconds of the first are applied together. */
+    private static final long COALESCE_WINDOW_MILLIS = 500;
+
+    private final LogUtils.Logger mLogger;
+    private final Updater mUpdater;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mFlush = new FlushRunnable();
+
+    /** Maps each dirty widget id to the bit set of reasons it must be updated. */
+    private final SparseIntArray mDirtyWidgets = new SparseIntArray();
+
+    /** Broadcasts held open until the dirty widgets are updated. */
+    private final List<BroadcastReceiver.PendingResult> mPendingResults = new ArrayList<>();
+
+    /** The number of times each reason was requested, and resulted in full or partial updates. */
+    private final int[] mRequested = new int[Reason.values().length];
+    private final int[] mFullUpdates = new int[Reason.values().length];
+    private final int[] mPartialUpdates = new int[Reason.values().length];
+
+    private Context mContext;
+
+    /** {@code true} iff {@link #mFlush} is posted and has not yet run. */
+    private boolean mFlushScheduled;
+
+    WidgetUpdateScheduler(String name, Updater updater) {
+        mLogger = new LogUtils.Logger(name);
+        mUpdater = updater;
+    }
+
+    /**
+     * Marks the given widgets dirty for {@code reason}.
+     */
+    void schedule(int[] widgetIds, Reason reason) {
+        mRequested[reason.ordinal()]++;
+        for (int widgetId : widgetIds) {
+            mDirtyWidgets.put(widgetId, mDirtyWidgets.get(widgetId) | reason.getBit());
+        }
+    }
+
+    /**
+     * @return {@code true} iff any widgets are waiting to be updated
+     */
+    boolean hasDirtyWidgets() {
+        return mDirtyWidgets.size() > 0;
+    }
+
+    /**
+     * Updates the dirty widgets once the coalescing window closes, then finishes {@code result}.
+     */
+    void flushLater(Context context, BroadcastReceiver.PendingResult result) {
+        mContext = context.getApplicationContext();
+        if (result != null) {
+            mPendingResults.add(result);
+        }
+        // The window is measured from the first request so a steady stream of broadcasts cannot
+        // postpone the updates indefinitely.
+        if (!mFlushScheduled) {
+            mFlushScheduled = true;
+            mHandler.postDelayed(mFlush, COALESCE_WINDOW_MILLIS);
+        }
+    }
+
+    /**
+     * Writes the request and update counts of each reason to {@code writer}.
+     */
+    void dump(PrintWriter writer) {
+        writer.println(mLogger.logTag + " updates by reason:");
+        for (Reason reason : Reason.values()) {
+            final int i = reason.ordinal();
+            writer.printf("  %-10s requested=%-6d full=%-6d partial=%d%n", reason,
+                    mRequested[i], mFullUpdates[i], mPartialUpdates[i]);
+        }
+    }
+
+    private void flush() {
+        mFlushScheduled = false;
+        final AppWidgetManager wm = AppWidgetManager.getInstance(mContext);
+        try {
+            if (wm != null) {
+                for (int i = 0; i < mDirtyWidgets.size(); i++) {
+                    final int widgetId = mDirtyWidgets.keyAt(i);
+                    final int reasons = mDirtyWidgets.valueAt(i);
+                    final boolean partial = mUpdater.updateWidget(mContext, wm, widgetId, reasons);
+                    count(reasons, partial ? mPartialUpdates : mFullUpdates);
+                    mLogger.v("Widget %d %s updated for reasons 0x%x", widgetId,
+                            partial ? "partially" : "fully", reasons);
+                }
+            }
+            mDirtyWidgets.clear();
+            mUpdater.onWidgetsUpdated(mContext);
+        } finally {
+            for (BroadcastReceiver.PendingResult result : mPendingResults) {
+                result.finish();
+            }
+            mPendingResults.clear();
+        }
+    }
+
+    private static void count(int reasons, int[] counts) {
+        for (Reason reason : Reason.values()) {
+            if ((reasons & reason.getBit()) != 0) {
+                counts[reason.ordinal()]++;
+            }
+        }
+    }
+
+    private final class FlushRunnable implements Runnable {
+        @Override
+        public void run() {
+            flush();
+        }
+    }
+}
@@ -20,11 +20,9 @@ import android.app.LoaderManager;
 import android.content.Context;
 import android.content.Intent;
 import android.content.Loader;
-import android.database.Cursor;
 import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.design.widget.Snackbar;
 import android.support.v7.widget.LinearLayoutManager;
@@ -42,24 +40,26 @@ import com.wizardsofm.deskclock.alarms.AlarmUpdateHandler;
 import com.wizardsofm.deskclock.alarms.ScrollHandler;
 import com.wizardsofm.deskclock.alarms.TimePickerCompat;
 import com.wizardsofm.deskclock.alarms.dataadapter.AlarmItemHolder;
+import com.wizardsofm.deskclock.alarms.dataadapter.AlarmListLoader;
+import com.wizardsofm.deskclock.alarms.dataadapter.AlarmListPager;
 import com.wizardsofm.deskclock.alarms.dataadapter.CollapsedAlarmViewHolder;
 import com.wizardsofm.deskclock.alarms.dataadapter.ExpandedAlarmViewHolder;
 import com.wizardsofm.deskclock.data.DataModel;
 import com.wizardsofm.deskclock.provider.Alarm;
-import com.wizardsofm.deskclock.provider.AlarmInstance;
 import com.wizardsofm.deskclock.uidata.UiDataModel;
 import com.wizardsofm.deskclock.widget.EmptyViewController;
 import com.wizardsofm.deskclock.widget.toast.SnackbarManager;
 import com.wizardsofm.deskclock.widget.toast.ToastManager;
 
 import java.util.ArrayList;
+import java.util.Calendar;
 import java.util.List;
 
 /**
  * A fragment that displays a list of alarm time and allows interaction with them.
  */
 public final class AlarmClockFragment extends DeskClockFragment implements
-        LoaderManager.LoaderCallbacks<Cursor>,
+        LoaderManager.LoaderCallbacks<AlarmListLoader.AlarmList>,
         RingtonePickerDialogFragment.OnRingtoneSelectedListener,
         ScrollHandler,
         TimePickerCompat.OnTimeSetListener {
@@ -82,7 +82,7 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     private RecyclerView mRecyclerView;
 
     // Data
-    private Loader mCursorLoader;
+    private Loader<AlarmListLoader.AlarmList> mAlarmListLoader;
     private long mScrollToAlarmId = Alarm.INVALID_ID;
     private long mExpandedAlarmId = Alarm.INVALID_ID;
     private long mCurrentUpdateToken;
@@ -92,6 +92,7 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     private AlarmUpdateHandler mAlarmUpdateHandler;
     private EmptyViewController mEmptyViewController;
     private AlarmTimeClickHandler mAlarmTimeClickHandler;
+    private AlarmListPager mAlarmListPager;
     private LinearLayoutManager mLayoutManager;
 
     /**
@@ -109,7 +110,7 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     @Override
     public void onCreate(Bundle savedState) {
         super.onCreate(savedState);
-        mCursorLoader = getLoaderManager().initLoader(0, null, this);
+        mAlarmListLoader = getLoaderManager().initLoader(0, null, this);
         if (savedState != null) {
             mExpandedAlarmId = savedState.getLong(KEY_EXPANDED_ID, Alarm.INVALID_ID);
         }
@@ -163,6 +164,15 @@ public final class AlarmClockFragment extends DeskClockFragment implements
                 }
             }
         });
+        mAlarmListPager = new AlarmListPager(context, (AlarmListLoader) mAlarmListLoader,
+                mItemAdapter, mAlarmTimeClickHandler, new AlarmListPager.OnPageLoadedListener() {
+                    @Override
+                    public void onPageLoaded() {
+                        restoreExpandedAlarm();
+                    }
+                });
+        mItemAdapter.withPlaceholders(new AlarmListPager.PlaceholderFactory(inflater),
+                AlarmListPager.PLACEHOLDER_VIEW_TYPE, mAlarmListPager);
         final ScrollPositionWatcher scrollPositionWatcher = new ScrollPositionWatcher();
         mRecyclerView.addOnLayoutChangeListener(scrollPositionWatcher);
         mRecyclerView.addOnScrollListener(scrollPositionWatcher);
@@ -192,10 +202,10 @@ public final class AlarmClockFragment extends DeskClockFragment implements
             long alarmId = intent.getLongExtra(SCROLL_TO_ALARM_INTENT_EXTRA, Alarm.INVALID_ID);
             if (alarmId != Alarm.INVALID_ID) {
                 setSmoothScrollStableId(alarmId);
-                if (mCursorLoader != null && mCursorLoader.isStarted()) {
+                if (mAlarmListLoader != null && mAlarmListLoader.isStarted()) {
                     // We need to force a reload here to make sure we have the latest view
                     // of the data to scroll to.
-                    mCursorLoader.forceLoad();
+                    mAlarmListLoader.forceLoad();
                 }
             }
 
@@ -203,6 +213,9 @@ public final class AlarmClockFragment extends DeskClockFragment implements
             intent.removeExtra(SCROLL_TO_ALARM_INTENT_EXTRA);
         }
 
+        // Midnight may have passed while paused; refresh any stale "Today/Tomorrow" values.
+        updateTomorrow();
+
         // Schedule a runnable to update the "Today/Tomorrow" values displayed for non-repeating
         // alarms when midnight passes.
         UiDataModel.getUiDataModel().addMidnightCallback(mMidnightUpdater, 100);
@@ -259,23 +272,15 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     }
 
     @Override
-    public Loader<Cursor> onCreateLoader(int id, Bundle args) {
-        return Alarm.getAlarmsCursorLoader(getActivity());
+    public Loader<AlarmListLoader.AlarmList> onCreateLoader(int id, Bundle args) {
+        return new AlarmListLoader(getActivity());
     }
 
     @Override
-    public void onLoadFinished(Loader<Cursor> cursorLoader, Cursor data) {
-        if(data != null) {
-            final List<AlarmItemHolder> itemHolders = new ArrayList<>(data.getCount());
-            for (data.moveToFirst(); !data.isAfterLast(); data.moveToNext()) {
-                final Alarm alarm = new Alarm(data);
-                final AlarmInstance alarmInstance = alarm.canPreemptivelyDismiss()
-                        ? new AlarmInstance(data, true /* joinedTable */) : null;
-                final AlarmItemHolder itemHolder =
-                        new AlarmItemHolder(alarm, alarmInstance, mAlarmTimeClickHandler);
-                itemHolders.add(itemHolder);
-            }
-            setAdapterItems(itemHolders, SystemClock.elapsedRealtime());
+    public void onLoadFinished(Loader<AlarmListLoader.AlarmList> loader,
+            AlarmListLoader.AlarmList data) {
+        if (data != null) {
+            setAdapterItems(data);
         }
     }
 
@@ -283,15 +288,19 @@ public final class AlarmClockFragment extends DeskClockFragment implements
      * Updates the adapters items, deferring the update until the current animation is finished or
      * if no animation is running then the listener will be automatically be invoked immediately.
      *
-     * @param items       the new list of {@link AlarmItemHolder} to use
-     * @param updateToken a monotonically increasing value used to preserve ordering of deferred
-     *                    updates
+     * @param alarmList the new list of alarms to display; its version is a monotonically
+     *                  increasing value used to preserve ordering of deferred updates
      */
-    private void setAdapterItems(final List<AlarmItemHolder> items, final long updateToken) {
+    private void setAdapterItems(final AlarmListLoader.AlarmList alarmList) {
+        final long updateToken = alarmList.getVersion();
         if (updateToken < mCurrentUpdateToken) {
             LogUtils.v("Ignoring adapter update: %d < %d", updateToken, mCurrentUpdateToken);
             return;
         }
+        if (updateToken == mCurrentUpdateToken && mItemAdapter.getItems() != null) {
+            // The loader redelivered the list that is already displayed.
+            return;
+        }
 
         if (mRecyclerView.getItemAnimator().isRunning()) {
             // RecyclerView is currently animating -> defer update.
@@ -299,7 +308,7 @@ public final class AlarmClockFragment extends DeskClockFragment implements
                     new RecyclerView.ItemAnimator.ItemAnimatorFinishedListener() {
                 @Override
                 public void onAnimationsFinished() {
-                    setAdapterItems(items, updateToken);
+                    setAdapterItems(alarmList);
                 }
             });
         } else if (mRecyclerView.isComputingLayout()) {
@@ -307,26 +316,46 @@ public final class AlarmClockFragment extends DeskClockFragment implements
             mRecyclerView.post(new Runnable() {
                 @Override
                 public void run() {
-                    setAdapterItems(items, updateToken);
+                    setAdapterItems(alarmList);
                 }
             });
         } else {
+            // The diff only applies if it was computed against the list currently displayed.
+            final List<AlarmItemHolder> oldItems = mItemAdapter.getItems();
+            final ItemDiff diff = oldItems != null
+                    && alarmList.getBaseVersion() == mCurrentUpdateToken
+                    ? alarmList.getDiff() : null;
+
+            // Reuse the holders of unchanged alarms so their rows are not rebound. Alarms that
+            // were neither loaded before nor with this list remain placeholders until their page
+            // is fetched.
+            final List<AlarmItemHolder> items = new ArrayList<>(alarmList.size());
+            for (int i = 0; i < alarmList.size(); i++) {
+                final AlarmItemHolder oldItem = diff != null && diff.isUnchanged(i)
+                        ? oldItems.get(diff.getOldPosition(i)) : null;
+                final Alarm alarm = alarmList.getAlarm(i);
+                if (oldItem != null) {
+                    items.add(oldItem);
+                } else if (alarm != null) {
+                    items.add(new AlarmItemHolder(alarm, alarmList.getAlarmInstance(i),
+                            mAlarmTimeClickHandler));
+                } else {
+                    items.add(null);
+                }
+            }
+
             mCurrentUpdateToken = updateToken;
-            mItemAdapter.setItems(items);
+            mAlarmListPager.setAlarmList(alarmList);
+            mItemAdapter.setItems(items, diff);
+            mAlarmListPager.onItemsChanged();
 
             // Show or hide the empty view as appropriate.
             mEmptyViewController.setEmpty(items.isEmpty());
 
-            // Expand the correct alarm.
-            if (mExpandedAlarmId != Alarm.INVALID_ID) {
-                final AlarmItemHolder aih = mItemAdapter.findItemById(mExpandedAlarmId);
-                if (aih != null) {
-                    mAlarmTimeClickHandler.setSelectedAlarm(aih.item);
-                    aih.expand();
-                } else {
-                    mAlarmTimeClickHandler.setSelectedAlarm(null);
-                    mExpandedAlarmId = Alarm.INVALID_ID;
-                }
+            // Expand the correct alarm; if it is not loaded yet it is expanded with its page.
+            if (!restoreExpandedAlarm() && alarmList.indexOf(mExpandedAlarmId) == -1) {
+                mAlarmTimeClickHandler.setSelectedAlarm(null);
+                mExpandedAlarmId = Alarm.INVALID_ID;
             }
 
             // Scroll to the selected alarm.
@@ -337,6 +366,29 @@ public final class AlarmClockFragment extends DeskClockFragment implements
         }
     }
 
+    /**
+     * Expands the alarm identified by {@link #mExpandedAlarmId} if its item holder is loaded.
+     *
+     * @return {@code true} if the alarm is expanded; {@code false} if there is no such alarm or
+     *      it is still a placeholder
+     */
+    private boolean restoreExpandedAlarm() {
+        if (mExpandedAlarmId == Alarm.INVALID_ID) {
+            return false;
+        }
+
+        final AlarmItemHolder aih = mItemAdapter.findItemById(mExpandedAlarmId);
+        if (aih == null) {
+            return false;
+        }
+
+        if (!aih.isExpanded()) {
+            mAlarmTimeClickHandler.setSelectedAlarm(aih.item);
+            aih.expand();
+        }
+        return true;
+    }
+
     /**
      * @param alarmId identifies the alarm to be displayed
      */
@@ -352,7 +404,17 @@ public final class AlarmClockFragment extends DeskClockFragment implements
         }
 
         if (alarmPosition >= 0) {
-            mItemAdapter.findItemById(alarmId).expand();
+            final AlarmItemHolder aih = mItemAdapter.findItemById(alarmId);
+            if (aih != null) {
+                aih.expand();
+            } else {
+                // Collapse the prior expanded alarm and expand this one once its page is fetched.
+                final AlarmItemHolder expanded = mItemAdapter.findItemById(mExpandedAlarmId);
+                if (expanded != null) {
+                    expanded.collapse();
+                }
+                mExpandedAlarmId = alarmId;
+            }
             smoothScrollTo(alarmPosition);
         } else {
             // Trying to display a deleted alarm should only happen from a missed notification for
@@ -363,7 +425,7 @@ public final class AlarmClockFragment extends DeskClockFragment implements
     }
 
     @Override
-    public void onLoaderReset(Loader<Cursor> cursorLoader) {
+    public void onLoaderReset(Loader<AlarmListLoader.AlarmList> loader) {
     }
 
     @Override
@@ -406,23 +468,50 @@ public final class AlarmClockFragment extends DeskClockFragment implements
         @Override
         public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
             setTabScrolledToTop(Utils.isScrolledToTop(mRecyclerView));
+            updateVisibleRange();
         }
 
         @Override
         public void onLayoutChange(View v, int left, int top, int right, int bottom,
                 int oldLeft, int oldTop, int oldRight, int oldBottom) {
             setTabScrolledToTop(Utils.isScrolledToTop(mRecyclerView));
+            updateVisibleRange();
+        }
+
+        private void updateVisibleRange() {
+            final int first = mLayoutManager.findFirstVisibleItemPosition();
+            if (first != RecyclerView.NO_POSITION) {
+                mAlarmListPager.onVisibleRangeChanged(first,
+                        mLayoutManager.findLastVisibleItemPosition());
+            }
+        }
+    }
+
+    /**
+     * Rebinds only those non-repeating alarms whose "Today/Tomorrow" value has changed.
+     */
+    private void updateTomorrow() {
+        final List<AlarmItemHolder> items = mItemAdapter.getItems();
+        if (items == null) {
+            return;
+        }
+
+        final Calendar now = Calendar.getInstance();
+        for (AlarmItemHolder itemHolder : items) {
+            if (itemHolder != null && itemHolder.updateTomorrow(now)) {
+                itemHolder.notifyItemChanged();
+            }
         }
     }
 
     /**
-     * This runnable executes at midnight and refreshes the display of all alarms. Collapsed alarms
-     * that do no repeat will have their "Tomorrow" strings updated to say "Today".
+     * This runnable executes at midnight and refreshes the display of affected alarms. Collapsed
+     * alarms that do no repeat will have their "Tomorrow" strings updated to say "Today".
      */
     private final class MidnightRunnable implements Runnable {
         @Override
         public void run() {
-            mItemAdapter.notifyDataSetChanged();
+            updateTomorrow();
         }
     }
 }
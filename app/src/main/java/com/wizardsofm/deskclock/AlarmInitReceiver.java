@@ -24,6 +24,7 @@ import android.os.PowerManager.WakeLock;
 
 import com.wizardsofm.deskclock.alarms.AlarmStateManager;
 import com.wizardsofm.deskclock.data.DataModel;
+import com.wizardsofm.deskclock.data.ZoneTransitions;
 import com.wizardsofm.deskclock.events.Events;
 
 public class AlarmInitReceiver extends BroadcastReceiver {
@@ -46,6 +47,7 @@ public class AlarmInitReceiver extends BroadcastReceiver {
      *     <li>Fix alarm states on ACTION_BOOT_COMPLETED, TIME_SET, TIMEZONE_CHANGED,
      *     and LOCALE_CHANGED</li>
      *     <li>Rebuild notifications on MY_PACKAGE_REPLACED</li>
+     *     <li>Discard cached time zone offsets on TIMEZONE_CHANGED</li>
      * </ul>
      */
     @Override
@@ -68,13 +70,18 @@ public class AlarmInitReceiver extends BroadcastReceiver {
             DataModel.getDataModel().resetTimers(com.wizardsofm.deskclock.R.string.label_reboot);
         }
 
+        // World clock offsets were cached assuming the previous device time zone.
+        if (Intent.ACTION_TIMEZONE_CHANGED.equals(action)) {
+            ZoneTransitions.invalidate();
+        }
+
         // Notifications are canceled by the system on application upgrade. This broadcast signals
         // that the new app is free to rebuild the notifications using the existing data.
         if (Intent.ACTION_MY_PACKAGE_REPLACED.equals(action)) {
             DataModel.getDataModel().updateAllNotifications();
         }
 
-        AsyncHandler.post(new Runnable() {
+        final Runnable fixInstances = new Runnable() {
             @Override
             public void run() {
                 try {
@@ -89,6 +96,10 @@ public class AlarmInitReceiver extends BroadcastReceiver {
                     LogUtils.v("AlarmInitReceiver finished");
                 }
             }
-        });
+        };
+
+        // Instances are only ever changed on the alarm-critical lane so that these fixes cannot
+        // interleave with a firing, snooze or dismiss of the same instance.
+        AsyncHandler.post(AsyncHandler.Lane.ALARM_CRITICAL, fixInstances);
     }
 }
@@ -18,23 +18,231 @@ package com.wizardsofm.deskclock;
 
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+
+import java.io.PrintWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Helper class for managing the background thread used to perform io operations
+ * Helper class for managing the background threads used to perform io operations
  * and handle async broadcasts.
+ *
+ * Work is divided into {@link Lane lanes}, each served by its own thread at its own priority, so
+ * that timer writes or list loading in the other lanes can never delay a firing alarm in the
+ * alarm-critical lane. Work posted with {@link #post} is never dropped. Each lane also has a
+ * bounded capacity that applies only to work which may safely be skipped and retried, offered with
+ * {@link #offer}. Callers that must wait for a result use {@link #postAndWait}, during which the
+ * lane inherits the caller's priority. Each lane tracks its queue depth, the time tasks wait before
+ * they start running, how often its backlog exceeded its capacity and how many offers it rejected.
  */
 public final class AsyncHandler {
-    private static final HandlerThread sHandlerThread = new HandlerThread("AsyncHandler");
-    private static final Handler sHandler;
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("AsyncHandler");
+
+    /** The lanes work may be posted to, from most to least urgent. */
+    public enum Lane {
+        /**
+         * Every change to alarms and alarm instances: state changes, edits, restores and fixes
+         * after time changes. Keeping them on one thread applies them in order.
+         */
+        ALARM_CRITICAL(Process.THREAD_PRIORITY_FOREGROUND, 64),
+        /** Reads whose result the user is waiting to see, such as pages of the alarm list. */
+        USER_INTERACTIVE(Process.THREAD_PRIORITY_DEFAULT, 32),
+        /** Maintenance and storage of timers, laps and caches. */
+        BACKGROUND(Process.THREAD_PRIORITY_BACKGROUND, 32);
+
+        private final int mPriority;
+
+        /**
+         * The queue depth beyond which {@link AsyncHandler#offer} rejects work and the lane is reported as
+         * backlogged.
+         */
+        private final int mCapacity;
+
+        Lane(int priority, int capacity) {
+            mPriority = priority;
+            mCapacity = capacity;
+        }
+    }
+
+    private static final LaneExecutor[] sExecutors = new LaneExecutor[Lane.values().length];
 
     static {
-        sHandlerThread.start();
-        sHandler = new Handler(sHandlerThread.getLooper());
+        for (Lane lane : Lane.values()) {
+            sExecutors[lane.ordinal()] = new LaneExecutor(lane);
+        }
     }
 
+    /**
+     * Posts {@code r} to the {@link Lane#BACKGROUND background} lane.
+     */
     public static void post(Runnable r) {
-        sHandler.post(r);
+        post(Lane.BACKGROUND, r);
+    }
+
+    /**
+     * Posts {@code r} to run on the thread serving {@code lane}. The task is always queued, however
+     * deep the lane's backlog.
+     */
+    public static void post(Lane lane, Runnable r) {
+        sExecutors[lane.ordinal()].post(r, null, true);
+    }
+
+    /**
+     * Posts {@code r} to run on the thread serving {@code lane} unless the lane's queue is already
+     * at capacity. Only work the caller can skip or retry later may be offered.
+     *
+     * @return {@code true} if the task was queued; {@code false} if the lane was full
+     */
+    public static boolean offer(Lane lane, Runnable r) {
+        return sExecutors[lane.ordinal()].post(r, null, false);
+    }
+
+    /**
+     * Runs {@code r} on the thread serving {@code lane} and blocks until it completes or the
+     * timeout elapses. While the caller waits, the lane thread inherits the caller's priority if
+     * it is more urgent, so work queued ahead of {@code r} cannot hold an urgent caller hostage.
+     * If called from the lane's own thread, {@code r} runs inline. {@code r} is never dropped; it
+     * still runs if the timeout elapses first.
+     *
+     * @return {@code true} if {@code r} completed within the timeout
+     */
+    public static boolean postAndWait(Lane lane, Runnable r, long timeoutMillis) {
+        return sExecutors[lane.ordinal()].postAndWait(r, timeoutMillis);
+    }
+
+    /**
+     * Writes the queue depth, wait time, backlog and rejection counts of each lane to
+     * {@code writer}.
+     */
+    public static void dump(PrintWriter writer) {
+        writer.println("AsyncHandler lanes:");
+        for (LaneExecutor executor : sExecutors) {
+            writer.println("  " + executor);
+        }
     }
 
     private AsyncHandler() {}
+
+    /**
+     * Serves one lane with a dedicated {@link HandlerThread}.
+     */
+    private static final class LaneExecutor {
+
+        private final Lane mLane;
+        private final HandlerThread mThread;
+        private final Handler mHandler;
+
+        /** Number of callers currently waiting in {@link #postAndWait}. */
+        private int mWaiters;
+
+        /** Number of tasks queued or running. */
+        private int mDepth;
+        private int mMaxDepth;
+        private long mStarted;
+        private long mCompleted;
+        private long mBacklogged;
+        private long mRejected;
+        private long mTotalWaitMillis;
+        private long mMaxWaitMillis;
+
+        LaneExecutor(Lane lane) {
+            mLane = lane;
+            mThread = new HandlerThread("AsyncHandler-" + lane.name(), lane.mPriority);
+            mThread.start();
+            mHandler = new Handler(mThread.getLooper());
+        }
+
+        /**
+         * @param done counted down once {@code r} has run; may be {@code null}
+         * @param force {@code true} to queue {@code r} even if the lane is at capacity
+         * @return {@code true} if {@code r} was queued
+         */
+        boolean post(final Runnable r, final CountDownLatch done, boolean force) {
+            synchronized (this) {
+                if (mDepth >= mLane.mCapacity) {
+                    if (!force) {
+                        mRejected++;
+                        LOGGER.w("Rejecting offered task; %s lane is full (%d)", mLane, mDepth);
+                        return false;
+                    }
+                    mBacklogged++;
+                    LOGGER.w("%s lane is backlogged (%d)", mLane, mDepth);
+                }
+                mDepth++;
+                mMaxDepth = Math.max(mMaxDepth, mDepth);
+            }
+
+            final long enqueueTime = SystemClock.elapsedRealtime();
+            mHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    final long waitMillis = SystemClock.elapsedRealtime() - enqueueTime;
+                    synchronized (LaneExecutor.this) {
+                        mStarted++;
+                        mTotalWaitMillis += waitMillis;
+                        mMaxWaitMillis = Math.max(mMaxWaitMillis, waitMillis);
+                    }
+                    try {
+                        r.run();
+                    } finally {
+                        synchronized (LaneExecutor.this) {
+                            mDepth--;
+                            mCompleted++;
+                        }
+                        if (done != null) {
+                            done.countDown();
+                        }
+                    }
+                }
+            });
+            return true;
+        }
+
+        boolean postAndWait(Runnable r, long timeoutMillis) {
+            if (Looper.myLooper() == mThread.getLooper()) {
+                r.run();
+                return true;
+            }
+
+            final CountDownLatch done = new CountDownLatch(1);
+            post(r, done, true);
+
+            inheritPriority(Process.getThreadPriority(Process.myTid()));
+            try {
+                return done.await(timeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } finally {
+                restorePriority();
+            }
+        }
+
+        private synchronized void inheritPriority(int callerPriority) {
+            mWaiters++;
+            // Lower values are more urgent.
+            if (callerPriority < Process.getThreadPriority(mThread.getThreadId())) {
+                Process.setThreadPriority(mThread.getThreadId(), callerPriority);
+            }
+        }
+
+        private synchronized void restorePriority() {
+            if (--mWaiters == 0) {
+                Process.setThreadPriority(mThread.getThreadId(), mLane.mPriority);
+            }
+        }
+
+        @Override
+        public synchronized String toString() {
+            final long meanWait = mStarted == 0 ? 0 : mTotalWaitMillis / mStarted;
+            return mLane + ": depth=" + mDepth + " maxDepth=" + mMaxDepth
+                    + " completed=" + mCompleted + " backlogged=" + mBacklogged
+                    + " rejected=" + mRejected
+                    + " meanWaitMs=" + meanWait + " maxWaitMs=" + mMaxWaitMillis;
+        }
+    }
 }
@@ -69,6 +69,9 @@ public final class AsyncRingtonePlayer {
     /** The key of the preference that controls the crescendo behavior when playing a ringtone. */
     private final String mCrescendoPrefKey;
 
+    /** Run on the ringtone thread each time playback has been started; may be null. */
+    private volatile Runnable mPlaybackStartedListener;
+
     /**
      * @param crescendoPrefKey the key to the user preference that defines the crescendo behavior
      *                         associated with this ringtone player, or null to ignore crescendo
@@ -78,6 +81,13 @@ public final class AsyncRingtonePlayer {
         mCrescendoPrefKey = crescendoPrefKey;
     }
 
+    /**
+     * @param listener run on the ringtone thread each time playback has been started, or null
+     */
+    public void setPlaybackStartedListener(Runnable listener) {
+        mPlaybackStartedListener = listener;
+    }
+
     /** Plays the ringtone. */
     public void play(Uri ringtoneUri) {
         LOGGER.d("Posting play.");
@@ -139,7 +149,13 @@ public final class AsyncRingtonePlayer {
                 switch (msg.what) {
                     case EVENT_PLAY:
                         final Uri ringtoneUri = msg.getData().getParcelable(RINGTONE_URI_KEY);
-                        if (getPlaybackDelegate().play(mContext, ringtoneUri)) {
+                        final boolean adjustVolume =
+                                getPlaybackDelegate().play(mContext, ringtoneUri);
+                        final Runnable listener = mPlaybackStartedListener;
+                        if (listener != null) {
+                            listener.run();
+                        }
+                        if (adjustVolume) {
                             scheduleVolumeAdjustment();
                         }
                         break;
@@ -29,6 +29,8 @@ import android.os.Bundle;
 import android.os.Handler;
 import android.provider.Settings;
 import android.support.annotation.NonNull;
+import android.text.format.DateFormat;
+import android.util.SparseArray;
 import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
@@ -45,19 +47,21 @@ import android.widget.TextView;
 
 import com.wizardsofm.deskclock.data.City;
 import com.wizardsofm.deskclock.data.DataModel;
+import com.wizardsofm.deskclock.data.ZoneTransitions;
 import com.wizardsofm.deskclock.uidata.UiDataModel;
 import com.wizardsofm.deskclock.worldclock.CitySelectionActivity;
 
+import java.text.DateFormatSymbols;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Locale;
 import java.util.TimeZone;
 
 import static android.app.AlarmManager.ACTION_NEXT_ALARM_CLOCK_CHANGED;
+import static android.text.format.DateUtils.MINUTE_IN_MILLIS;
 import static android.view.View.GONE;
 import static android.view.View.INVISIBLE;
 import static android.view.View.VISIBLE;
-import static java.util.Calendar.DAY_OF_WEEK;
 
 /**
  * Fragment that shows the clock (analog or digital), the next alarm info and the world clock.
@@ -67,6 +71,9 @@ public final class ClockFragment extends DeskClockFragment {
     // Updates dates in the UI on every quarter-hour.
     private final Runnable mQuarterHourUpdater = new QuarterHourRunnable();
 
+    // Updates the times of the visible world clocks on every minute.
+    private final Runnable mMinuteUpdater = new MinuteRunnable();
+
     // Updates the UI in response to changes to the scheduled alarm.
     private BroadcastReceiver mAlarmChangeReceiver;
 
@@ -179,12 +186,17 @@ public final class ClockFragment extends DeskClockFragment {
 
         // Schedule a runnable to update the date every quarter hour.
         UiDataModel.getUiDataModel().addQuarterHourCallback(mQuarterHourUpdater, 100);
+
+        // Schedule a single runnable to update all world clock times every minute.
+        mCityAdapter.updateTimeFormat();
+        UiDataModel.getUiDataModel().addMinuteCallback(mMinuteUpdater, 100);
     }
 
     @Override
     public void onPause() {
         super.onPause();
         UiDataModel.getUiDataModel().removePeriodicCallback(mQuarterHourUpdater);
+        UiDataModel.getUiDataModel().removePeriodicCallback(mMinuteUpdater);
 
         final Activity activity = getActivity();
         if (mAlarmChangeReceiver != null) {
@@ -301,6 +313,17 @@ public final class ClockFragment extends DeskClockFragment {
         }
     }
 
+    /**
+     * This runnable executes at every minute and updates the times displayed by the world clocks
+     * that are currently visible, in place of each row running its own {@link TextClock}.
+     */
+    private final class MinuteRunnable implements Runnable {
+        @Override
+        public void run() {
+            mCityAdapter.updateVisibleTimes(mCityList);
+        }
+    }
+
     /**
      * Prior to L, a ContentObserver was used to monitor changes to the next scheduled alarm.
      * In L and beyond this is accomplished via a system broadcast of
@@ -338,6 +361,18 @@ public final class ClockFragment extends DeskClockFragment {
         private final Context mContext;
         private final boolean mIsLandscape;
 
+        /** Formatted times of day for the current minute, keyed by UTC offset. */
+        private final SparseArray<CharSequence> mFormattedTimes = new SparseArray<>();
+
+        /** Reused to format times of day; see {@link #getFormattedTime}. */
+        private final Calendar mUtcTime = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+
+        /** The minute for which {@link #mFormattedTimes} were computed. */
+        private long mFormattedMinute = -1;
+
+        /** The 12 or 24 hour pattern used to format times of day. */
+        private CharSequence mTimeFormat;
+
         public SelectedCitiesAdapter(Context context) {
             mContext = context;
             mInflater = LayoutInflater.from(context);
@@ -371,24 +406,25 @@ public final class ClockFragment extends DeskClockFragment {
             final City city = (City) getItem(position);
 
             // Inflate a new view for the city, if necessary.
+            final CityViewHolder holder;
             if (view == null) {
                 view = mInflater.inflate(com.wizardsofm.deskclock.R.layout.world_clock_item, parent, false);
+                holder = new CityViewHolder(view);
+                view.setTag(holder);
+            } else {
+                holder = (CityViewHolder) view.getTag();
             }
+            holder.mCity = city;
 
             // Configure the digital clock or analog clock depending on the user preference.
-            final TextClock digitalClock = (TextClock) view.findViewById(com.wizardsofm.deskclock.R.id.digital_clock);
-            final AnalogClock analogClock = (AnalogClock) view.findViewById(com.wizardsofm.deskclock.R.id.analog_clock);
             if (DataModel.getDataModel().getClockStyle() == DataModel.ClockStyle.ANALOG) {
-                digitalClock.setVisibility(GONE);
-                analogClock.setVisibility(VISIBLE);
-                analogClock.setTimeZone(city.getTimeZone().getID());
-                analogClock.enableSeconds(false);
+                holder.mDigitalClock.setVisibility(GONE);
+                holder.mAnalogClock.setVisibility(VISIBLE);
+                holder.mAnalogClock.setTimeZone(city.getTimeZone().getID());
+                holder.mAnalogClock.enableSeconds(false);
             } else {
-                analogClock.setVisibility(GONE);
-                digitalClock.setVisibility(VISIBLE);
-                digitalClock.setTimeZone(city.getTimeZone().getID());
-                digitalClock.setFormat12Hour(Utils.get12ModeFormat(0.22f /* amPmRatio */));
-                digitalClock.setFormat24Hour(Utils.get24ModeFormat());
+                holder.mAnalogClock.setVisibility(GONE);
+                holder.mDigitalClock.setVisibility(VISIBLE);
             }
 
             // Supply top and bottom padding dynamically.
@@ -401,24 +437,86 @@ public final class ClockFragment extends DeskClockFragment {
             view.setPadding(left, top, right, bottom);
 
             // Bind the city name.
-            final TextView name = (TextView) view.findViewById(com.wizardsofm.deskclock.R.id.city_name);
-            name.setText(city.getName());
+            holder.mName.setText(city.getName());
+
+            // Bind the time and week day display.
+            bindTime(holder, System.currentTimeMillis());
+
+            return view;
+        }
+
+        /**
+         * Rebinds the time and week day of the rows currently attached to {@code list}; rows that
+         * are scrolled into view later are bound with the current time by {@link #getView}.
+         */
+        void updateVisibleTimes(ListView list) {
+            final long now = System.currentTimeMillis();
+            for (int i = 0; i < list.getChildCount(); i++) {
+                final Object tag = list.getChildAt(i).getTag();
+                if (tag instanceof CityViewHolder) {
+                    bindTime((CityViewHolder) tag, now);
+                }
+            }
+        }
+
+        /**
+         * Re-reads the 12/24 hour time format preference and discards all formatted times.
+         */
+        void updateTimeFormat() {
+            if (DateFormat.is24HourFormat(mContext)) {
+                mTimeFormat = Utils.get24ModeFormat();
+            } else {
+                mTimeFormat = Utils.get12ModeFormat(0.22f /* amPmRatio */);
+            }
+            mFormattedTimes.clear();
+        }
+
+        private void bindTime(CityViewHolder holder, long now) {
+            final TimeZone cityZone = holder.mCity.getTimeZone();
+            if (holder.mDigitalClock.getVisibility() == VISIBLE) {
+                holder.mDigitalClock.setText(getFormattedTime(cityZone, now));
+            }
 
             // Compute if the city week day matches the weekday of the current timezone.
-            final Calendar localCal = Calendar.getInstance(TimeZone.getDefault());
-            final Calendar cityCal = Calendar.getInstance(city.getTimeZone());
-            final boolean displayDayOfWeek = localCal.get(DAY_OF_WEEK) != cityCal.get(DAY_OF_WEEK);
+            final boolean displayDayOfWeek =
+                    ZoneTransitions.isDifferentDay(TimeZone.getDefault(), cityZone, now);
 
             // Bind the week day display.
-            final TextView dayOfWeek = (TextView) view.findViewById(com.wizardsofm.deskclock.R.id.city_day);
+            final TextView dayOfWeek = holder.mDayOfWeek;
             dayOfWeek.setVisibility(displayDayOfWeek ? VISIBLE : GONE);
             if (displayDayOfWeek) {
                 final Locale locale = Locale.getDefault();
-                final String weekday = cityCal.getDisplayName(DAY_OF_WEEK, Calendar.SHORT, locale);
+                final int cityDayOfWeek = ZoneTransitions.getDayOfWeek(cityZone, now);
+                final String weekday =
+                        DateFormatSymbols.getInstance(locale).getShortWeekdays()[cityDayOfWeek];
                 dayOfWeek.setText(mContext.getString(com.wizardsofm.deskclock.R.string.world_day_of_week_label, weekday));
             }
+        }
 
-            return view;
+        /**
+         * @return the time of day in {@code zone} at {@code now}; formatted once per minute for
+         *      each distinct offset and shared by all cities observing that offset
+         */
+        private CharSequence getFormattedTime(TimeZone zone, long now) {
+            if (mTimeFormat == null) {
+                updateTimeFormat();
+            }
+
+            final long minute = now / MINUTE_IN_MILLIS;
+            if (minute != mFormattedMinute) {
+                mFormattedMinute = minute;
+                mFormattedTimes.clear();
+            }
+
+            final int offset = ZoneTransitions.getOffset(zone, now);
+            CharSequence formattedTime = mFormattedTimes.get(offset);
+            if (formattedTime == null) {
+                // Formatting the shifted instant in UTC yields the local time at the offset.
+                mUtcTime.setTimeInMillis(now + offset);
+                formattedTime = DateFormat.format(mTimeFormat, mUtcTime);
+                mFormattedTimes.put(offset, formattedTime);
+            }
+            return formattedTime;
         }
 
         /**
@@ -441,4 +539,23 @@ public final class ClockFragment extends DeskClockFragment {
             return DataModel.getDataModel().getShowHomeClock();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Caches the views of a world clock row along with the city it currently displays.
+     */
+    private static final class CityViewHolder {
+
+        private final TextView mName;
+        private final TextView mDayOfWeek;
+        private final TextView mDigitalClock;
+        private final AnalogClock mAnalogClock;
+        private City mCity;
+
+        private CityViewHolder(View view) {
+            mName = (TextView) view.findViewById(com.wizardsofm.deskclock.R.id.city_name);
+            mDayOfWeek = (TextView) view.findViewById(com.wizardsofm.deskclock.R.id.city_day);
+            mDigitalClock = (TextView) view.findViewById(com.wizardsofm.deskclock.R.id.digital_clock);
+            mAnalogClock = (AnalogClock) view.findViewById(com.wizardsofm.deskclock.R.id.analog_clock);
+        }
+    }
+}
@@ -60,10 +60,12 @@ import android.widget.ImageButton;
 import android.widget.ImageView;
 import android.widget.Toast;
 
+import com.wizardsofm.alarmclock.DigitalAppWidgetProvider;
 import com.wizardsofm.deskclock.actionbarmenu.MenuItemControllerFactory;
 import com.wizardsofm.deskclock.actionbarmenu.NightModeMenuItemController;
 import com.wizardsofm.deskclock.actionbarmenu.OptionsMenuManager;
 import com.wizardsofm.deskclock.actionbarmenu.SettingsMenuItemController;
+import com.wizardsofm.deskclock.alarms.AlarmFireLatency;
 import com.wizardsofm.deskclock.alarms.AlarmStateManager;
 import com.wizardsofm.deskclock.data.DataModel;
 import com.wizardsofm.deskclock.events.Events;
@@ -73,6 +75,9 @@ import com.wizardsofm.deskclock.uidata.UiDataModel;
 import com.wizardsofm.deskclock.widget.RtlViewPager;
 import com.wizardsofm.deskclock.widget.toast.SnackbarManager;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+
 import static android.app.NotificationManager.ACTION_INTERRUPTION_FILTER_CHANGED;
 import static android.app.NotificationManager.INTERRUPTION_FILTER_NONE;
 import static android.media.AudioManager.FLAG_SHOW_UI;
@@ -432,6 +437,14 @@ public class DeskClock extends BaseActivity
         super.onDestroy();
     }
 
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        AlarmFireLatency.dump(this, writer);
+        writer.println("Alarm instance transitions: " + AlarmStateManager.getTransitionMetrics());
+        DigitalAppWidgetProvider.dump(writer);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         mOptionsMenuManager.onCreateOptionsMenu(menu);
@@ -23,13 +23,12 @@ import android.content.Intent;
 import android.os.Looper;
 import android.provider.AlarmClock;
 
-import com.wizardsofm.deskclock.alarms.AlarmStateManager;
 import com.wizardsofm.deskclock.provider.Alarm;
 import com.wizardsofm.deskclock.provider.AlarmInstance;
+import com.wizardsofm.deskclock.provider.AlarmInstanceSchedule;
 
 import java.text.DateFormatSymbols;
 import java.util.ArrayList;
-import java.util.Calendar;
 import java.util.List;
 
 /**
@@ -105,12 +104,15 @@ class FetchMatchingAlarmsAction implements Runnable {
                 }
                 break;
             case AlarmClock.ALARM_SEARCH_MODE_NEXT:
+                // Read the scheduling columns of all instances once rather than querying the
+                // full instances of each alarm.
+                final AlarmInstanceSchedule schedule =
+                        new AlarmInstanceSchedule().load(cr, null /* selection */);
+
                 // Match currently firing alarms before scheduled alarms.
                 for (Alarm alarm : mAlarms) {
-                    final AlarmInstance alarmInstance =
-                            AlarmInstance.getNextUpcomingInstanceByAlarmId(cr, alarm.id);
-                    if (alarmInstance != null
-                            && alarmInstance.mAlarmState == AlarmInstance.FIRED_STATE) {
+                    final int index = schedule.indexOfEarliest(alarm.id);
+                    if (index != -1 && schedule.getState(index) == AlarmInstance.FIRED_STATE) {
                         mMatchingAlarms.add(alarm);
                     }
                 }
@@ -119,17 +121,16 @@ class FetchMatchingAlarmsAction implements Runnable {
                     return;
                 }
 
-                final AlarmInstance nextAlarm = AlarmStateManager.getNextFiringAlarm(mContext);
-                if (nextAlarm == null) {
+                final int nextAlarm = schedule.indexOfNextFiring();
+                if (nextAlarm == -1) {
                     final String reason = mContext.getString(com.wizardsofm.deskclock.R.string.no_scheduled_alarms);
                     notifyFailureAndLog(reason, mActivity);
                     return;
                 }
 
                 // get time from nextAlarm and see if there are any other alarms matching this time
-                final Calendar nextTime = nextAlarm.getAlarmTime();
                 final List<Alarm> alarmsFiringAtSameTime = getAlarmsByHourMinutes(
-                        nextTime.get(Calendar.HOUR_OF_DAY), nextTime.get(Calendar.MINUTE), cr);
+                        schedule.getHour(nextAlarm), schedule.getMinute(nextAlarm), cr);
                 // there might me multiple alarms firing next
                 mMatchingAlarms.addAll(alarmsFiringAtSameTime);
                 break;
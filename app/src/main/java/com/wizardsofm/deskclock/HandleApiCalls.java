@@ -54,6 +54,9 @@ import static android.text.format.DateUtils.SECOND_IN_MILLIS;
  */
 public class HandleApiCalls extends Activity {
 
+    /** The longest a voice action waits for the alarm-critical lane to apply a state change. */
+    private static final long STATE_CHANGE_TIMEOUT = 5 * SECOND_IN_MILLIS;
+
     private Context mAppContext;
 
     @Override
@@ -116,7 +119,13 @@ public class HandleApiCalls extends Activity {
         final String time = DateFormat.getTimeFormat(context).format(
                 alarmInstance.getAlarmTime().getTime());
         if (Utils.isAlarmWithin24Hours(alarmInstance)) {
-            AlarmStateManager.setPreDismissState(context, alarmInstance);
+            final Context appContext = context.getApplicationContext();
+            AsyncHandler.postAndWait(AsyncHandler.Lane.ALARM_CRITICAL, new Runnable() {
+                @Override
+                public void run() {
+                    AlarmStateManager.setPreDismissState(appContext, alarmInstance);
+                }
+            }, STATE_CHANGE_TIMEOUT);
             final String reason = context.getString(com.wizardsofm.deskclock.R.string.alarm_is_dismissed, time);
             LogUtils.i(reason);
             Voice.notifySuccess(activity, reason);
@@ -239,7 +248,8 @@ public class HandleApiCalls extends Activity {
         }
     }
 
-    static void snoozeAlarm(AlarmInstance alarmInstance, Context context, Activity activity) {
+    static void snoozeAlarm(final AlarmInstance alarmInstance, Context context,
+            Activity activity) {
         // only allow on background thread
         if (Looper.myLooper() == Looper.getMainLooper()) {
             throw new IllegalStateException("snoozeAlarm must be called on a " +
@@ -250,7 +260,13 @@ public class HandleApiCalls extends Activity {
         final String reason = context.getString(com.wizardsofm.deskclock.R.string.alarm_is_snoozed, time);
         LogUtils.i(reason);
         Voice.notifySuccess(activity, reason);
-        AlarmStateManager.setSnoozeState(context, alarmInstance, true);
+        final Context appContext = context.getApplicationContext();
+        AsyncHandler.postAndWait(AsyncHandler.Lane.ALARM_CRITICAL, new Runnable() {
+            @Override
+            public void run() {
+                AlarmStateManager.setSnoozeState(appContext, alarmInstance, true);
+            }
+        }, STATE_CHANGE_TIMEOUT);
         LogUtils.i("Snooze %d:%d", alarmInstance.mHour, alarmInstance.mMinute);
         Events.sendAlarmEvent(com.wizardsofm.deskclock.R.string.action_snooze, com.wizardsofm.deskclock.R.string.label_intent);
     }
@@ -79,10 +79,21 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
     private final SparseArray<OnItemClickedListener> mListenersByViewType = new SparseArray<>();
 
     /**
-     * List of current item holders represented by this adapter.
+     * List of current item holders represented by this adapter; {@code null} entries are shown
+     * as placeholders.
      */
     private List<T> mItemHolders;
 
+    /**
+     * Supplies the ids of placeholder positions.
+     */
+    private PlaceholderProvider mPlaceholderProvider;
+
+    /**
+     * The view type used to display placeholder positions.
+     */
+    private int mPlaceholderViewType;
+
     /**
      * Convenience for calling {@link #setHasStableIds(boolean)} with {@code true}.
      *
@@ -112,6 +123,24 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
         return this;
     }
 
+    /**
+     * Allows the list of item holders to contain {@code null} entries for items that have not been
+     * loaded yet. Such positions are displayed using view holders created by {@code factory} and
+     * take their ids from {@code provider}.
+     *
+     * @param factory  the {@link ItemViewHolder.Factory} used to create placeholder view holders
+     * @param viewType the unique identifier for the placeholder view type
+     * @param provider supplies the ids of placeholder positions
+     * @return this object, allowing calls to methods in this class to be chained
+     */
+    public ItemAdapter withPlaceholders(ItemViewHolder.Factory factory, int viewType,
+            PlaceholderProvider provider) {
+        mFactoriesByViewType.put(viewType, factory);
+        mPlaceholderViewType = viewType;
+        mPlaceholderProvider = provider;
+        return this;
+    }
+
     /**
      * @return the current list of item holders represented by this adapter
      */
@@ -130,12 +159,28 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
      * @return this object, allowing calls to methods in this class to be chained
      */
     public ItemAdapter setItems(List<T> itemHolders) {
+        return setItems(itemHolders, null);
+    }
+
+    /**
+     * Sets the list of item holders to serve as the dataset for this adapter and dispatches the
+     * fine-grained notifications described by {@code diff} to update the UI. Holders that are
+     * present in both the old and new lists keep their instance state as-is.
+     *
+     * @param itemHolders the new list of item holders
+     * @param diff the changes from the current list to {@code itemHolders}, or {@code null} to
+     *      invoke {@link #notifyDataSetChanged()} instead
+     * @return this object, allowing calls to methods in this class to be chained
+     */
+    public ItemAdapter setItems(List<T> itemHolders, ItemDiff diff) {
         final List<T> oldItemHolders = mItemHolders;
         if (oldItemHolders != itemHolders) {
             if (oldItemHolders != null) {
                 // remove the item change listener from the old item holders
                 for (T oldItemHolder : oldItemHolders) {
-                    oldItemHolder.removeOnItemChangedListener(mItemChangedNotifier);
+                    if (oldItemHolder != null) {
+                        oldItemHolder.removeOnItemChangedListener(mItemChangedNotifier);
+                    }
                 }
             }
 
@@ -145,8 +190,11 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
                 // relatively small and generating a temporary map would be more expensive
                 final Bundle bundle = new Bundle();
                 for (ItemHolder newItemHolder : itemHolders) {
+                    if (newItemHolder == null) {
+                        continue;
+                    }
                     for (ItemHolder oldItemHolder : oldItemHolders) {
-                        if (newItemHolder.itemId == oldItemHolder.itemId
+                        if (oldItemHolder != null && newItemHolder.itemId == oldItemHolder.itemId
                                 && newItemHolder != oldItemHolder) {
                             // clear any existing state from the bundle
                             bundle.clear();
@@ -164,18 +212,65 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
             if (itemHolders != null) {
                 // add the item change listener to the new item holders
                 for (ItemHolder newItemHolder : itemHolders) {
-                    newItemHolder.addOnItemChangedListener(mItemChangedNotifier);
+                    if (newItemHolder != null) {
+                        newItemHolder.addOnItemChangedListener(mItemChangedNotifier);
+                    }
                 }
             }
 
             // finally update the current list of item holders and inform the RV to update the UI
             mItemHolders = itemHolders;
-            notifyDataSetChanged();
+            if (diff != null) {
+                diff.dispatchUpdatesTo(this);
+            } else {
+                notifyDataSetChanged();
+            }
         }
 
         return this;
     }
 
+    /**
+     * Replaces a range of the current item holders in place, e.g. to fill in placeholders once
+     * their items are loaded or to turn items back into placeholders. Only the positions whose
+     * holder actually changes are re-bound.
+     *
+     * @param positionStart the position of the first item holder to replace
+     * @param itemHolders   the replacement item holders; {@code null} entries become placeholders
+     */
+    public void replaceItems(int positionStart, List<T> itemHolders) {
+        int changedStart = -1;
+        for (int i = 0; i <= itemHolders.size(); i++) {
+            final int position = positionStart + i;
+            final boolean changed = i < itemHolders.size()
+                    && replaceItem(position, itemHolders.get(i));
+            if (changed && changedStart == -1) {
+                changedStart = position;
+            } else if (!changed && changedStart != -1) {
+                notifyItemRangeChanged(changedStart, position - changedStart);
+                changedStart = -1;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the item holder at {@code position} was replaced
+     */
+    private boolean replaceItem(int position, T itemHolder) {
+        final T oldItemHolder = mItemHolders.get(position);
+        if (oldItemHolder == itemHolder) {
+            return false;
+        }
+        if (oldItemHolder != null) {
+            oldItemHolder.removeOnItemChangedListener(mItemChangedNotifier);
+        }
+        if (itemHolder != null) {
+            itemHolder.addOnItemChangedListener(mItemChangedNotifier);
+        }
+        mItemHolders.set(position, itemHolder);
+        return true;
+    }
+
     /**
      * Sets the listener to be invoked whenever any item changes.
      */
@@ -190,12 +285,13 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
 
     @Override
     public long getItemId(int position) {
-        return mItemHolders.get(position).itemId;
+        final T holder = mItemHolders.get(position);
+        return holder == null ? mPlaceholderProvider.getPlaceholderId(position) : holder.itemId;
     }
 
     public T findItemById(long id) {
         for (T holder : mItemHolders) {
-            if (holder.itemId == id) {
+            if (holder != null && holder.itemId == id) {
                 return holder;
             }
         }
@@ -204,7 +300,8 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
 
     @Override
     public int getItemViewType(int position) {
-        return mItemHolders.get(position).getItemViewType();
+        final T holder = mItemHolders.get(position);
+        return holder == null ? mPlaceholderViewType : holder.getItemViewType();
     }
 
     @Override
@@ -460,6 +557,17 @@ public class ItemAdapter<T extends ItemAdapter.ItemHolder>
         public void onItemChanged(ItemHolder<?> itemHolder);
     }
 
+    /**
+     * Supplies the ids of items that are displayed as placeholders until they are loaded.
+     */
+    public interface PlaceholderProvider {
+        /**
+         * @param position the position of a placeholder
+         * @return the globally unique id of the item that will be displayed at {@code position}
+         */
+        public long getPlaceholderId(int position);
+    }
+
     /**
      * Callback interface for handling when an item is clicked.
      */
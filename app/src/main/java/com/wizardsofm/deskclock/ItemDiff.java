@@ -0,0 +1,184 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.wizardsofm.deskclock;
+
+import android.support.v7.widget.RecyclerView;
+import android.util.LongSparseArray;
+
+import java.util.Arrays;
+
+/**
+ * The changes that turn one list of items into another, where items are identified by stable ids
+ * and compared by content hashes. A diff is computed off the main thread and later dispatched to
+ * a {@link RecyclerView.Adapter} as fine-grained remove, insert, move and change notifications,
+ * so only the affected rows are animated and rebound.
+ */
+public final class ItemDiff {
+
+    private static final int REMOVE = 0;
+    private static final int INSERT = 1;
+    private static final int MOVE = 2;
+    private static final int CHANGE = 3;
+
+    /** Triples of (operation, position, position) in the order they must be dispatched. */
+    private final int[] mOperations;
+    private final int mOperationCount;
+
+    /** For each new position, the old position of the same item or -1 if it was inserted. */
+    private final int[] mOldPositions;
+
+    /** For each new position, {@code true} iff the item existed before with the same content. */
+    private final boolean[] mUnchanged;
+
+    private ItemDiff(int[] operations, int operationCount, int[] oldPositions,
+            boolean[] unchanged) {
+        mOperations = operations;
+        mOperationCount = operationCount;
+        mOldPositions = oldPositions;
+        mUnchanged = unchanged;
+    }
+
+    /**
+     * @param oldIds the stable ids of the old items, in order
+     * @param oldHashes the content hashes of the old items
+     * @param newIds the stable ids of the new items, in order
+     * @param newHashes the content hashes of the new items
+     * @return the changes that transform the old items into the new items
+     */
+    public static ItemDiff compute(long[] oldIds, int[] oldHashes, long[] newIds,
+            int[] newHashes) {
+        final LongSparseArray<Integer> oldPositionsById = new LongSparseArray<>(oldIds.length);
+        for (int i = 0; i < oldIds.length; i++) {
+            oldPositionsById.put(oldIds[i], i);
+        }
+        final LongSparseArray<Integer> newPositionsById = new LongSparseArray<>(newIds.length);
+        for (int i = 0; i < newIds.length; i++) {
+            newPositionsById.put(newIds[i], i);
+        }
+
+        int[] operations = new int[3 * 8];
+        int count = 0;
+
+        // Remove the old items that no longer exist, last first so positions remain valid.
+        final long[] current = new long[oldIds.length + newIds.length];
+        int size = oldIds.length;
+        System.arraycopy(oldIds, 0, current, 0, size);
+        for (int i = oldIds.length - 1; i >= 0; i--) {
+            if (newPositionsById.get(oldIds[i]) == null) {
+                operations = add(operations, count++, REMOVE, i, i);
+                System.arraycopy(current, i + 1, current, i, size - i - 1);
+                size--;
+            }
+        }
+
+        // Walk the new items, inserting the new ones and moving survivors into place.
+        for (int i = 0; i < newIds.length; i++) {
+            final long id = newIds[i];
+            if (i < size && current[i] == id) {
+                continue;
+            }
+
+            if (oldPositionsById.get(id) == null) {
+                operations = add(operations, count++, INSERT, i, i);
+                System.arraycopy(current, i, current, i + 1, size - i);
+                size++;
+            } else {
+                int from = i + 1;
+                while (current[from] != id) {
+                    from++;
+                }
+                operations = add(operations, count++, MOVE, from, i);
+                System.arraycopy(current, i, current, i + 1, from - i);
+            }
+            current[i] = id;
+        }
+
+        // Rebind the surviving items whose content changed, at their final positions.
+        final int[] oldPositions = new int[newIds.length];
+        final boolean[] unchanged = new boolean[newIds.length];
+        for (int i = 0; i < newIds.length; i++) {
+            final Integer oldPosition = oldPositionsById.get(newIds[i]);
+            oldPositions[i] = oldPosition == null ? -1 : oldPosition;
+            if (oldPosition != null) {
+                unchanged[i] = oldHashes[oldPosition] == newHashes[i];
+                if (!unchanged[i]) {
+                    operations = add(operations, count++, CHANGE, i, i);
+                }
+            }
+        }
+
+        return new ItemDiff(operations, count, oldPositions, unchanged);
+    }
+
+    /**
+     * @return the old position of the item now at {@code newPosition}, or -1 if it is new
+     */
+    public int getOldPosition(int newPosition) {
+        return mOldPositions[newPosition];
+    }
+
+    /**
+     * @return {@code true} iff the item now at {@code newPosition} existed before with identical
+     *      content, so anything built from the old item may be reused
+     */
+    public boolean isUnchanged(int newPosition) {
+        return mUnchanged[newPosition];
+    }
+
+    /**
+     * @return the number of notifications {@link #dispatchUpdatesTo} will send
+     */
+    public int getOperationCount() {
+        return mOperationCount;
+    }
+
+    /**
+     * Notifies {@code adapter} of each change. The adapter must already serve the new items.
+     */
+    public void dispatchUpdatesTo(RecyclerView.Adapter adapter) {
+        for (int i = 0; i < mOperationCount; i++) {
+            final int position = mOperations[3 * i + 1];
+            final int other = mOperations[3 * i + 2];
+            switch (mOperations[3 * i]) {
+                case REMOVE:
+                    adapter.notifyItemRemoved(position);
+                    break;
+                case INSERT:
+                    adapter.notifyItemInserted(position);
+                    break;
+                case MOVE:
+                    adapter.notifyItemMoved(position, other);
+                    break;
+                case CHANGE:
+                    adapter.notifyItemChanged(position);
+                    break;
+            }
+        }
+    }
+
+    private static int[] add(int[] operations, int index, int operation, int position,
+            int other) {
+        if (3 * index + 3 > operations.length) {
+            operations = Arrays.copyOf(operations, operations.length * 2);
+        }
+        operations[3 * index] = operation;
+        operations[3 * index + 1] = position;
+        operations[3 * index + 2] = other;
+        return operations;
+    }
+}
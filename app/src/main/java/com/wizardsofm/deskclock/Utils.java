@@ -53,11 +53,13 @@ import android.text.style.RelativeSizeSpan;
 import android.text.style.StyleSpan;
 import android.text.style.TypefaceSpan;
 import android.util.ArraySet;
+import android.util.SparseArray;
 import android.view.View;
 import android.widget.TextClock;
 import android.widget.TextView;
 
 import com.wizardsofm.deskclock.data.DataModel;
+import com.wizardsofm.deskclock.data.ZoneTransitions;
 import com.wizardsofm.deskclock.provider.AlarmInstance;
 import com.wizardsofm.deskclock.provider.DaysOfWeek;
 import com.wizardsofm.deskclock.settings.SettingsActivity;
@@ -103,6 +105,10 @@ public class Utils {
      */
     private static final int[] TEMP_ARRAY = new int[1];
 
+    /** Formatted GMT offsets keyed by raw offset, for {@link #getGMTHourOffset}. */
+    private static final SparseArray<String> sShortGmtOffsets = new SparseArray<>();
+    private static final SparseArray<String> sLongGmtOffsets = new SparseArray<>();
+
     public static void enforceMainLooper() {
         if (Looper.getMainLooper() != Looper.myLooper()) {
             throw new IllegalAccessError("May only call from main thread.");
@@ -412,14 +418,22 @@ public class Utils {
      */
     public static String getGMTHourOffset(TimeZone timezone, boolean useShortForm) {
         final int gmtOffset = timezone.getRawOffset();
-        final long hour = gmtOffset / DateUtils.HOUR_IN_MILLIS;
-        final long min = (Math.abs(gmtOffset) % DateUtils.HOUR_IN_MILLIS) /
-                DateUtils.MINUTE_IN_MILLIS;
-
-        if (useShortForm) {
-            return String.format(Locale.ENGLISH, "%+d", hour);
-        } else {
-            return String.format(Locale.ENGLISH, "GMT %+d:%02d", hour, min);
+        final SparseArray<String> cache = useShortForm ? sShortGmtOffsets : sLongGmtOffsets;
+        synchronized (cache) {
+            String formatted = cache.get(gmtOffset);
+            if (formatted == null) {
+                final long hour = gmtOffset / DateUtils.HOUR_IN_MILLIS;
+                final long min = (Math.abs(gmtOffset) % DateUtils.HOUR_IN_MILLIS) /
+                        DateUtils.MINUTE_IN_MILLIS;
+
+                if (useShortForm) {
+                    formatted = String.format(Locale.ENGLISH, "%+d", hour);
+                } else {
+                    formatted = String.format(Locale.ENGLISH, "GMT %+d:%02d", hour, min);
+                }
+                cache.put(gmtOffset, formatted);
+            }
+            return formatted;
         }
     }
 
@@ -433,26 +447,13 @@ public class Utils {
      * @return the nearest point in the future at which any of the time zones changes days
      */
     public static Date getNextDay(Date time, Collection<TimeZone> zones) {
-        Calendar next = null;
+        final long now = time.getTime();
+        long next = Long.MAX_VALUE;
         for (TimeZone tz : zones) {
-            final Calendar c = Calendar.getInstance(tz);
-            c.setTime(time);
-
-            // Advance to the next day.
-            c.add(Calendar.DAY_OF_YEAR, 1);
-
-            // Reset the time to midnight.
-            c.set(Calendar.HOUR_OF_DAY, 0);
-            c.set(Calendar.MINUTE, 0);
-            c.set(Calendar.SECOND, 0);
-            c.set(Calendar.MILLISECOND, 0);
-
-            if (next == null || c.compareTo(next) < 0) {
-                next = c;
-            }
+            next = Math.min(next, ZoneTransitions.getNextMidnight(tz, now));
         }
 
-        return next == null ? null : next.getTime();
+        return next == Long.MAX_VALUE ? null : new Date(next);
     }
 
     /**
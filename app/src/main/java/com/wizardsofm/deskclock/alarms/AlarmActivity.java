@@ -48,6 +48,7 @@ import android.view.KeyEvent;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 import android.view.accessibility.AccessibilityManager;
 import android.widget.ImageView;
@@ -275,6 +276,17 @@ public class AlarmActivity extends AppCompatActivity
         mPulseAnimator.setRepeatCount(ValueAnimator.INFINITE);
         mPulseAnimator.start();
 
+        // Record when the firing alarm first becomes visible.
+        mContentView.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        mContentView.getViewTreeObserver().removeOnPreDrawListener(this);
+                        AlarmFireLatency.mark(AlarmActivity.this,
+                                AlarmFireLatency.Stage.FIRST_DRAW);
+                        return true;
+                    }
+                });
 
 
         if (DataModel.getDataModel().getSnoozeByVoice()) {
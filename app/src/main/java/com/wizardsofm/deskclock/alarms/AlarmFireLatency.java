@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.alarms;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.wizardsofm.deskclock.LogUtils;
+import com.wizardsofm.deskclock.Utils;
+
+import java.io.PrintWriter;
+
+/**
+ * Measures how late a firing alarm is at each stage between the {@link android.app.AlarmManager}
+ * wake-up and the alarm being audible and visible. Each stage records the delay relative to the
+ * instance's scheduled time into a fixed-size histogram that is persisted across process restarts,
+ * so p50/p99 regressions are visible in {@code dumpsys activity DeskClock} and in
+ * {@link FireLatencyActivity}.
+ *
+ * A fire is traced from the moment {@link #begin} is called for its instance and scheduled time;
+ * each stage is then recorded at most once for that fire by {@link #mark}. Samples are kept in
+ * memory while the fire is traced and persisted once, when the trace completes or is replaced by
+ * the next one, so the firing path performs a single preference write.
+ */
+public final class AlarmFireLatency {
+
+    private static final LogUtils.Logger LOGGER = new LogUtils.Logger("AlarmFireLatency");
+
+    /** The points along the firing path at which latency is measured, in order. */
+    public enum Stage {
+        /** The state change intent reached AlarmService or AlarmStateManager. */
+        RECEIVE,
+        /** AlarmStateManager's broadcast was dispatched on the background thread. */
+        DISPATCH,
+        /** The instance was moved to the fired state. */
+        FIRED_STATE,
+        /** AlarmService started the klaxon and notification. */
+        START_ALARM,
+        /** The ringtone player started playback. */
+        FIRST_AUDIO,
+        /** AlarmActivity drew its first frame. */
+        FIRST_DRAW
+    }
+
+    /** Upper bounds, in milliseconds, of all histogram buckets but the last, unbounded one. */
+    private static final long[] BUCKET_BOUNDS = {
+            10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000
+    };
+
+    private static final int BUCKET_COUNT = BUCKET_BOUNDS.length + 1;
+
+    /** Prefix of the preference keys holding each stage's bucket counts. */
+    private static final String KEY_PREFIX = "fire_latency_";
+
+    /** Bucket counts per stage; lazily loaded from preferences. */
+    private static int[][] sHistograms;
+
+    /** The instance whose fire is currently being traced. */
+    private static long sInstanceId = -1;
+
+    /** The scheduled time of the fire being traced. */
+    private static long sScheduledTime;
+
+    /** Bit set of the stages already recorded for the fire being traced. */
+    private static int sRecordedStages;
+
+    /** Bit set of the stages recorded since the histograms were last persisted. */
+    private static int sUnsavedStages;
+
+    private AlarmFireLatency() {}
+
+    /**
+     * Starts tracing the fire of the given instance unless that same fire is already being
+     * traced. A snoozed instance firing again has a new scheduled time and is traced afresh.
+     *
+     * @param instanceId the instance that is firing
+     * @param scheduledTime the wall clock time at which the instance was due to fire
+     */
+    public static synchronized void begin(Context context, long instanceId, long scheduledTime) {
+        if (instanceId == sInstanceId && scheduledTime == sScheduledTime) {
+            return;
+        }
+        // Persist what was recorded for an abandoned trace before starting the next one.
+        save(context);
+        sInstanceId = instanceId;
+        sScheduledTime = scheduledTime;
+        sRecordedStages = 0;
+    }
+
+    /**
+     * Records the latency of {@code stage} for the fire being traced. Does nothing if no fire is
+     * being traced or the stage was already recorded for it.
+     */
+    public static synchronized void mark(Context context, Stage stage) {
+        final int bit = 1 << stage.ordinal();
+        if (sInstanceId == -1 || (sRecordedStages & bit) != 0) {
+            return;
+        }
+        sRecordedStages |= bit;
+
+        final long latency = Math.max(0, System.currentTimeMillis() - sScheduledTime);
+        LOGGER.v("Instance %d %s latency: %d ms", sInstanceId, stage, latency);
+
+        getHistograms(context)[stage.ordinal()][getBucket(latency)]++;
+        sUnsavedStages |= bit;
+
+        // The final stage completes the trace.
+        if (stage == Stage.FIRST_DRAW) {
+            save(context);
+            sInstanceId = -1;
+        }
+    }
+
+    /**
+     * Writes the sample count, p50 and p99 of every stage to {@code writer}.
+     */
+    public static synchronized void dump(Context context, PrintWriter writer) {
+        writer.println("Alarm fire latency (relative to scheduled time):");
+        final int[][] histograms = getHistograms(context);
+        for (Stage stage : Stage.values()) {
+            final int[] histogram = histograms[stage.ordinal()];
+            writer.printf("  %-12s n=%-6d p50=%-10s p99=%s%n", stage, getCount(histogram),
+                    formatPercentile(histogram, 0.50), formatPercentile(histogram, 0.99));
+        }
+    }
+
+    /**
+     * Discards all recorded samples.
+     */
+    public static synchronized void reset(Context context) {
+        final SharedPreferences.Editor editor = Utils.getDefaultSharedPreferences(context).edit();
+        for (Stage stage : Stage.values()) {
+            editor.remove(KEY_PREFIX + stage.name());
+        }
+        editor.apply();
+        sHistograms = null;
+        sUnsavedStages = 0;
+    }
+
+    private static int getBucket(long latency) {
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            if (latency <= BUCKET_BOUNDS[i]) {
+                return i;
+            }
+        }
+        return BUCKET_BOUNDS.length;
+    }
+
+    private static int getCount(int[] histogram) {
+        int count = 0;
+        for (int bucketCount : histogram) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * @return the upper bound of the bucket holding the given percentile, e.g. "<=250ms"
+     */
+    private static String formatPercentile(int[] histogram, double percentile) {
+        final int count = getCount(histogram);
+        if (count == 0) {
+            return "-";
+        }
+
+        final int rank = (int) Math.ceil(count * percentile);
+        int cumulative = 0;
+        for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+            cumulative += histogram[i];
+            if (cumulative >= rank) {
+                return "<=" + BUCKET_BOUNDS[i] + "ms";
+            }
+        }
+        return ">" + BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1] + "ms";
+    }
+
+    private static int[][] getHistograms(Context context) {
+        if (sHistograms == null) {
+            final SharedPreferences prefs = Utils.getDefaultSharedPreferences(context);
+            final Stage[] stages = Stage.values();
+            sHistograms = new int[stages.length][];
+            for (Stage stage : stages) {
+                sHistograms[stage.ordinal()] =
+                        parse(prefs.getString(KEY_PREFIX + stage.name(), null));
+            }
+        }
+        return sHistograms;
+    }
+
+    private static int[] parse(String value) {
+        final int[] histogram = new int[BUCKET_COUNT];
+        if (value == null) {
+            return histogram;
+        }
+
+        final String[] counts = value.split(",");
+        if (counts.length != BUCKET_COUNT) {
+            // The bucket layout changed; start over.
+            return histogram;
+        }
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            histogram[i] = Integer.parseInt(counts[i]);
+        }
+        return histogram;
+    }
+
+    /**
+     * Persists the histograms of all stages recorded since the last save in a single write.
+     */
+    private static void save(Context context) {
+        if (sUnsavedStages == 0) {
+            return;
+        }
+
+        final SharedPreferences.Editor editor = Utils.getDefaultSharedPreferences(context).edit();
+        for (Stage stage : Stage.values()) {
+            if ((sUnsavedStages & (1 << stage.ordinal())) == 0) {
+                continue;
+            }
+            final int[] histogram = sHistograms[stage.ordinal()];
+            final StringBuilder value = new StringBuilder(BUCKET_COUNT * 2);
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                if (i > 0) {
+                    value.append(',');
+                }
+                value.append(histogram[i]);
+            }
+            editor.putString(KEY_PREFIX + stage.name(), value.toString());
+        }
+        editor.apply();
+        sUnsavedStages = 0;
+    }
+}
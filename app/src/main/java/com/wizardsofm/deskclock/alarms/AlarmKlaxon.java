@@ -83,8 +83,15 @@ public final class AlarmKlaxon {
 
     private static synchronized AsyncRingtonePlayer getAsyncRingtonePlayer(Context context) {
         if (sAsyncRingtonePlayer == null) {
-            sAsyncRingtonePlayer = new AsyncRingtonePlayer(context.getApplicationContext(),
+            final Context appContext = context.getApplicationContext();
+            sAsyncRingtonePlayer = new AsyncRingtonePlayer(appContext,
                     SettingsActivity.KEY_ALARM_CRESCENDO);
+            sAsyncRingtonePlayer.setPlaybackStartedListener(new Runnable() {
+                @Override
+                public void run() {
+                    AlarmFireLatency.mark(appContext, AlarmFireLatency.Stage.FIRST_AUDIO);
+                }
+            });
         }
 
         return sAsyncRingtonePlayer;
@@ -28,11 +28,16 @@ import android.telephony.PhoneStateListener;
 import android.telephony.TelephonyManager;
 
 import com.wizardsofm.deskclock.AlarmAlertWakeLock;
+import com.wizardsofm.deskclock.AsyncHandler;
 import com.wizardsofm.deskclock.LogUtils;
 import com.wizardsofm.deskclock.data.DataModel;
 import com.wizardsofm.deskclock.events.Events;
 import com.wizardsofm.deskclock.provider.AlarmInstance;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
+import java.util.List;
+
 /**
  * This service is in charge of starting/stopping the alarm. It will bring up and manage the
  * {@link AlarmActivity} as well as {@link AlarmKlaxon}.
@@ -125,7 +130,18 @@ public class AlarmService extends Service {
 
     private void startAlarm(AlarmInstance instance) {
         LogUtils.v("AlarmService.start with instance: " + instance.mId);
+        AlarmFireLatency.begin(this, instance.mId, instance.getAlarmTime().getTimeInMillis());
         if (mCurrentAlarm != null) {
+            if (FiringSession.isSameSession(mCurrentAlarm, instance)) {
+                // Join the ringing session; it keeps its klaxon, notification and wake lock and
+                // the new instance is snoozed or dismissed along with it.
+                LogUtils.v("Instance %d joined firing session of instance %d", instance.mId,
+                        mCurrentAlarm.mId);
+                AlarmNotifications.clearNotification(this, instance);
+                return;
+            }
+
+            // An unrelated alarm is firing; the current session is missed as a whole.
             AlarmStateManager.setMissedState(this, mCurrentAlarm);
             stopCurrentAlarm();
         }
@@ -144,6 +160,7 @@ public class AlarmService extends Service {
             }
         }
 
+        AlarmFireLatency.mark(this, AlarmFireLatency.Stage.START_ALARM);
         AlarmKlaxon.start(this, mCurrentAlarm);
         sendBroadcast(new Intent(ALARM_ALERT_ACTION));
     }
@@ -266,6 +283,7 @@ public class AlarmService extends Service {
         final long instanceId = AlarmInstance.getId(intent.getData());
         switch (intent.getAction()) {
             case AlarmStateManager.CHANGE_STATE_ACTION:
+                AlarmStateManager.traceReceive(this, intent);
                 AlarmStateManager.handleIntent(this, intent);
 
                 // If state is changed to firing, actually fire the alarm!
@@ -295,13 +313,43 @@ public class AlarmService extends Service {
                             instanceId, mCurrentAlarm.mId);
                     break;
                 }
+                final AlarmInstance stopped = mCurrentAlarm;
                 stopCurrentAlarm();
-                stopSelf();
+
+                // If the stopped instance left other members of its session firing, keep ringing
+                // for them rather than leaving them silent.
+                final AlarmInstance next = stopped == null ? null : getNextSessionMember(stopped);
+                if (next != null) {
+                    startAlarm(next);
+                } else {
+                    stopSelf();
+                }
         }
 
         return Service.START_NOT_STICKY;
     }
 
+    /**
+     * @return another instance of {@code stopped}'s firing session that is still firing, or null
+     */
+    private AlarmInstance getNextSessionMember(AlarmInstance stopped) {
+        final List<AlarmInstance> members =
+                FiringSession.getMembers(getContentResolver(), stopped);
+        for (AlarmInstance member : members) {
+            if (member.mId != stopped.mId) {
+                return member;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("Current alarm: " + (mCurrentAlarm == null ? "none" : mCurrentAlarm.mId));
+        AlarmFireLatency.dump(this, writer);
+        AsyncHandler.dump(writer);
+    }
+
     @Override
     public void onDestroy() {
         LogUtils.v("AlarmService.onDestroy() called");
@@ -42,6 +42,7 @@ import com.wizardsofm.deskclock.Utils;
 import com.wizardsofm.deskclock.events.Events;
 import com.wizardsofm.deskclock.provider.Alarm;
 import com.wizardsofm.deskclock.provider.AlarmInstance;
+import com.wizardsofm.deskclock.provider.AlarmInstanceSchedule;
 import com.wizardsofm.deskclock.settings.SettingsActivity;
 
 import java.util.Calendar;
@@ -121,6 +122,9 @@ public final class AlarmStateManager extends BroadcastReceiver {
     // Extra key to indicate the state change was launched from a notification.
     public static final String FROM_NOTIFICATION_EXTRA = "intent.extra.from.notification";
 
+    // Extra key holding the time at which a state change was scheduled to occur.
+    private static final String ALARM_SCHEDULED_TIME_EXTRA = "intent.extra.alarm.scheduled.time";
+
     // Extra key to set the global broadcast id.
     private static final String ALARM_GLOBAL_ID_EXTRA = "intent.extra.alarm.global.id";
 
@@ -138,6 +142,9 @@ public final class AlarmStateManager extends BroadcastReceiver {
     // A factory for the current time; can be mocked for testing purposes.
     private static CurrentTimeFactory sCurrentTimeFactory;
 
+    // Round-trip accounting for instance state transitions.
+    private static final TransitionMetrics sTransitionMetrics = new TransitionMetrics();
+
     // Schedules alarm state transitions; can be mocked for testing purposes.
     private static StateChangeScheduler sStateChangeScheduler =
             new AlarmManagerStateChangeScheduler();
@@ -176,13 +183,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
      * @param context application context
      */
     public static void updateNextAlarm(Context context) {
-        final AlarmInstance nextAlarm = getNextFiringAlarm(context);
-
-        if (Utils.isPreL()) {
-            updateNextAlarmInSystemSettings(context, nextAlarm);
-        } else {
-            updateNextAlarmInAlarmManager(context, nextAlarm);
-        }
+        publishNextAlarm(context, getNextFiringAlarm(context));
     }
 
     /**
@@ -193,16 +194,127 @@ public final class AlarmStateManager extends BroadcastReceiver {
      */
     public static AlarmInstance getNextFiringAlarm(Context context) {
         final ContentResolver cr = context.getContentResolver();
+        final long nextAlarmId = getNextFiringAlarmId(cr);
+        return nextAlarmId == AlarmInstance.INVALID_ID
+                ? null : AlarmInstance.getInstance(cr, nextAlarmId);
+    }
+
+    /**
+     * Scans the scheduling columns of active instances, without materializing them, to find the
+     * instance that will fire earliest.
+     *
+     * @param cr to perform the query on
+     * @return the id of the next instance to fire or {@link AlarmInstance#INVALID_ID} if none
+     */
+    private static long getNextFiringAlarmId(ContentResolver cr) {
         final String activeAlarmQuery = AlarmInstance.ALARM_STATE + "<" + AlarmInstance.FIRED_STATE;
-        final List<AlarmInstance> alarmInstances = AlarmInstance.getInstances(cr, activeAlarmQuery);
+        final long[] next = { AlarmInstance.INVALID_ID, Long.MAX_VALUE };
+        AlarmInstanceSchedule.visit(cr, new AlarmInstanceSchedule.Visitor() {
+            @Override
+            public boolean visit(long id, long alarmId, int state, long timeKey) {
+                if (timeKey < next[1]) {
+                    next[0] = id;
+                    next[1] = timeKey;
+                }
+                return true;
+            }
+        }, activeAlarmQuery);
+        return next[0];
+    }
+
+    /**
+     * Moves {@code instance} to {@code newState}, committing its state and alarm time with a single
+     * provider call. When {@code updateNextAlarm} is true the next firing instance is returned by
+     * that same call and published to the system, instead of being looked up afterwards.
+     *
+     * @param context         application context
+     * @param instance        to change state on
+     * @param newState        to change to
+     * @param updateNextAlarm true if the transition may change which alarm fires next
+     */
+    private static void commitState(Context context, AlarmInstance instance, int newState,
+            boolean updateNextAlarm) {
+        instance.mAlarmState = newState;
+        final AlarmInstance.Transition transition = AlarmInstance.updateInstanceState(
+                context.getContentResolver(), instance, updateNextAlarm);
+        if (updateNextAlarm) {
+            publishNextAlarm(context, transition.nextAlarm);
+        }
+        sTransitionMetrics.record(1, updateNextAlarm);
+    }
+
+    /**
+     * Commits the shared state and alarm time of all {@code instances} with a single provider call.
+     *
+     * @see #commitState(Context, AlarmInstance, int, boolean)
+     */
+    private static void commitStates(Context context, List<AlarmInstance> instances,
+            boolean updateNextAlarm) {
+        if (instances.size() == 1) {
+            final AlarmInstance instance = instances.get(0);
+            commitState(context, instance, instance.mAlarmState, updateNextAlarm);
+            return;
+        }
+        final AlarmInstance.Transition transition = AlarmInstance.updateInstancesState(
+                context.getContentResolver(), instances, updateNextAlarm);
+        if (updateNextAlarm) {
+            publishNextAlarm(context, transition.nextAlarm);
+        }
+        sTransitionMetrics.record(instances.size(), updateNextAlarm);
+    }
+
+    /**
+     * Notify the system of {@code nextAlarm}, the alarm instance that will fire next, or null if
+     * none are scheduled.
+     */
+    private static void publishNextAlarm(Context context, AlarmInstance nextAlarm) {
+        if (Utils.isPreL()) {
+            updateNextAlarmInSystemSettings(context, nextAlarm);
+        } else {
+            updateNextAlarmInAlarmManager(context, nextAlarm);
+        }
+    }
 
-        AlarmInstance nextAlarm = null;
-        for (AlarmInstance instance : alarmInstances) {
-            if (nextAlarm == null || instance.getAlarmTime().before(nextAlarm.getAlarmTime())) {
-                nextAlarm = instance;
+    /**
+     * @return a summary of the instance state transitions and the provider calls that made them,
+     *      compared with the round trips the per-instance updates they replaced would have made
+     */
+    public static String getTransitionMetrics() {
+        return sTransitionMetrics.toString();
+    }
+
+    /**
+     * Counts the instances moved to a new state, the provider calls that committed them, and how
+     * many of those calls also returned the next alarm to fire. Alongside, it counts the round
+     * trips the same transitions would have cost before {@link #commitState}: one
+     * {@link AlarmInstance#updateInstance} per instance and, if the next alarm could change, one
+     * query of the active instances.
+     */
+    private static final class TransitionMetrics {
+        private long mTransitions;
+        private long mProviderCalls;
+        private long mNextAlarmQueries;
+        private long mLegacyRoundTrips;
+
+        synchronized void record(int instanceCount, boolean updateNextAlarm) {
+            mTransitions += instanceCount;
+            mProviderCalls++;
+            mLegacyRoundTrips += instanceCount;
+            if (updateNextAlarm) {
+                mNextAlarmQueries++;
+                mLegacyRoundTrips++;
+            }
+            if (LogUtils.Logger.DEBUG) {
+                LogUtils.v("Instance transitions: %s", this);
             }
         }
-        return nextAlarm;
+
+        @Override
+        public synchronized String toString() {
+            return "transitions=" + mTransitions + " providerCalls=" + mProviderCalls
+                    + " nextAlarmQueries=" + mNextAlarmQueries
+                    + " legacyRoundTrips=" + mLegacyRoundTrips;
+        }
     }
 
     /**
@@ -366,10 +478,8 @@ public final class AlarmStateManager extends BroadcastReceiver {
     public static void setSilentState(Context context, AlarmInstance instance) {
         LogUtils.i("Setting silent state to instance " + instance.mId);
 
-        // Update alarm in db
-        ContentResolver contentResolver = context.getContentResolver();
-        instance.mAlarmState = AlarmInstance.SILENT_STATE;
-        AlarmInstance.updateInstance(contentResolver, instance);
+        // Update alarm state in db
+        commitState(context, instance, AlarmInstance.SILENT_STATE, false /* updateNextAlarm */);
 
         // Setup instance notification and scheduling timers
         AlarmNotifications.clearNotification(context, instance);
@@ -389,9 +499,8 @@ public final class AlarmStateManager extends BroadcastReceiver {
         LogUtils.i("Setting low notification state to instance " + instance.mId);
 
         // Update alarm state in db
-        ContentResolver contentResolver = context.getContentResolver();
-        instance.mAlarmState = AlarmInstance.LOW_NOTIFICATION_STATE;
-        AlarmInstance.updateInstance(contentResolver, instance);
+        commitState(context, instance, AlarmInstance.LOW_NOTIFICATION_STATE,
+                false /* updateNextAlarm */);
 
         // Setup instance notification and scheduling timers
         AlarmNotifications.showLowPriorityNotification(context, instance);
@@ -411,9 +520,8 @@ public final class AlarmStateManager extends BroadcastReceiver {
         LogUtils.i("Setting hide notification state to instance " + instance.mId);
 
         // Update alarm state in db
-        ContentResolver contentResolver = context.getContentResolver();
-        instance.mAlarmState = AlarmInstance.HIDE_NOTIFICATION_STATE;
-        AlarmInstance.updateInstance(contentResolver, instance);
+        commitState(context, instance, AlarmInstance.HIDE_NOTIFICATION_STATE,
+                false /* updateNextAlarm */);
 
         // Setup instance notification and scheduling timers
         AlarmNotifications.clearNotification(context, instance);
@@ -433,9 +541,8 @@ public final class AlarmStateManager extends BroadcastReceiver {
         LogUtils.i("Setting high notification state to instance " + instance.mId);
 
         // Update alarm state in db
-        ContentResolver contentResolver = context.getContentResolver();
-        instance.mAlarmState = AlarmInstance.HIGH_NOTIFICATION_STATE;
-        AlarmInstance.updateInstance(contentResolver, instance);
+        commitState(context, instance, AlarmInstance.HIGH_NOTIFICATION_STATE,
+                false /* updateNextAlarm */);
 
         // Setup instance notification and scheduling timers
         AlarmNotifications.showHighPriorityNotification(context, instance);
@@ -453,28 +560,26 @@ public final class AlarmStateManager extends BroadcastReceiver {
      */
     public static void setFiredState(Context context, AlarmInstance instance) {
         LogUtils.i("Setting fire state to instance " + instance.mId);
-
-        // Update alarm state in db
-        ContentResolver contentResolver = context.getContentResolver();
-        instance.mAlarmState = AlarmInstance.FIRED_STATE;
-        AlarmInstance.updateInstance(contentResolver, instance);
+        AlarmFireLatency.begin(context, instance.mId, instance.getAlarmTime().getTimeInMillis());
+        AlarmFireLatency.mark(context, AlarmFireLatency.Stage.FIRED_STATE);
 
         if (instance.mAlarmId != null) {
             // if the time changed *backward* and pushed an instance from missed back to fired,
             // remove any other scheduled instances that may exist
-            AlarmInstance.deleteOtherInstances(context, contentResolver, instance.mAlarmId,
-                    instance.mId);
+            AlarmInstance.deleteOtherInstances(context, context.getContentResolver(),
+                    instance.mAlarmId, instance.mId);
         }
 
+        // Update alarm state in db. Instance not valid anymore, so find next alarm that will fire
+        // and notify system
+        commitState(context, instance, AlarmInstance.FIRED_STATE, true /* updateNextAlarm */);
+
         Events.sendAlarmEvent(com.wizardsofm.deskclock.R.string.action_fire, 0);
 
         Calendar timeout = instance.getTimeout(context);
         if (timeout != null) {
             scheduleInstanceStateChange(context, timeout, instance, AlarmInstance.MISSED_STATE);
         }
-
-        // Instance not valid anymore, so find next alarm that will fire and notify system
-        updateNextAlarm(context);
     }
 
     /**
@@ -482,14 +587,14 @@ public final class AlarmStateManager extends BroadcastReceiver {
      * the application notifications and schedule any state changes that need
      * to occur in the future.
      *
+     * If the instance is firing, every instance in its {@link FiringSession} is snoozed along
+     * with it in a single write.
+     *
      * @param context  application context
      * @param instance to set state to
      */
     public static void setSnoozeState(final Context context, AlarmInstance instance,
             boolean showToast) {
-        // Stop alarm if this instance is firing it
-        AlarmService.stopAlarm(context, instance);
-
         // Calculate the new snooze alarm time
         String snoozeMinutesStr = Utils.getDefaultSharedPreferences(context)
                 .getString(SettingsActivity.KEY_ALARM_SNOOZE, DEFAULT_SNOOZE_MINUTES);
@@ -497,17 +602,27 @@ public final class AlarmStateManager extends BroadcastReceiver {
         Calendar newAlarmTime = Calendar.getInstance();
         newAlarmTime.add(Calendar.MINUTE, snoozeMinutes);
 
-        // Update alarm state and new alarm time in db.
-        LogUtils.i("Setting snoozed state to instance " + instance.mId + " for "
-                + AlarmUtils.getFormattedTime(context, newAlarmTime));
-        instance.setAlarmTime(newAlarmTime);
-        instance.mAlarmState = AlarmInstance.SNOOZE_STATE;
-        AlarmInstance.updateInstance(context.getContentResolver(), instance);
+        // Update alarm state and new alarm time in db for the whole session at once.
+        final List<AlarmInstance> session =
+                FiringSession.getMembers(context.getContentResolver(), instance);
+        for (AlarmInstance member : session) {
+            // Stop alarm if this instance is firing it
+            AlarmService.stopAlarm(context, member);
+
+            LogUtils.i("Setting snoozed state to instance " + member.mId + " for "
+                    + AlarmUtils.getFormattedTime(context, newAlarmTime));
+            member.setAlarmTime(newAlarmTime);
+            member.mAlarmState = AlarmInstance.SNOOZE_STATE;
+        }
+        // Instance time changed, so find next alarm that will fire and notify system
+        commitStates(context, session, true /* updateNextAlarm */);
 
         // Setup instance notification and scheduling timers
-        AlarmNotifications.showSnoozeNotification(context, instance);
-        scheduleInstanceStateChange(context, instance.getAlarmTime(),
-                instance, AlarmInstance.FIRED_STATE);
+        for (AlarmInstance member : session) {
+            AlarmNotifications.showSnoozeNotification(context, member);
+            scheduleInstanceStateChange(context, member.getAlarmTime(),
+                    member, AlarmInstance.FIRED_STATE);
+        }
 
         // Display the snooze minutes in a toast.
         if (showToast) {
@@ -523,9 +638,6 @@ public final class AlarmStateManager extends BroadcastReceiver {
             };
             mainHandler.post(myRunnable);
         }
-
-        // Instance time changed, so find next alarm that will fire and notify system
-        updateNextAlarm(context);
     }
 
     public static int getSnoozedMinutes(Context context) {
@@ -539,31 +651,38 @@ public final class AlarmStateManager extends BroadcastReceiver {
      * the application notifications and schedule any state changes that need
      * to occur in the future.
      *
+     * If the instance is firing, every instance in its {@link FiringSession} is missed along
+     * with it so that the session does not resume ringing for the remaining members, e.g. after
+     * an incoming call or the auto-silence timeout.
+     *
      * @param context  application context
      * @param instance to set state to
      */
     public static void setMissedState(Context context, AlarmInstance instance) {
-        LogUtils.i("Setting missed state to instance " + instance.mId);
-        // Stop alarm if this instance is firing it
-        AlarmService.stopAlarm(context, instance);
-
-        // Check parent if it needs to reschedule, disable or delete itself
-        if (instance.mAlarmId != null) {
-            updateParentAlarm(context, instance);
+        final List<AlarmInstance> session =
+                FiringSession.getMembers(context.getContentResolver(), instance);
+        for (AlarmInstance member : session) {
+            LogUtils.i("Setting missed state to instance " + member.mId);
+            // Stop alarm if this instance is firing it
+            AlarmService.stopAlarm(context, member);
+
+            // Check parent if it needs to reschedule, disable or delete itself
+            if (member.mAlarmId != null) {
+                updateParentAlarm(context, member);
+            }
+            member.mAlarmState = AlarmInstance.MISSED_STATE;
         }
 
-        // Update alarm state
-        ContentResolver contentResolver = context.getContentResolver();
-        instance.mAlarmState = AlarmInstance.MISSED_STATE;
-        AlarmInstance.updateInstance(contentResolver, instance);
+        // Update alarm state. Instance is not valid anymore, so find next alarm that will fire
+        // and notify system
+        commitStates(context, session, true /* updateNextAlarm */);
 
         // Setup instance notification and scheduling timers
-        AlarmNotifications.showMissedNotification(context, instance);
-        scheduleInstanceStateChange(context, instance.getMissedTimeToLive(),
-                instance, AlarmInstance.DISMISSED_STATE);
-
-        // Instance is not valid anymore, so find next alarm that will fire and notify system
-        updateNextAlarm(context);
+        for (AlarmInstance member : session) {
+            AlarmNotifications.showMissedNotification(context, member);
+            scheduleInstanceStateChange(context, member.getMissedTimeToLive(),
+                    member, AlarmInstance.DISMISSED_STATE);
+        }
     }
 
     /**
@@ -576,10 +695,10 @@ public final class AlarmStateManager extends BroadcastReceiver {
     public static void setPreDismissState(Context context, AlarmInstance instance) {
         LogUtils.i("Setting predismissed state to instance " + instance.mId);
 
-        // Update alarm in db
-        final ContentResolver contentResolver = context.getContentResolver();
-        instance.mAlarmState = AlarmInstance.PREDISMISSED_STATE;
-        AlarmInstance.updateInstance(contentResolver, instance);
+        // Update alarm in db. Any repeating instance created for the parent below publishes the
+        // next alarm itself when it is registered.
+        commitState(context, instance, AlarmInstance.PREDISMISSED_STATE,
+                true /* updateNextAlarm */);
 
         // Setup instance notification and scheduling timers
         AlarmNotifications.clearNotification(context, instance);
@@ -590,8 +709,6 @@ public final class AlarmStateManager extends BroadcastReceiver {
         if (instance.mAlarmId != null) {
             updateParentAlarm(context, instance);
         }
-
-        updateNextAlarm(context);
     }
 
     /**
@@ -599,31 +716,40 @@ public final class AlarmStateManager extends BroadcastReceiver {
      */
     public static void setDismissState(Context context, AlarmInstance instance) {
         LogUtils.i("Setting dismissed state to instance " + instance.mId);
-        instance.mAlarmState = AlarmInstance.DISMISSED_STATE;
-        final ContentResolver contentResolver = context.getContentResolver();
-        AlarmInstance.updateInstance(contentResolver, instance);
+        commitState(context, instance, AlarmInstance.DISMISSED_STATE, false /* updateNextAlarm */);
     }
 
     /**
      * This will delete the alarm instance, update the application notifications, and schedule
      * any state changes that need to occur in the future.
      *
+     * If the instance is firing, every instance in its {@link FiringSession} is dismissed along
+     * with it and all of them are deleted in a single write.
+     *
      * @param context  application context
      * @param instance to set state to
      */
     public static void deleteInstanceAndUpdateParent(Context context, AlarmInstance instance) {
-        LogUtils.i("Deleting instance " + instance.mId + " and updating parent alarm.");
-
-        // Remove all other timers and notifications associated to it
-        unregisterInstance(context, instance);
-
-        // Check parent if it needs to reschedule, disable or delete itself
-        if (instance.mAlarmId != null) {
-            updateParentAlarm(context, instance);
+        final ContentResolver cr = context.getContentResolver();
+        final List<AlarmInstance> session = FiringSession.getMembers(cr, instance);
+        for (AlarmInstance member : session) {
+            LogUtils.i("Deleting instance " + member.mId + " and updating parent alarm.");
+
+            // Remove all other timers and notifications associated to it. The rows are deleted
+            // below, so there is no need to record the dismissed state first.
+            AlarmService.stopAlarm(context, member);
+            AlarmNotifications.clearNotification(context, member);
+            cancelScheduledInstanceStateChange(context, member);
+            member.mAlarmState = AlarmInstance.DISMISSED_STATE;
+
+            // Check parent if it needs to reschedule, disable or delete itself
+            if (member.mAlarmId != null) {
+                updateParentAlarm(context, member);
+            }
         }
 
-        // Delete instance as it is not needed anymore
-        AlarmInstance.deleteInstance(context.getContentResolver(), instance.mId);
+        // Delete instances as they are not needed anymore
+        AlarmInstance.deleteInstances(cr, session);
 
         // Instance is not valid anymore, so find next alarm that will fire and notify system
         updateNextAlarm(context);
@@ -785,14 +911,14 @@ public final class AlarmStateManager extends BroadcastReceiver {
      * is modified superficially (label, vibrate, or ringtone change).
      */
     public static void deleteNonSnoozeInstances(Context context, long alarmId) {
-        ContentResolver cr = context.getContentResolver();
-        List<AlarmInstance> instances = AlarmInstance.getInstancesByAlarmId(cr, alarmId);
-        for (AlarmInstance instance : instances) {
-            if (instance.mAlarmState == AlarmInstance.SNOOZE_STATE) {
-                continue;
-            }
+        final ContentResolver cr = context.getContentResolver();
+        final String nonSnoozeQuery = AlarmInstance.ALARM_ID + "=" + alarmId + " AND "
+                + AlarmInstance.ALARM_STATE + "!=" + AlarmInstance.SNOOZE_STATE;
+
+        // Snoozed instances are filtered in the query so they are never materialized.
+        for (AlarmInstance instance : AlarmInstance.getInstances(cr, nonSnoozeQuery)) {
             unregisterInstance(context, instance);
-            AlarmInstance.deleteInstance(context.getContentResolver(), instance.mId);
+            AlarmInstance.deleteInstance(cr, instance.mId);
         }
         updateNextAlarm(context);
     }
@@ -899,12 +1025,15 @@ public final class AlarmStateManager extends BroadcastReceiver {
             return;
         }
 
+        traceReceive(context, intent);
+
         final PendingResult result = goAsync();
         final PowerManager.WakeLock wl = AlarmAlertWakeLock.createPartialWakeLock(context);
         wl.acquire();
-        AsyncHandler.post(new Runnable() {
+        AsyncHandler.post(AsyncHandler.Lane.ALARM_CRITICAL, new Runnable() {
             @Override
             public void run() {
+                AlarmFireLatency.mark(context, AlarmFireLatency.Stage.DISPATCH);
                 handleIntent(context, intent);
                 result.finish();
                 wl.release();
@@ -912,6 +1041,21 @@ public final class AlarmStateManager extends BroadcastReceiver {
         });
     }
 
+    /**
+     * Starts tracing fire latency if {@code intent} is the scheduled change of an instance to the
+     * fired state.
+     */
+    static void traceReceive(Context context, Intent intent) {
+        if (!CHANGE_STATE_ACTION.equals(intent.getAction())
+                || intent.getIntExtra(ALARM_STATE_EXTRA, -1) != AlarmInstance.FIRED_STATE
+                || !intent.hasExtra(ALARM_SCHEDULED_TIME_EXTRA)) {
+            return;
+        }
+        AlarmFireLatency.begin(context, AlarmInstance.getId(intent.getData()),
+                intent.getLongExtra(ALARM_SCHEDULED_TIME_EXTRA, 0));
+        AlarmFireLatency.mark(context, AlarmFireLatency.Stage.RECEIVE);
+    }
+
     public static void handleIntent(Context context, Intent intent) {
         final String action = intent.getAction();
         LogUtils.v("AlarmStateManager received intent " + intent);
@@ -1019,6 +1163,7 @@ public final class AlarmStateManager extends BroadcastReceiver {
                     instance.mId, AlarmUtils.getFormattedTime(context, time), timeInMillis);
             final Intent stateChangeIntent =
                     createStateChangeIntent(context, ALARM_MANAGER_TAG, instance, newState);
+            stateChangeIntent.putExtra(ALARM_SCHEDULED_TIME_EXTRA, timeInMillis);
             // Treat alarm state change as high priority, use foreground broadcasts
             stateChangeIntent.addFlags(Intent.FLAG_RECEIVER_FOREGROUND);
             PendingIntent pendingIntent = PendingIntent.getService(context, instance.hashCode(),
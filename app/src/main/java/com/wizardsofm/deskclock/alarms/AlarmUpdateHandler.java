@@ -18,13 +18,15 @@ package com.wizardsofm.deskclock.alarms;
 
 import android.content.ContentResolver;
 import android.content.Context;
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.design.widget.Snackbar;
 import android.text.format.DateFormat;
 import android.view.View;
 import android.view.ViewGroup;
 
 import com.wizardsofm.deskclock.AlarmUtils;
+import com.wizardsofm.deskclock.AsyncHandler;
 import com.wizardsofm.deskclock.R;
 import com.wizardsofm.deskclock.events.Events;
 import com.wizardsofm.deskclock.provider.Alarm;
@@ -35,10 +37,13 @@ import java.util.Calendar;
 import java.util.List;
 
 /**
- * API for asynchronously mutating a single alarm.
+ * API for asynchronously mutating a single alarm. Edits run in order with all other alarm instance
+ * changes on the {@link AsyncHandler.Lane#ALARM_CRITICAL alarm-critical} lane and report back on
+ * the main thread.
  */
 public final class AlarmUpdateHandler {
 
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
     private final Context mAppContext;
     private final ScrollHandler mScrollHandler;
     private final View mSnackbarAnchor;
@@ -59,37 +64,26 @@ public final class AlarmUpdateHandler {
      * @param alarm The alarm to be added.
      */
     public void asyncAddAlarm(final Alarm alarm) {
-        final AsyncTask<Void, Void, AlarmInstance> updateTask =
-                new AsyncTask<Void, Void, AlarmInstance>() {
-                    @Override
-                    protected AlarmInstance doInBackground(Void... parameters) {
-                        if (alarm != null) {
-                            Events.sendAlarmEvent(R.string.action_create, R.string.label_deskclock);
-                            ContentResolver cr = mAppContext.getContentResolver();
-
-                            // Add alarm to db
-                            Alarm newAlarm = Alarm.addAlarm(cr, alarm);
+        AsyncHandler.post(AsyncHandler.Lane.ALARM_CRITICAL, new Runnable() {
+            @Override
+            public void run() {
+                if (alarm != null) {
+                    Events.sendAlarmEvent(R.string.action_create, R.string.label_deskclock);
+                    ContentResolver cr = mAppContext.getContentResolver();
 
-                            // Be ready to scroll to this alarm on UI later.
-                            mScrollHandler.setSmoothScrollStableId(newAlarm.id);
+                    // Add alarm to db
+                    Alarm newAlarm = Alarm.addAlarm(cr, alarm);
 
-                            // Create and add instance to db
-                            if (newAlarm.enabled) {
-                                return setupAlarmInstance(newAlarm);
-                            }
-                        }
-                        return null;
-                    }
+                    // Be ready to scroll to this alarm on UI later.
+                    mScrollHandler.setSmoothScrollStableId(newAlarm.id);
 
-                    @Override
-                    protected void onPostExecute(AlarmInstance instance) {
-                        if (instance != null) {
-                            AlarmUtils.popAlarmSetSnackbar(
-                                    mSnackbarAnchor, instance.getAlarmTime().getTimeInMillis());
-                        }
+                    // Create and add instance to db
+                    if (newAlarm.enabled) {
+                        popAlarmSetSnackbar(setupAlarmInstance(newAlarm));
                     }
-                };
-        updateTask.execute();
+                }
+            }
+        });
     }
 
     /**
@@ -101,52 +95,47 @@ public final class AlarmUpdateHandler {
      */
     public void asyncUpdateAlarm(final Alarm alarm, final boolean popToast,
             final boolean minorUpdate) {
-        final AsyncTask<Void, Void, AlarmInstance> updateTask =
-                new AsyncTask<Void, Void, AlarmInstance>() {
-                    @Override
-                    protected AlarmInstance doInBackground(Void... parameters) {
-                        Events.sendAlarmEvent(R.string.action_update, R.string.label_deskclock);
-                        ContentResolver cr = mAppContext.getContentResolver();
-
-                        // Update alarm
-                        Alarm.updateAlarm(cr, alarm);
-
-                        if (minorUpdate) {
-                            // just update the instance in the database and update notifications.
-                            final List<AlarmInstance> instanceList =
-                                    AlarmInstance.getInstancesByAlarmId(cr, alarm.id);
-                            for (AlarmInstance instance : instanceList) {
-                                // Make a copy of the existing instance
-                                final AlarmInstance newInstance = new AlarmInstance(instance);
-                                // Copy over minor change data to the instance; we don't know
-                                // exactly which minor field changed, so just copy them all.
-                                newInstance.mVibrate = alarm.vibrate;
-                                newInstance.mRingtone = alarm.alert;
-                                newInstance.mLabel = alarm.label;
-                                // Since we copied the mId of the old instance and the mId is used
-                                // as the primary key in the AlarmInstance table, this will replace
-                                // the existing instance.
-                                AlarmInstance.updateInstance(cr, newInstance);
-                                // Update the notification for this instance.
-                                AlarmNotifications.updateNotification(mAppContext, newInstance);
-                            }
-                            return null;
-                        }
-                        // Otherwise, this is a major update and we're going to re-create the alarm
-                        AlarmStateManager.deleteAllInstances(mAppContext, alarm.id);
-
-                        return alarm.enabled ? setupAlarmInstance(alarm) : null;
+        AsyncHandler.post(AsyncHandler.Lane.ALARM_CRITICAL, new Runnable() {
+            @Override
+            public void run() {
+                Events.sendAlarmEvent(R.string.action_update, R.string.label_deskclock);
+                ContentResolver cr = mAppContext.getContentResolver();
+
+                // Update alarm
+                Alarm.updateAlarm(cr, alarm);
+
+                if (minorUpdate) {
+                    // just update the instance in the database and update notifications.
+                    final List<AlarmInstance> instanceList =
+                            AlarmInstance.getInstancesByAlarmId(cr, alarm.id);
+                    for (AlarmInstance instance : instanceList) {
+                        // Make a copy of the existing instance
+                        final AlarmInstance newInstance = new AlarmInstance(instance);
+                        // Copy over minor change data to the instance; we don't know
+                        // exactly which minor field changed, so just copy them all.
+                        newInstance.mVibrate = alarm.vibrate;
+                        newInstance.mRingtone = alarm.alert;
+                        newInstance.mLabel = alarm.label;
+                        // Since we copied the mId of the old instance and the mId is used
+                        // as the primary key in the AlarmInstance table, this will replace
+                        // the existing instance.
+                        AlarmInstance.updateInstance(cr, newInstance);
+                        // Update the notification for this instance.
+                        AlarmNotifications.updateNotification(mAppContext, newInstance);
                     }
+                    return;
+                }
+                // Otherwise, this is a major update and we're going to re-create the alarm
+                AlarmStateManager.deleteAllInstances(mAppContext, alarm.id);
 
-                    @Override
-                    protected void onPostExecute(AlarmInstance instance) {
-                        if (popToast && instance != null) {
-                            AlarmUtils.popAlarmSetSnackbar(
-                                    mSnackbarAnchor, instance.getAlarmTime().getTimeInMillis());
-                        }
+                if (alarm.enabled) {
+                    final AlarmInstance instance = setupAlarmInstance(alarm);
+                    if (popToast) {
+                        popAlarmSetSnackbar(instance);
                     }
-                };
-        updateTask.execute();
+                }
+            }
+        });
     }
 
     /**
@@ -155,28 +144,27 @@ public final class AlarmUpdateHandler {
      * @param alarm The alarm to be deleted.
      */
     public void asyncDeleteAlarm(final Alarm alarm) {
-        final AsyncTask<Void, Void, Boolean> deleteTask = new AsyncTask<Void, Void, Boolean>() {
+        AsyncHandler.post(AsyncHandler.Lane.ALARM_CRITICAL, new Runnable() {
             @Override
-            protected Boolean doInBackground(Void... parameters) {
+            public void run() {
                 // Activity may be closed at this point , make sure data is still valid
                 if (alarm == null) {
                     // Nothing to do here, just return.
-                    return false;
+                    return;
                 }
                 Events.sendAlarmEvent(R.string.action_delete, R.string.label_deskclock);
                 AlarmStateManager.deleteAllInstances(mAppContext, alarm.id);
-                return Alarm.deleteAlarm(mAppContext.getContentResolver(), alarm.id);
-            }
-
-            @Override
-            protected void onPostExecute(Boolean deleted) {
-                if (deleted) {
-                    mDeletedAlarm = alarm;
-                    showUndoBar();
+                if (Alarm.deleteAlarm(mAppContext.getContentResolver(), alarm.id)) {
+                    mMainHandler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            mDeletedAlarm = alarm;
+                            showUndoBar();
+                        }
+                    });
                 }
             }
-        };
-        deleteTask.execute();
+        });
     }
 
     /**
@@ -213,6 +201,19 @@ public final class AlarmUpdateHandler {
         SnackbarManager.show(snackbar);
     }
 
+    /**
+     * Shows the time until {@code instance} fires once back on the main thread.
+     */
+    private void popAlarmSetSnackbar(final AlarmInstance instance) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                AlarmUtils.popAlarmSetSnackbar(
+                        mSnackbarAnchor, instance.getAlarmTime().getTimeInMillis());
+            }
+        });
+    }
+
     private AlarmInstance setupAlarmInstance(Alarm alarm) {
         final ContentResolver cr = mAppContext.getContentResolver();
         AlarmInstance newInstance = alarm.createInstanceAfter(Calendar.getInstance());
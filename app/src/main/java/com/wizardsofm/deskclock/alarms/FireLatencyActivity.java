@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.alarms;
+
+import android.app.Activity;
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+/**
+ * Debug screen listing the p50/p99 latency of each alarm firing stage recorded by
+ * {@link AlarmFireLatency}. It requires the DUMP permission, which only the shell holds; launch
+ * it with
+ * {@code adb shell am start -n <package>/com.wizardsofm.deskclock.alarms.FireLatencyActivity}.
+ */
+public class FireLatencyActivity extends Activity {
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        final StringWriter dump = new StringWriter();
+        AlarmFireLatency.dump(this, new PrintWriter(dump));
+
+        final TextView text = new TextView(this);
+        text.setTypeface(Typeface.MONOSPACE);
+        text.setText(dump.toString());
+
+        final int padding = getResources().getDimensionPixelSize(
+                com.wizardsofm.deskclock.R.dimen.alarm_horizontal_padding);
+        text.setPadding(padding, padding, padding, padding);
+
+        final ScrollView scrollView = new ScrollView(this);
+        scrollView.addView(text);
+        setContentView(scrollView);
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.alarms;
+
+import android.content.ContentResolver;
+
+import com.wizardsofm.deskclock.provider.AlarmInstance;
+import com.wizardsofm.deskclock.provider.AlarmInstanceSchedule;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A firing session is the group of alarm instances that are due in the same minute and ring
+ * together. Users commonly stack several backup alarms on the same minute; rather than each new
+ * instance marking the previous one missed and restarting the klaxon, the instances join one
+ * session that shares a single klaxon and notification and is snoozed or dismissed as a group.
+ *
+ * Session membership is derived from the instances table: all instances in
+ * {@link AlarmInstance#FIRED_STATE} that are scheduled for the same minute.
+ */
+final class FiringSession {
+
+    private FiringSession() {}
+
+    /**
+     * @return {@code true} if {@code a} and {@code b} are scheduled for the same minute
+     */
+    static boolean isSameSession(AlarmInstance a, AlarmInstance b) {
+        return AlarmInstanceSchedule.getTimeKey(a) == AlarmInstanceSchedule.getTimeKey(b);
+    }
+
+    /**
+     * @param cr to perform the query on
+     * @param instance a member of the session of interest
+     * @return all firing instances in the same session as {@code instance}; {@code instance}
+     *      itself is always the first element so callers operate on the object they hold
+     */
+    static List<AlarmInstance> getMembers(ContentResolver cr, AlarmInstance instance) {
+        final List<AlarmInstance> members = new ArrayList<>();
+        members.add(instance);
+        if (instance.mAlarmState != AlarmInstance.FIRED_STATE) {
+            return members;
+        }
+
+        for (AlarmInstance other : AlarmInstance.getInstancesByState(cr,
+                AlarmInstance.FIRED_STATE)) {
+            if (other.mId != instance.mId && isSameSession(instance, other)) {
+                members.add(other);
+            }
+        }
+        return members;
+    }
+}
@@ -23,18 +23,22 @@ import com.wizardsofm.deskclock.alarms.AlarmTimeClickHandler;
 import com.wizardsofm.deskclock.provider.Alarm;
 import com.wizardsofm.deskclock.provider.AlarmInstance;
 
+import java.util.Calendar;
+
 public class AlarmItemHolder extends ItemAdapter.ItemHolder<Alarm> {
 
     private static final java.lang.String EXPANDED_KEY = "expanded";
     private final AlarmInstance mAlarmInstance;
     private final AlarmTimeClickHandler mAlarmTimeClickHandler;
     private boolean mExpanded;
+    private boolean mTomorrow;
 
     public AlarmItemHolder(Alarm alarm, AlarmInstance alarmInstance,
                            AlarmTimeClickHandler alarmTimeClickHandler) {
         super(alarm, alarm.id);
         mAlarmInstance = alarmInstance;
         mAlarmTimeClickHandler = alarmTimeClickHandler;
+        mTomorrow = Alarm.isTomorrow(alarm, Calendar.getInstance());
     }
 
     @Override
@@ -51,6 +55,24 @@ public class AlarmItemHolder extends ItemAdapter.ItemHolder<Alarm> {
         return mAlarmInstance;
     }
 
+    /**
+     * Recomputes whether this non-repeating alarm next fires tomorrow rather than today.
+     *
+     * @param now the current time
+     * @return {@code true} if the "Today"/"Tomorrow" label shown for this alarm has changed
+     */
+    public boolean updateTomorrow(Calendar now) {
+        if (item.daysOfWeek.isRepeating()) {
+            return false;
+        }
+        final boolean tomorrow = Alarm.isTomorrow(item, now);
+        if (tomorrow == mTomorrow) {
+            return false;
+        }
+        mTomorrow = tomorrow;
+        return true;
+    }
+
     public void expand() {
         if (!isExpanded()) {
             mExpanded = true;
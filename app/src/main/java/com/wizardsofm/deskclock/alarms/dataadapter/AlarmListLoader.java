@@ -0,0 +1,340 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.wizardsofm.deskclock.alarms.dataadapter;
+
+import android.content.AsyncTaskLoader;
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+
+import com.wizardsofm.deskclock.ItemDiff;
+import com.wizardsofm.deskclock.provider.Alarm;
+import com.wizardsofm.deskclock.provider.AlarmInstance;
+import com.wizardsofm.deskclock.provider.ClockContract;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Loads the alarm list in two parts: a compact index read from a handful of integer columns of
+ * every alarm, and fully built alarms and instances for only the window of positions the user is
+ * looking at. Alarms outside the window are fetched page by page with {@link #loadPage} as the
+ * list scrolls. Each load still reads one index row per alarm, but the objects built and the
+ * columns read for alarms off screen no longer grow with the length of the list.
+ *
+ * Still on the background thread, each index is diffed against the previously delivered one by
+ * alarm id and {@link Alarm#getChangeMarker change marker}. The alarm list can then reuse the
+ * item holders of unchanged alarms and dispatch fine-grained notifications rather than
+ * rebuilding every row on each change.
+ */
+public final class AlarmListLoader extends AsyncTaskLoader<AlarmListLoader.AlarmList> {
+
+    /** The number of alarms fully built by a load when no window has been set. */
+    private static final int DEFAULT_WINDOW_SIZE = 2 * AlarmListPager.PAGE_SIZE;
+
+    private final ForceLoadContentObserver mObserver = new ForceLoadContentObserver();
+
+    /** The list most recently delivered; read by the background thread to compute diffs. */
+    private volatile AlarmList mAlarmList;
+
+    /** The first position of the window of alarms to fully build. */
+    private volatile int mWindowStart;
+
+    /** The number of alarms in the window to fully build. */
+    private volatile int mWindowSize = DEFAULT_WINDOW_SIZE;
+
+    private boolean mObserving;
+
+    public AlarmListLoader(Context context) {
+        super(context);
+    }
+
+    /**
+     * Sets the positions whose alarms are fully built by subsequent loads; typically those on
+     * screen and the pages prefetched around them.
+     */
+    public void setWindow(int windowStart, int windowSize) {
+        mWindowStart = windowStart;
+        mWindowSize = windowSize;
+    }
+
+    @Override
+    public AlarmList loadInBackground() {
+        final ContentResolver cr = getContext().getContentResolver();
+        final AlarmList alarmList;
+        try (Cursor cursor = Alarm.getAlarmIndexCursor(cr)) {
+            final int count = cursor == null ? 0 : cursor.getCount();
+            alarmList = new AlarmList(count, mAlarmList);
+            for (int position = 0; position < count && cursor.moveToNext(); position++) {
+                alarmList.setIndex(position, cursor);
+            }
+        }
+
+        // Alarms changed since the index was read end the window early; they are paged in later.
+        final int windowSize = mWindowSize;
+        final int windowStart = Math.max(0, Math.min(mWindowStart, alarmList.size() - windowSize));
+        alarmList.mWindow = loadPage(cr, alarmList, windowStart, windowSize);
+        alarmList.computeDiff();
+        return alarmList;
+    }
+
+    @Override
+    public void deliverResult(AlarmList alarmList) {
+        if (isReset()) {
+            return;
+        }
+
+        mAlarmList = alarmList;
+        if (isStarted()) {
+            super.deliverResult(alarmList);
+        }
+    }
+
+    @Override
+    protected void onStartLoading() {
+        if (!mObserving) {
+            getContext().getContentResolver().registerContentObserver(
+                    ClockContract.AlarmsColumns.ALARMS_WITH_INSTANCES_URI, false, mObserver);
+            mObserving = true;
+        }
+
+        if (mAlarmList != null) {
+            deliverResult(mAlarmList);
+        }
+        if (takeContentChanged() || mAlarmList == null) {
+            forceLoad();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+        if (mObserving) {
+            getContext().getContentResolver().unregisterContentObserver(mObserver);
+            mObserving = false;
+        }
+        mAlarmList = null;
+    }
+
+    /**
+     * Fully builds a page of the alarms in {@code alarmList}. Must be called on a background
+     * thread.
+     *
+     * @param cr to perform the query on
+     * @param alarmList the list the page belongs to
+     * @param pageStart the position of the first alarm in the page
+     * @param pageSize the number of alarms in the page
+     * @return the leading alarms of the page that still match {@code alarmList}; fewer than
+     *      {@code pageSize} if the alarms changed since the list was loaded
+     */
+    static Page loadPage(ContentResolver cr, AlarmList alarmList, int pageStart, int pageSize) {
+        final Page page = new Page(pageStart, pageSize);
+        final Cursor cursor;
+        if (pageStart == 0) {
+            cursor = Alarm.getAlarmsWithInstancesCursor(cr, -1, 0, 0, pageSize);
+        } else {
+            final int previous = pageStart - 1;
+            cursor = Alarm.getAlarmsWithInstancesCursor(cr, alarmList.getHour(previous),
+                    alarmList.getMinutes(previous), alarmList.getId(previous), pageSize);
+        }
+        if (cursor == null) {
+            return page;
+        }
+
+        try {
+            for (int position = pageStart; cursor.moveToNext(); position++) {
+                if (position >= alarmList.size()
+                        || cursor.getLong(Alarm.ID_INDEX) != alarmList.getId(position)) {
+                    break;
+                }
+                page.add(cursor);
+            }
+        } finally {
+            cursor.close();
+        }
+        return page;
+    }
+
+    /**
+     * Adds an alarm and, if it may be dismissed early, its upcoming instance read from the
+     * current row of {@code cursor} to the given lists.
+     */
+    private static void addAlarm(Cursor cursor, List<Alarm> alarms,
+            List<AlarmInstance> instances) {
+        final Alarm alarm = new Alarm(cursor);
+        alarms.add(alarm);
+        instances.add(alarm.canPreemptivelyDismiss()
+                ? new AlarmInstance(cursor, true /* joinedTable */) : null);
+    }
+
+    /**
+     * The ordered index of all alarms, the fully built alarms of one window of positions, and
+     * the changes relative to the list delivered before it.
+     */
+    public static final class AlarmList {
+
+        /** Source of {@link #mVersion}; only ever advanced on the loader thread. */
+        private static int sNextVersion;
+
+        private final int mVersion;
+        private final long[] mIds;
+        private final int[] mTimes;
+        private final int[] mChangeMarkers;
+
+        /** The fully built alarms of the window; set once the index is complete. */
+        private Page mWindow;
+
+        /** The list this one was diffed against; released once the diff is computed. */
+        private AlarmList mBase;
+        private int mBaseVersion;
+        private ItemDiff mDiff;
+
+        private AlarmList(int count, AlarmList base) {
+            mVersion = ++sNextVersion;
+            mIds = new long[count];
+            mTimes = new int[count];
+            mChangeMarkers = new int[count];
+            mBase = base;
+        }
+
+        private void setIndex(int position, Cursor cursor) {
+            mIds[position] = cursor.getLong(Alarm.ID_INDEX);
+            mTimes[position] = cursor.getInt(Alarm.HOUR_INDEX) * 60
+                    + cursor.getInt(Alarm.MINUTES_INDEX);
+            mChangeMarkers[position] = Alarm.getChangeMarker(cursor);
+        }
+
+        private void computeDiff() {
+            if (mBase != null) {
+                mBaseVersion = mBase.mVersion;
+                mDiff = ItemDiff.compute(mBase.mIds, mBase.mChangeMarkers, mIds,
+                        mChangeMarkers);
+                mBase = null;
+            }
+        }
+
+        /**
+         * @return a value identifying this list; later lists have larger versions
+         */
+        public int getVersion() {
+            return mVersion;
+        }
+
+        /**
+         * @return the version of the list {@link #getDiff()} is relative to, or 0 if none
+         */
+        public int getBaseVersion() {
+            return mBaseVersion;
+        }
+
+        /**
+         * @return the changes from the list with version {@link #getBaseVersion()} to this one,
+         *      or {@code null} if this is the first list loaded
+         */
+        public ItemDiff getDiff() {
+            return mDiff;
+        }
+
+        public int size() {
+            return mIds.length;
+        }
+
+        public long getId(int position) {
+            return mIds[position];
+        }
+
+        public int getHour(int position) {
+            return mTimes[position] / 60;
+        }
+
+        public int getMinutes(int position) {
+            return mTimes[position] % 60;
+        }
+
+        /**
+         * @return the position of the alarm with the given id, or -1 if it is not in this list
+         */
+        public int indexOf(long alarmId) {
+            for (int i = 0; i < mIds.length; i++) {
+                if (mIds[i] == alarmId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * @return the alarm at {@code position}, or {@code null} if it lies outside the window
+         *      loaded with this list and must be fetched with {@link #loadPage}
+         */
+        public Alarm getAlarm(int position) {
+            final int index = position - mWindow.getStart();
+            return index >= 0 && index < mWindow.size() ? mWindow.getAlarm(index) : null;
+        }
+
+        /**
+         * @return the upcoming instance of the alarm at {@code position} if it may be dismissed
+         *      early and lies inside the window loaded with this list, else null
+         */
+        public AlarmInstance getAlarmInstance(int position) {
+            final int index = position - mWindow.getStart();
+            return index >= 0 && index < mWindow.size() ? mWindow.getAlarmInstance(index) : null;
+        }
+    }
+
+    /**
+     * A run of fully built alarms fetched for consecutive positions of an {@link AlarmList}.
+     */
+    static final class Page {
+
+        private final int mStart;
+        private final List<Alarm> mAlarms;
+        private final List<AlarmInstance> mInstances;
+
+        private Page(int start, int capacity) {
+            mStart = start;
+            mAlarms = new ArrayList<>(capacity);
+            mInstances = new ArrayList<>(capacity);
+        }
+
+        private void add(Cursor cursor) {
+            addAlarm(cursor, mAlarms, mInstances);
+        }
+
+        int getStart() {
+            return mStart;
+        }
+
+        int size() {
+            return mAlarms.size();
+        }
+
+        Alarm getAlarm(int index) {
+            return mAlarms.get(index);
+        }
+
+        AlarmInstance getAlarmInstance(int index) {
+            return mInstances.get(index);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.wizardsofm.deskclock.alarms.dataadapter;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.SparseBooleanArray;
+import android.view.LayoutInflater;
+import android.view.ViewGroup;
+
+import com.wizardsofm.deskclock.AsyncHandler;
+import com.wizardsofm.deskclock.ItemAdapter;
+import com.wizardsofm.deskclock.alarms.AlarmTimeClickHandler;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps only the pages of the alarm list near the scroll position fully loaded. Positions whose
+ * page is not loaded are shown as placeholders; pages are fetched on the
+ * {@link AsyncHandler.Lane#USER_INTERACTIVE user-interactive} lane as they come within
+ * {@link #PREFETCH_PAGES} of the visible range and turned back into placeholders once they are
+ * more than {@link #RETAINED_PAGES} beyond it.
+ */
+public final class AlarmListPager implements ItemAdapter.PlaceholderProvider {
+
+    /** The view type of the rows shown for alarms that are not loaded yet. */
+    public static final int PLACEHOLDER_VIEW_TYPE =
+            com.wizardsofm.deskclock.R.layout.alarm_placeholder;
+
+    /** The number of alarms fetched by each query. */
+    static final int PAGE_SIZE = 50;
+
+    /** The number of pages fetched ahead of and behind the visible range. */
+    private static final int PREFETCH_PAGES = 1;
+
+    /** The number of pages kept beyond the prefetched range before they are evicted. */
+    private static final int RETAINED_PAGES = 2;
+
+    /**
+     * Callback interface for when fetched alarms replace placeholders.
+     */
+    public interface OnPageLoadedListener {
+        /**
+         * Invoked after the item holders of a page are added to the adapter.
+         */
+        void onPageLoaded();
+    }
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ContentResolver mContentResolver;
+    private final AlarmListLoader mLoader;
+    private final ItemAdapter<AlarmItemHolder> mItemAdapter;
+    private final AlarmTimeClickHandler mAlarmTimeClickHandler;
+    private final OnPageLoadedListener mOnPageLoadedListener;
+
+    /** Pages of {@link #mAlarmList} being fetched. */
+    private final SparseBooleanArray mFetchingPages = new SparseBooleanArray();
+
+    /** Pages of {@link #mAlarmList} with at least one item holder in the adapter. */
+    private final SparseBooleanArray mLoadedPages = new SparseBooleanArray();
+
+    /** The alarm list whose alarms are represented by the adapter. */
+    private AlarmListLoader.AlarmList mAlarmList;
+
+    /** The first and last page of the visible range. */
+    private int mFirstVisiblePage;
+    private int mLastVisiblePage;
+
+    public AlarmListPager(Context context, AlarmListLoader loader,
+            ItemAdapter<AlarmItemHolder> itemAdapter, AlarmTimeClickHandler alarmTimeClickHandler,
+            OnPageLoadedListener onPageLoadedListener) {
+        mContentResolver = context.getContentResolver();
+        mLoader = loader;
+        mItemAdapter = itemAdapter;
+        mAlarmTimeClickHandler = alarmTimeClickHandler;
+        mOnPageLoadedListener = onPageLoadedListener;
+    }
+
+    /**
+     * Sets the alarm list whose alarms are about to be represented by the adapter. Fetches in
+     * flight for the previous list are ignored when they complete.
+     */
+    public void setAlarmList(AlarmListLoader.AlarmList alarmList) {
+        mAlarmList = alarmList;
+        mFetchingPages.clear();
+    }
+
+    /**
+     * Fetches and evicts pages as needed after the adapter items are set for a new alarm list.
+     */
+    public void onItemsChanged() {
+        mLoadedPages.clear();
+        final List<AlarmItemHolder> items = mItemAdapter.getItems();
+        if (items != null) {
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i) != null) {
+                    mLoadedPages.put(i / PAGE_SIZE, true);
+                }
+            }
+        }
+        updatePages();
+    }
+
+    /**
+     * Fetches and evicts pages as needed when the positions shown on screen change.
+     *
+     * @param firstPosition the first visible adapter position
+     * @param lastPosition the last visible adapter position
+     */
+    public void onVisibleRangeChanged(int firstPosition, int lastPosition) {
+        final int firstPage = Math.max(0, firstPosition) / PAGE_SIZE;
+        final int lastPage = Math.max(firstPosition, lastPosition) / PAGE_SIZE;
+        if (firstPage == mFirstVisiblePage && lastPage == mLastVisiblePage) {
+            return;
+        }
+
+        mFirstVisiblePage = firstPage;
+        mLastVisiblePage = lastPage;
+
+        // Have the next reload fully build the alarms around the new scroll position.
+        final int windowStartPage = Math.max(0, firstPage - PREFETCH_PAGES);
+        final int windowEndPage = lastPage + PREFETCH_PAGES + 1;
+        mLoader.setWindow(windowStartPage * PAGE_SIZE,
+                (windowEndPage - windowStartPage) * PAGE_SIZE);
+
+        updatePages();
+    }
+
+    @Override
+    public long getPlaceholderId(int position) {
+        return mAlarmList.getId(position);
+    }
+
+    private void updatePages() {
+        final List<AlarmItemHolder> items = mItemAdapter.getItems();
+        if (mAlarmList == null || items == null || items.size() != mAlarmList.size()) {
+            return;
+        }
+
+        final int pageCount = (items.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+        final int firstPage = Math.max(0, mFirstVisiblePage - PREFETCH_PAGES);
+        final int lastPage = Math.min(pageCount - 1, mLastVisiblePage + PREFETCH_PAGES);
+
+        // Fetch the pages in and near the visible range that contain placeholders.
+        for (int page = firstPage; page <= lastPage; page++) {
+            if (!mFetchingPages.get(page) && hasPlaceholders(items, page)) {
+                fetchPage(page);
+            }
+        }
+
+        // Evict the pages far from the visible range.
+        for (int i = mLoadedPages.size() - 1; i >= 0; i--) {
+            final int page = mLoadedPages.keyAt(i);
+            if (page < firstPage - RETAINED_PAGES || page > lastPage + RETAINED_PAGES) {
+                evictPage(items, page);
+            }
+        }
+    }
+
+    private void fetchPage(final int page) {
+        final AlarmListLoader.AlarmList alarmList = mAlarmList;
+        final int pageStart = page * PAGE_SIZE;
+        final int pageSize = Math.min(PAGE_SIZE, alarmList.size() - pageStart);
+        // A page that cannot be queued now is fetched again on a later scroll.
+        final boolean queued = AsyncHandler.offer(AsyncHandler.Lane.USER_INTERACTIVE,
+                new Runnable() {
+            @Override
+            public void run() {
+                final AlarmListLoader.Page result = AlarmListLoader.loadPage(mContentResolver,
+                        alarmList, pageStart, pageSize);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (alarmList == mAlarmList) {
+                            mFetchingPages.delete(page);
+                            onPageFetched(result);
+                        }
+                    }
+                });
+            }
+        });
+        if (queued) {
+            mFetchingPages.put(page, true);
+        }
+    }
+
+    private void onPageFetched(AlarmListLoader.Page page) {
+        final List<AlarmItemHolder> items = mItemAdapter.getItems();
+        if (items == null || page.size() == 0) {
+            // The alarms changed since the list was loaded; the reload will replace the list.
+            return;
+        }
+
+        final List<AlarmItemHolder> replacements = new ArrayList<>(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            final AlarmItemHolder itemHolder = items.get(page.getStart() + i);
+            replacements.add(itemHolder != null ? itemHolder : new AlarmItemHolder(
+                    page.getAlarm(i), page.getAlarmInstance(i), mAlarmTimeClickHandler));
+        }
+        mItemAdapter.replaceItems(page.getStart(), replacements);
+        mLoadedPages.put(page.getStart() / PAGE_SIZE, true);
+
+        mOnPageLoadedListener.onPageLoaded();
+    }
+
+    private void evictPage(List<AlarmItemHolder> items, int page) {
+        final int pageStart = page * PAGE_SIZE;
+        final int pageEnd = Math.min(items.size(), pageStart + PAGE_SIZE);
+        final List<AlarmItemHolder> replacements = new ArrayList<>(pageEnd - pageStart);
+        boolean retained = false;
+        for (int i = pageStart; i < pageEnd; i++) {
+            // Keep the expanded alarm so its state survives being scrolled far away.
+            final AlarmItemHolder itemHolder = items.get(i);
+            final boolean expanded = itemHolder != null && itemHolder.isExpanded();
+            replacements.add(expanded ? itemHolder : null);
+            retained |= expanded;
+        }
+        mItemAdapter.replaceItems(pageStart, replacements);
+        if (!retained) {
+            mLoadedPages.delete(page);
+        }
+    }
+
+    /**
+     * Creates the view holders of placeholder rows.
+     */
+    public static class PlaceholderFactory implements ItemAdapter.ItemViewHolder.Factory {
+
+        private final LayoutInflater mLayoutInflater;
+
+        public PlaceholderFactory(LayoutInflater layoutInflater) {
+            mLayoutInflater = layoutInflater;
+        }
+
+        @Override
+        public ItemAdapter.ItemViewHolder<?> createViewHolder(ViewGroup parent, int viewType) {
+            return new ItemAdapter.ItemViewHolder<>(
+                    mLayoutInflater.inflate(viewType, parent, false /* attachToRoot */));
+        }
+    }
+
+    private static boolean hasPlaceholders(List<AlarmItemHolder> items, int page) {
+        final int pageEnd = Math.min(items.size(), (page + 1) * PAGE_SIZE);
+        for (int i = page * PAGE_SIZE; i < pageEnd; i++) {
+            if (items.get(i) == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
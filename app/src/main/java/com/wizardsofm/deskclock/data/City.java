@@ -16,8 +16,12 @@
 
 package com.wizardsofm.deskclock.data;
 
+import android.text.format.DateUtils;
+
+import java.text.CollationKey;
 import java.text.Collator;
 import java.util.Comparator;
+import java.util.Locale;
 import java.util.TimeZone;
 
 /**
@@ -26,6 +30,10 @@ import java.util.TimeZone;
  */
 public final class City {
 
+    /** Produces the collation keys cached by cities; recreated when the default locale changes. */
+    private static Collator sCollator;
+    private static Locale sCollatorLocale;
+
     /** A unique identifier for the city. */
     private final String mId;
 
@@ -41,17 +49,23 @@ public final class City {
     /** The phonetic name of the city used to order cities for display. */
     private final String mPhoneticName;
 
-    /** The TimeZone corresponding to the city. */
-    private final TimeZone mTimeZone;
+    /** The id of the TimeZone corresponding to the city. */
+    private final String mTimeZoneId;
+
+    /**
+     * The TimeZone corresponding to the city; resolved from {@link #mTimeZoneId} on first use,
+     * which may happen while the search index is built in the background.
+     */
+    private volatile TimeZone mTimeZone;
 
     /** A cached upper case form of the {@link #mName} used in case-insensitive name comparisons. */
     private String mNameUpperCase;
 
-    /**
-     * A cached upper case form of the {@link #mName} used in case-insensitive name comparisons
-     * which ignore {@link #removeSpecialCharacters(String)} special characters.
-     */
-    private String mNameUpperCaseNoSpecialCharacters;
+    /** Cached collation keys of {@link #mIndexString} and {@link #mPhoneticName}. */
+    private CollationKey mIndexStringKey, mPhoneticNameKey;
+
+    /** The UTC offset of {@link #getTimeZone()} during the minute it was last computed for. */
+    private volatile UtcOffset mUtcOffset;
 
     City(String id, int index, String indexString, String name, String phoneticName, TimeZone tz) {
         mId = id;
@@ -59,51 +73,107 @@ public final class City {
         mIndexString = indexString;
         mName = name;
         mPhoneticName = phoneticName;
+        mTimeZoneId = tz.getID();
         mTimeZone = tz;
     }
 
+    /**
+     * Creates a city whose time zone is resolved only if it is used.
+     */
+    City(String id, int index, String indexString, String name, String phoneticName,
+            String timeZoneId) {
+        mId = id;
+        mIndex = index;
+        mIndexString = indexString;
+        mName = name;
+        mPhoneticName = phoneticName;
+        mTimeZoneId = timeZoneId;
+    }
+
     public String getId() { return mId; }
     public int getIndex() { return mIndex; }
     public String getName() { return mName; }
-    public TimeZone getTimeZone() { return mTimeZone; }
     public String getIndexString() { return mIndexString; }
     public String getPhoneticName() { return mPhoneticName; }
+    String getTimeZoneId() { return mTimeZoneId; }
 
     /**
-     * @return the city name converted to upper case
+     * @return the TimeZone corresponding to the city
      */
-    public String getNameUpperCase() {
-        if (mNameUpperCase == null) {
-            mNameUpperCase = mName.toUpperCase();
+    public TimeZone getTimeZone() {
+        if (mTimeZone == null) {
+            mTimeZone = TimeZone.getTimeZone(mTimeZoneId);
         }
-        return mNameUpperCase;
+        return mTimeZone;
+    }
+
+    /**
+     * Time zone offsets only change on minute boundaries in practice, so the offset is computed
+     * once per minute and then served from a cache. This keeps sorting by offset from querying
+     * the time zone on every comparison.
+     *
+     * @param time a point in time in ms since the epoch
+     * @return the offset from UTC of this city's time zone at {@code time}, in ms
+     */
+    int getUtcOffset(long time) {
+        final long minute = time / DateUtils.MINUTE_IN_MILLIS;
+        UtcOffset utcOffset = mUtcOffset;
+        if (utcOffset == null || utcOffset.mMinute != minute) {
+            utcOffset = new UtcOffset(minute, getTimeZone().getOffset(time));
+            mUtcOffset = utcOffset;
+        }
+        return utcOffset.mOffset;
     }
 
     /**
-     * @return the city name converted to upper case with all special characters removed
+     * @return the collation key of the index string in the default locale
      */
-    private String getNameUpperCaseNoSpecialCharacters() {
-        if (mNameUpperCaseNoSpecialCharacters == null) {
-            mNameUpperCaseNoSpecialCharacters = removeSpecialCharacters(getNameUpperCase());
+    CollationKey getIndexStringKey() {
+        if (mIndexStringKey == null) {
+            mIndexStringKey = getCollationKey(mIndexString);
         }
-        return mNameUpperCaseNoSpecialCharacters;
+        return mIndexStringKey;
     }
 
     /**
-     * @param upperCaseQueryNoSpecialCharacters search term with all special characters removed
-     *      to match against the upper case city name
-     * @return {@code true} iff the name of this city starts with the given query
+     * @return the collation key of the phonetic name in the default locale
      */
-    public boolean matches(String upperCaseQueryNoSpecialCharacters) {
-        // By removing all special characters, prefix matching becomes more liberal and it is easier
-        // to locate the desired city. e.g. "St. Lucia" is matched by "StL", "St.L", "St L", "St. L"
-        return getNameUpperCaseNoSpecialCharacters().startsWith(upperCaseQueryNoSpecialCharacters);
+    CollationKey getPhoneticNameKey() {
+        if (mPhoneticNameKey == null) {
+            mPhoneticNameKey = getCollationKey(mPhoneticName);
+        }
+        return mPhoneticNameKey;
+    }
+
+    /**
+     * @return the city name converted to upper case
+     */
+    public String getNameUpperCase() {
+        if (mNameUpperCase == null) {
+            mNameUpperCase = mName.toUpperCase();
+        }
+        return mNameUpperCase;
     }
 
     @Override
     public String toString() {
         return String.format("City {id=%s, index=%d, indexString=%s, name=%s, phonetic=%s, tz=%s}",
-                mId, mIndex, mIndexString, mName, mPhoneticName, mTimeZone.getID());
+                mId, mIndex, mIndexString, mName, mPhoneticName, mTimeZoneId);
+    }
+
+    /**
+     * Collation keys are only comparable if produced by collators of the same locale. Cities are
+     * recreated when the locale changes, so every key a city caches comes from the same collator.
+     *
+     * @return the collation key of {@code source} in the default locale
+     */
+    private static synchronized CollationKey getCollationKey(String source) {
+        final Locale locale = Locale.getDefault();
+        if (sCollator == null || !locale.equals(sCollatorLocale)) {
+            sCollator = Collator.getInstance(locale);
+            sCollatorLocale = locale;
+        }
+        return sCollator.getCollationKey(source);
     }
 
     /**
@@ -114,7 +184,32 @@ public final class City {
      * @return the given {@code token} without any characters considered optional when matching
      */
     public static String removeSpecialCharacters(String token) {
-        return token.replaceAll("[ -.']", "");
+        // Avoid building a new string in the common case of a token without special characters.
+        int i = 0;
+        while (i < token.length() && !isSpecialCharacter(token.charAt(i))) {
+            i++;
+        }
+        if (i == token.length()) {
+            return token;
+        }
+
+        final StringBuilder builder = new StringBuilder(token.length());
+        builder.append(token, 0, i);
+        for (; i < token.length(); i++) {
+            final char c = token.charAt(i);
+            if (!isSpecialCharacter(c)) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return {@code true} iff {@code c} is optional for matching purposes: any character from
+     *      space through period, which includes dashes, commas, parentheses and apostrophes
+     */
+    static boolean isSpecialCharacter(char c) {
+        return c >= ' ' && c <= '.';
     }
 
     /**
@@ -157,9 +252,7 @@ public final class City {
         private final long now = System.currentTimeMillis();
 
         public int compare(City c1, City c2) {
-            final int utcOffset1 = c1.getTimeZone().getOffset(now);
-            final int utcOffset2 = c2.getTimeZone().getOffset(now);
-            return Integer.compare(utcOffset1, utcOffset2);
+            return Integer.compare(c1.getUtcOffset(now), c2.getUtcOffset(now));
         }
     }
 
@@ -176,15 +269,13 @@ public final class City {
 
         private final Comparator<City> mDelegate = new NameIndexComparator();
 
-        // Locale-sensitive comparator for phonetic names.
-        private final Collator mNameCollator = Collator.getInstance();
-
         @Override
         public int compare(City c1, City c2) {
             int result = mDelegate.compare(c1, c2);
 
             if (result == 0) {
-                result = mNameCollator.compare(c1.getPhoneticName(), c2.getPhoneticName());
+                // Locale-sensitive comparison of phonetic names via their cached collation keys.
+                result = c1.getPhoneticNameKey().compareTo(c2.getPhoneticNameKey());
             }
 
             return result;
@@ -201,18 +292,31 @@ public final class City {
      */
     public static final class NameIndexComparator implements Comparator<City> {
 
-        // Locale-sensitive comparator for index strings.
-        private final Collator mNameCollator = Collator.getInstance();
-
         @Override
         public int compare(City c1, City c2) {
             int result = Integer.compare(c1.getIndex(), c2.getIndex());
 
             if (result == 0) {
-                result = mNameCollator.compare(c1.getIndexString(), c2.getIndexString());
+                // Locale-sensitive comparison of index strings via their cached collation keys.
+                result = c1.getIndexStringKey().compareTo(c2.getIndexStringKey());
             }
 
             return result;
         }
     }
+
+    /**
+     * A UTC offset and the minute it was computed for, published together so that readers on any
+     * thread never pair the offset of one minute with another minute.
+     */
+    private static final class UtcOffset {
+
+        private final long mMinute;
+        private final int mOffset;
+
+        private UtcOffset(long minute, int offset) {
+            mMinute = minute;
+            mOffset = offset;
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.data;
+
+import android.util.ArrayMap;
+
+import com.wizardsofm.deskclock.LogUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A compact binary table of the cities parsed from resources for one locale. Reading the table
+ * avoids the resource lookups, string splitting and regular expressions needed to parse the
+ * {@code city_ids} array, and defers time zone resolution until a city's zone is first used.
+ *
+ * The table is tagged with a key describing the resources it was compiled from (locale and
+ * application version); a table with any other key is stale and ignored.
+ */
+final class CityCatalogue {
+
+    /** Identifies the file format: "CITY". */
+    private static final int MAGIC = 0x43495459;
+
+    private static final int VERSION = 1;
+
+    private CityCatalogue() {}
+
+    /**
+     * @param file the catalogue file
+     * @param key describes the resources the caller would otherwise parse
+     * @return the cities in the catalogue mapped by id; {@code null} if the catalogue does not
+     *      exist, is stale or is unreadable
+     */
+    static Map<String, City> read(File file, String key) {
+        if (!file.exists()) {
+            return null;
+        }
+
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION
+                    || !key.equals(input.readUTF())) {
+                return null;
+            }
+
+            final int count = input.readInt();
+            final Map<String, City> cities = new ArrayMap<>(count);
+            for (int i = 0; i < count; i++) {
+                final String id = input.readUTF();
+                final int index = input.readInt();
+                final String indexString = input.readUTF();
+                final String name = input.readUTF();
+                final String phoneticName = input.readUTF();
+                final String timeZoneId = input.readUTF();
+                cities.put(id, new City(id, index, indexString, name, phoneticName, timeZoneId));
+            }
+            return Collections.unmodifiableMap(cities);
+        } catch (IOException e) {
+            LogUtils.e("Unable to read city catalogue", e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes {@code cities} to a new catalogue that replaces {@code file} once complete.
+     *
+     * @param file the catalogue file
+     * @param key describes the resources from which {@code cities} were parsed
+     * @param cities the cities to store
+     */
+    static void write(File file, String key, Collection<City> cities) {
+        final File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temp)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeUTF(key);
+            output.writeInt(cities.size());
+            for (City city : cities) {
+                output.writeUTF(city.getId());
+                output.writeInt(city.getIndex());
+                output.writeUTF(city.getIndexString());
+                output.writeUTF(city.getName());
+                output.writeUTF(city.getPhoneticName());
+                output.writeUTF(city.getTimeZoneId());
+            }
+        } catch (IOException e) {
+            LogUtils.e("Unable to write city catalogue", e);
+            temp.delete();
+            return;
+        }
+
+        if (!temp.renameTo(file)) {
+            LogUtils.e("Unable to replace city catalogue %s", file);
+            temp.delete();
+        }
+    }
+}
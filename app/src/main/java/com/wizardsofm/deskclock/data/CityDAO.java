@@ -16,17 +16,22 @@
 
 package com.wizardsofm.deskclock.data;
 
+import android.annotation.TargetApi;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
+import android.os.Build;
 import android.support.annotation.VisibleForTesting;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 
+import com.wizardsofm.deskclock.LogUtils;
 import com.wizardsofm.deskclock.R;
 import com.wizardsofm.deskclock.Utils;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -39,7 +44,8 @@ import java.util.regex.Pattern;
 
 /**
  * This class encapsulates the transfer of data between {@link City} domain objects and their
- * permanent storage in {@link Resources} and {@link SharedPreferences}.
+ * permanent storage in {@link Resources} and {@link SharedPreferences}. Cities parsed from
+ * resources are cached in a {@link CityCatalogue} so later processes skip the parsing.
  */
 final class CityDAO {
 
@@ -52,6 +58,9 @@ final class CityDAO {
     /** Prefix for a key to a preference that stores the id of a selected city. */
     private static final String CITY_ID = "city_id_";
 
+    /** Name of the file caching the cities parsed from resources. */
+    private static final String CATALOGUE_NAME = "city_catalogue";
+
     private CityDAO() {}
 
     /**
@@ -95,6 +104,22 @@ final class CityDAO {
      * @return the domain of cities from which the user may choose a world clock
      */
     static Map<String, City> getCities(Context context) {
+        // Read the cities compiled for this locale and version if possible.
+        final File catalogue = new File(getStorageContext(context).getCacheDir(), CATALOGUE_NAME);
+        final String key = getCatalogueKey(context);
+        Map<String, City> cities = CityCatalogue.read(catalogue, key);
+        if (cities == null) {
+            cities = parseCities(context);
+            CityCatalogue.write(catalogue, key, cities.values());
+        }
+
+        return cities;
+    }
+
+    /**
+     * @return the domain of cities parsed from the {@code city_ids} resource array
+     */
+    private static Map<String, City> parseCities(Context context) {
         final Resources resources = context.getResources();
         final TypedArray cityStrings = resources.obtainTypedArray(R.array.city_ids);
         final int citiesCount = cityStrings.length();
@@ -144,6 +169,35 @@ final class CityDAO {
         return Collections.unmodifiableMap(cities);
     }
 
+    /**
+     * @return a description of the city resources in effect: the locales and app version
+     */
+    private static String getCatalogueKey(Context context) {
+        final String locales = Utils.isNOrLater()
+                ? getLocaleTags(context) : Locale.getDefault().toString();
+
+        long lastUpdateTime = 0;
+        try {
+            lastUpdateTime = context.getPackageManager()
+                    .getPackageInfo(context.getPackageName(), 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            LogUtils.e("Unable to locate own package", e);
+        }
+
+        return locales + "|" + lastUpdateTime;
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private static String getLocaleTags(Context context) {
+        return context.getResources().getConfiguration().getLocales().toLanguageTags();
+    }
+
+    private static Context getStorageContext(Context context) {
+        // Cities are needed by widgets before the user unlocks the device, so the catalogue lives
+        // alongside the preferences in device encrypted storage.
+        return Utils.isNOrLater() ? context.createDeviceProtectedStorageContext() : context;
+    }
+
     /**
      * @param id unique identifier for city
      * @param formattedName "[index string]=[name]" or "[index string]=[name]:[phonetic name]",
@@ -22,7 +22,10 @@ import android.content.Intent;
 import android.content.IntentFilter;
 import android.content.SharedPreferences;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+import android.os.Handler;
+import android.os.Looper;
 
+import com.wizardsofm.deskclock.AsyncHandler;
 import com.wizardsofm.deskclock.Utils;
 import com.wizardsofm.deskclock.settings.SettingsActivity;
 
@@ -30,6 +33,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -65,8 +69,25 @@ final class CityModel {
     /** List of selected city instances in display order. */
     private List<City> mSelectedCities;
 
-    /** List of unselected city instances in display order. */
-    private List<City> mUnselectedCities;
+    /**
+     * Lists of unselected city instances in display order, one per sort order. The name order is
+     * kept across toggles of the sort order; the UTC offset order is sorted again each time it is
+     * selected since offsets shift with daylight saving time.
+     */
+    private final Map<DataModel.CitySort, List<City>> mUnselectedCities =
+            new EnumMap<>(DataModel.CitySort.class);
+
+    /** Locates cities by the words of their names; built once per locale. */
+    private CitySearchIndex mSearchIndex;
+
+    /** The list of unselected cities in the order last given to {@link #mSearchIndex}. */
+    private List<City> mSearchOrder;
+
+    /** The city map for which a {@link #mSearchIndex} is being built in the background. */
+    private Map<String, City> mPendingSearchCities;
+
+    /** Hands search indexes built in the background back to the main thread. */
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
 
     /** A city instance representing the home timezone of the user. */
     private City mHomeCity;
@@ -138,7 +159,9 @@ final class CityModel {
      * @return a list of cities not selected for display
      */
     List<City> getUnselectedCities() {
-        if (mUnselectedCities == null) {
+        final DataModel.CitySort citySort = mSettingsModel.getCitySort();
+        List<City> unselectedCities = mUnselectedCities.get(citySort);
+        if (unselectedCities == null) {
             // Create a set of selections to identify the unselected cities.
             final List<City> selected = new ArrayList<>(getSelectedCities());
             final Set<City> selectedSet = Utils.newArraySet(selected);
@@ -153,10 +176,63 @@ final class CityModel {
 
             // Sort the unselected cities according by the user's preferred sort.
             Collections.sort(unselected, getCitySortComparator());
-            mUnselectedCities = Collections.unmodifiableList(unselected);
+            unselectedCities = Collections.unmodifiableList(unselected);
+            mUnselectedCities.put(citySort, unselectedCities);
         }
 
-        return mUnselectedCities;
+        return unselectedCities;
+    }
+
+    /**
+     * Builds the search index in the background so that the first search need not. A search made
+     * before the index is ready builds it on demand and the background result is discarded.
+     */
+    void preloadSearchIndex() {
+        final Map<String, City> cityMap = getCityMap();
+        if (mSearchIndex != null || mPendingSearchCities == cityMap) {
+            return;
+        }
+
+        mPendingSearchCities = cityMap;
+        final List<City> cities = new ArrayList<>(cityMap.values());
+        AsyncHandler.post(AsyncHandler.Lane.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                final CitySearchIndex searchIndex = new CitySearchIndex(cities);
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (mPendingSearchCities == cityMap) {
+                            mPendingSearchCities = null;
+                        }
+                        // Discard the index if the cities were reloaded while it was built.
+                        if (mSearchIndex == null && mCityMap == cityMap) {
+                            mSearchIndex = searchIndex;
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * @param query the search term typed by the user
+     * @return the unselected cities in display order with a word, phonetic name or time zone
+     *      abbreviation starting with the given {@code query}
+     */
+    List<City> searchUnselectedCities(String query) {
+        if (mSearchIndex == null) {
+            mSearchIndex = new CitySearchIndex(getCityMap().values());
+        }
+
+        // Results honor the current selections and sort order.
+        final List<City> unselected = getUnselectedCities();
+        if (mSearchOrder != unselected) {
+            mSearchIndex.setResultOrder(unselected);
+            mSearchOrder = unselected;
+        }
+
+        return mSearchIndex.search(query);
     }
 
     /**
@@ -181,7 +257,7 @@ final class CityModel {
         // Clear caches affected by this update.
         mAllCities = null;
         mSelectedCities = null;
-        mUnselectedCities = null;
+        mUnselectedCities.clear();
 
         // Broadcast the change to the selected cities for the benefit of widgets.
         sendCitiesChangedBroadcast();
@@ -212,9 +288,9 @@ final class CityModel {
     void toggleCitySort() {
         mSettingsModel.toggleCitySort();
 
-        // Clear caches affected by this update.
+        // Clear caches affected by this update; unselected cities in name order are kept.
         mAllCities = null;
-        mUnselectedCities = null;
+        mUnselectedCities.remove(DataModel.CitySort.UTC_OFFSET);
     }
 
     /**
@@ -253,10 +329,12 @@ final class CityModel {
         @Override
         public void onReceive(Context context, Intent intent) {
             mCityMap = null;
+            mSearchIndex = null;
+            mSearchOrder = null;
             mHomeCity = null;
             mAllCities = null;
             mSelectedCities = null;
-            mUnselectedCities = null;
+            mUnselectedCities.clear();
         }
     }
 
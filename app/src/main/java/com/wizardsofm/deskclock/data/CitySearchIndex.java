@@ -0,0 +1,245 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * A search index over the names of all cities, built once per locale. Every searchable term of a
+ * city is normalized by {@link City#removeSpecialCharacters} and stored in a single sorted array,
+ * so the cities whose terms start with a query occupy one contiguous range of that array that is
+ * located by binary search. The searchable terms of a city are:
+ *
+ * <ul>
+ *     <li>its name, starting from each word, e.g. both "SANFRANCISCO" and "FRANCISCO"</li>
+ *     <li>its phonetic name, if different from its name</li>
+ *     <li>the short names of its time zone, e.g. "PST" and "PDT"</li>
+ * </ul>
+ *
+ * Typing one more character narrows the range of the previous query rather than searching again,
+ * and collecting the results only visits matching terms, so the cost of a keystroke depends on
+ * the number of matches rather than the number of cities.
+ */
+final class CitySearchIndex {
+
+    /** Orders terms by their characters so that terms sharing a prefix are adjacent. */
+    private static final Comparator<Term> TERM_ORDER = new Comparator<Term>() {
+        @Override
+        public int compare(Term t1, Term t2) {
+            return t1.mText.compareTo(t2.mText);
+        }
+    };
+
+    /** All cities of the index; the position of a city in this array is its ordinal. */
+    private final City[] mCities;
+
+    /** The searchable terms of all cities in sorted order. */
+    private final String[] mTerms;
+
+    /** The ordinal of the city to which each term in {@link #mTerms} belongs. */
+    private final int[] mTermCities;
+
+    /** Maps each city to its ordinal. */
+    private final Map<City, Integer> mOrdinals;
+
+    /** The rank of each city, by ordinal, in the result order; -1 excludes the city. */
+    private final int[] mRanks;
+
+    /** The cities eligible for results in result order; indexed by rank. */
+    private City[] mOrdered = new City[0];
+
+    /** Stamps the ordinals already collected by the current search to skip duplicate terms. */
+    private final int[] mSeen;
+    private int mSearchStamp;
+
+    /** The normalized text of the last query. */
+    private String mLastQuery;
+
+    /** The range of {@link #mTerms} matching {@link #mLastQuery}: [mLow, mHigh). */
+    private int mLow, mHigh;
+
+    CitySearchIndex(Collection<City> cities) {
+        mCities = cities.toArray(new City[cities.size()]);
+        mOrdinals = new IdentityHashMap<>(mCities.length);
+        mRanks = new int[mCities.length];
+        mSeen = new int[mCities.length];
+        Arrays.fill(mRanks, -1);
+
+        final List<Term> terms = new ArrayList<>(mCities.length * 4);
+        for (int ordinal = 0; ordinal < mCities.length; ordinal++) {
+            final City city = mCities[ordinal];
+            mOrdinals.put(city, ordinal);
+            addNameTerms(terms, city.getName(), ordinal);
+            if (!city.getPhoneticName().equals(city.getName())) {
+                addNameTerms(terms, city.getPhoneticName(), ordinal);
+            }
+            addTimeZoneTerms(terms, city.getTimeZone(), ordinal);
+        }
+        Collections.sort(terms, TERM_ORDER);
+
+        mTerms = new String[terms.size()];
+        mTermCities = new int[terms.size()];
+        for (int i = 0; i < mTerms.length; i++) {
+            final Term term = terms.get(i);
+            mTerms[i] = term.mText;
+            mTermCities[i] = term.mCity;
+        }
+        mHigh = mTerms.length;
+        mLastQuery = "";
+    }
+
+    /**
+     * @param cities the cities eligible to appear in search results, in the order in which the
+     *      results are to be returned; cities absent from this list are never returned
+     */
+    void setResultOrder(List<City> cities) {
+        Arrays.fill(mRanks, -1);
+        mOrdered = cities.toArray(new City[cities.size()]);
+        for (int rank = 0; rank < mOrdered.length; rank++) {
+            final Integer ordinal = mOrdinals.get(mOrdered[rank]);
+            if (ordinal != null) {
+                mRanks[ordinal] = rank;
+            }
+        }
+    }
+
+    /**
+     * @param query the search term typed by the user
+     * @return the eligible cities with a term starting with the normalized {@code query}, in
+     *      result order
+     */
+    List<City> search(String query) {
+        final String prefix = City.removeSpecialCharacters(query.toUpperCase());
+
+        // Extending the last query can only narrow its range; otherwise search all terms.
+        if (!prefix.startsWith(mLastQuery)) {
+            mLow = 0;
+            mHigh = mTerms.length;
+        }
+        mLow = lowerBound(prefix, mLow, mHigh);
+        mHigh = prefixEnd(prefix, mLow, mHigh);
+        mLastQuery = prefix;
+
+        // Collect the rank of each distinct eligible city within the range.
+        mSearchStamp++;
+        int[] ranks = new int[Math.min(mHigh - mLow, mOrdered.length)];
+        int count = 0;
+        for (int i = mLow; i < mHigh; i++) {
+            final int ordinal = mTermCities[i];
+            if (mSeen[ordinal] == mSearchStamp || mRanks[ordinal] == -1) {
+                continue;
+            }
+            mSeen[ordinal] = mSearchStamp;
+            ranks[count++] = mRanks[ordinal];
+        }
+
+        Arrays.sort(ranks, 0, count);
+        final List<City> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(mOrdered[ranks[i]]);
+        }
+        return results;
+    }
+
+    /**
+     * @return the first index in [low, high) whose term is not less than {@code prefix}
+     */
+    private int lowerBound(String prefix, int low, int high) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mTerms[mid].compareTo(prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @param low the index of the first term not less than {@code prefix}
+     * @return the first index in [low, high) whose term does not start with {@code prefix}
+     */
+    private int prefixEnd(String prefix, int low, int high) {
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (mTerms[mid].startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds the name starting from each of its words, so any word of the name may be matched.
+     */
+    private static void addNameTerms(List<Term> terms, String name, int ordinal) {
+        final String upperCase = name.toUpperCase();
+        boolean wordStart = true;
+        for (int i = 0; i < upperCase.length(); i++) {
+            final boolean special = City.isSpecialCharacter(upperCase.charAt(i));
+            if (wordStart && !special) {
+                final String term = City.removeSpecialCharacters(upperCase.substring(i));
+                terms.add(new Term(term, ordinal));
+            }
+            wordStart = special;
+        }
+    }
+
+    /**
+     * Adds the short standard and daylight names of the time zone, e.g. "PST" and "PDT". Names
+     * that merely restate the offset from GMT are not useful search terms and are skipped.
+     */
+    private static void addTimeZoneTerms(List<Term> terms, TimeZone tz, int ordinal) {
+        final Locale locale = Locale.getDefault();
+        final String standard = tz.getDisplayName(false, TimeZone.SHORT, locale);
+        if (!standard.startsWith("GMT")) {
+            terms.add(new Term(standard.toUpperCase(), ordinal));
+        }
+        if (tz.useDaylightTime()) {
+            final String daylight = tz.getDisplayName(true, TimeZone.SHORT, locale);
+            if (!daylight.startsWith("GMT") && !daylight.equals(standard)) {
+                terms.add(new Term(daylight.toUpperCase(), ordinal));
+            }
+        }
+    }
+
+    /**
+     * A searchable term and the ordinal of the city to which it belongs; used only while building.
+     */
+    private static final class Term {
+
+        private final String mText;
+        private final int mCity;
+
+        private Term(String text, int city) {
+            mText = text;
+            mCity = city;
+        }
+    }
+}
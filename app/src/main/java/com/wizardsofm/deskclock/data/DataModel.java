@@ -43,6 +43,10 @@ public final class DataModel {
     public static final String ACTION_WORLD_CITIES_CHANGED =
             "com.android.deskclock.WORLD_CITIES_CHANGED";
 
+    /** Broadcast to this package whenever timers are added, updated or removed. */
+    public static final String ACTION_TIMERS_CHANGED =
+            "com.android.deskclock.TIMERS_CHANGED";
+
     /** The single instance of this data model that exists for the life of the application. */
     private static final DataModel sDataModel = new DataModel();
 
@@ -210,6 +214,23 @@ public final class DataModel {
         return mCityModel.getUnselectedCities();
     }
 
+    /**
+     * Prepares {@link #searchUnselectedCities} in the background ahead of the first search.
+     */
+    public void preloadCitySearchIndex() {
+        Utils.enforceMainLooper();
+        mCityModel.preloadSearchIndex();
+    }
+
+    /**
+     * @param query the search term typed by the user
+     * @return the unselected cities matching the given {@code query} in display order
+     */
+    public List<City> searchUnselectedCities(String query) {
+        Utils.enforceMainLooper();
+        return mCityModel.searchUnselectedCities(query);
+    }
+
     /**
      * @return a list of cities selected for display
      */
@@ -315,6 +336,31 @@ public final class DataModel {
         return mTimerModel.addTimer(length, label, deleteAfterUse);
     }
 
+    /**
+     * @param schedule the phases of the interval timer
+     * @param label describes the purpose of the timer
+     * @param deleteAfterUse {@code true} indicates the timer should be deleted when it is reset
+     * @return the newly added interval timer
+     */
+    public Timer addIntervalTimer(IntervalSchedule schedule, String label,
+            boolean deleteAfterUse) {
+        Utils.enforceMainLooper();
+        return mTimerModel.addIntervalTimer(schedule, label, deleteAfterUse);
+    }
+
+    /**
+     * Adds a group of timers, such as those of a preset, with a single write.
+     *
+     * @param lengths the length of each timer in milliseconds
+     * @param label describes the purpose of the timers
+     * @param start {@code true} to start all of the new timers together
+     * @return the newly added timers
+     */
+    public List<Timer> addTimers(long[] lengths, String label, boolean start) {
+        Utils.enforceMainLooper();
+        return mTimerModel.addTimers(lengths, label, start);
+    }
+
     /**
      * @param timer the timer to be removed
      */
@@ -339,6 +385,22 @@ public final class DataModel {
         mTimerModel.updateTimer(timer.pause());
     }
 
+    /**
+     * Resumes all paused timers.
+     */
+    public void startTimers() {
+        Utils.enforceMainLooper();
+        mTimerModel.startTimers();
+    }
+
+    /**
+     * Pauses all running timers.
+     */
+    public void pauseTimers() {
+        Utils.enforceMainLooper();
+        mTimerModel.pauseTimers();
+    }
+
     /**
      * @param service used to start foreground notifications for expired timers
      * @param timer the timer to be expired
@@ -409,6 +471,14 @@ public final class DataModel {
         mTimerModel.updateTimer(timer.setLabel(label));
     }
 
+    /**
+     * Refreshes timer state that depends on the current phase of interval timers.
+     */
+    public void updateTimerPhases() {
+        Utils.enforceMainLooper();
+        mTimerModel.updateTimerPhases();
+    }
+
     /**
      * Updates the timer notifications to be current.
      */
@@ -590,6 +660,14 @@ public final class DataModel {
         return mStopwatchModel.addLap();
     }
 
+    /**
+     * @return the statistics of the laps recorded for the stopwatch
+     */
+    public LapStats getLapStats() {
+        Utils.enforceMainLooper();
+        return mStopwatchModel.getLapStats();
+    }
+
     /**
      * @return {@code true} iff more laps can be recorded
      */
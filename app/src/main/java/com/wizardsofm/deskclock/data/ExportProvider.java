@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.data;
+
+import android.content.ContentProvider;
+import android.content.ContentValues;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+import android.provider.OpenableColumns;
+import android.util.JsonWriter;
+
+import com.wizardsofm.deskclock.LogUtils;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exposes recorded stopwatch laps and the saved timers as CSV or JSON documents that other
+ * applications may read, e.g. after the data is shared with them. Each document is generated on
+ * demand and written to a pipe row by row. Laps are written from a copy of the lap times held in
+ * memory, so a document always includes the laps recorded just before it was shared.
+ *
+ * The provider is not exported; readers are granted access to individual documents via
+ * {@link android.content.Intent#FLAG_GRANT_READ_URI_PERMISSION}.
+ */
+public final class ExportProvider extends ContentProvider {
+
+    public static final String AUTHORITY = "com.wizardsofm.deskclock.export";
+
+    /** The recorded stopwatch laps, oldest first, as comma-separated values. */
+    public static final Uri LAPS_CSV_URI = Uri.parse("content://" + AUTHORITY + "/laps.csv");
+
+    /** The recorded stopwatch laps, oldest first, as a JSON array. */
+    public static final Uri LAPS_JSON_URI = Uri.parse("content://" + AUTHORITY + "/laps.json");
+
+    /** The saved timers as comma-separated values. */
+    public static final Uri TIMERS_CSV_URI = Uri.parse("content://" + AUTHORITY + "/timers.csv");
+
+    /** The saved timers as a JSON array. */
+    public static final Uri TIMERS_JSON_URI = Uri.parse("content://" + AUTHORITY + "/timers.json");
+
+    private static final String CSV_TYPE = "text/csv";
+    private static final String JSON_TYPE = "application/json";
+
+    private static final int LAPS_CSV = 1;
+    private static final int LAPS_JSON = 2;
+    private static final int TIMERS_CSV = 3;
+    private static final int TIMERS_JSON = 4;
+
+    private static final UriMatcher sURIMatcher = new UriMatcher(UriMatcher.NO_MATCH);
+    static {
+        sURIMatcher.addURI(AUTHORITY, "laps.csv", LAPS_CSV);
+        sURIMatcher.addURI(AUTHORITY, "laps.json", LAPS_JSON);
+        sURIMatcher.addURI(AUTHORITY, "timers.csv", TIMERS_CSV);
+        sURIMatcher.addURI(AUTHORITY, "timers.json", TIMERS_JSON);
+    }
+
+    /** Writes the document identified by the uri it is given into a pipe. */
+    private final PipeDataWriter<Integer> mDocumentWriter = new DocumentWriter();
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        switch (sURIMatcher.match(uri)) {
+            case LAPS_CSV:
+            case TIMERS_CSV:
+                return CSV_TYPE;
+            case LAPS_JSON:
+            case TIMERS_JSON:
+                return JSON_TYPE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Reports the display name of a document so receiving applications can name the file they
+     * save; the size is unknown until the document has been streamed.
+     */
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs,
+            String sortOrder) {
+        if (sURIMatcher.match(uri) == UriMatcher.NO_MATCH) {
+            throw new IllegalArgumentException("Unknown URL " + uri);
+        }
+
+        if (projection == null) {
+            projection = new String[] { OpenableColumns.DISPLAY_NAME, OpenableColumns.SIZE };
+        }
+        final MatrixCursor cursor = new MatrixCursor(projection, 1);
+        final Object[] row = new Object[projection.length];
+        for (int i = 0; i < projection.length; i++) {
+            if (OpenableColumns.DISPLAY_NAME.equals(projection[i])) {
+                row[i] = uri.getLastPathSegment();
+            }
+        }
+        cursor.addRow(row);
+        return cursor;
+    }
+
+    @Override
+    public ParcelFileDescriptor openFile(Uri uri, String mode) throws FileNotFoundException {
+        final int match = sURIMatcher.match(uri);
+        if (match == UriMatcher.NO_MATCH) {
+            throw new FileNotFoundException("Unknown URL " + uri);
+        }
+        if (!"r".equals(mode)) {
+            throw new FileNotFoundException("Read-only URL " + uri);
+        }
+        return openPipeHelper(uri, getType(uri), null, match, mDocumentWriter);
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("Cannot insert URL: " + uri);
+    }
+
+    @Override
+    public int update(Uri uri, ContentValues values, String where, String[] whereArgs) {
+        throw new UnsupportedOperationException("Cannot update URL: " + uri);
+    }
+
+    @Override
+    public int delete(Uri uri, String where, String[] whereArgs) {
+        throw new UnsupportedOperationException("Cannot delete URL: " + uri);
+    }
+
+    private void writeLapsCsv(final Writer writer) throws IOException {
+        writer.write("lap,lap_time_ms,total_time_ms\n");
+        StopwatchDAO.visitLaps(getContext(), new LapLog.Visitor() {
+            @Override
+            public void visit(int lapNumber, long lapTime, long accumulatedTime)
+                    throws IOException {
+                writer.write(Integer.toString(lapNumber));
+                writer.write(',');
+                writer.write(Long.toString(lapTime));
+                writer.write(',');
+                writer.write(Long.toString(accumulatedTime));
+                writer.write('\n');
+            }
+        });
+    }
+
+    private void writeLapsJson(Writer writer) throws IOException {
+        final JsonWriter json = new JsonWriter(writer);
+        json.beginArray();
+        StopwatchDAO.visitLaps(getContext(), new LapLog.Visitor() {
+            @Override
+            public void visit(int lapNumber, long lapTime, long accumulatedTime)
+                    throws IOException {
+                json.beginObject()
+                        .name("lap").value(lapNumber)
+                        .name("lapTimeMs").value(lapTime)
+                        .name("totalTimeMs").value(accumulatedTime)
+                        .endObject();
+            }
+        });
+        json.endArray();
+        json.flush();
+    }
+
+    private void writeTimersCsv(Writer writer) throws IOException {
+        writer.write("id,state,length_ms,remaining_ms,label,schedule\n");
+        try (Cursor cursor = TimerDAO.queryTimers(getContext())) {
+            while (cursor.moveToNext()) {
+                final Timer timer = TimerDAO.readTimer(cursor);
+                if (timer == null) {
+                    continue;
+                }
+                writer.write(Integer.toString(timer.getId()));
+                writer.write(',');
+                writer.write(timer.getState().name());
+                writer.write(',');
+                writer.write(Long.toString(timer.getTotalLength()));
+                writer.write(',');
+                writer.write(Long.toString(timer.getRemainingTime()));
+                writer.write(',');
+                writeCsvField(writer, timer.getLabel());
+                writer.write(',');
+                writeCsvField(writer, timer.isInterval() ? timer.getSchedule().toString() : null);
+                writer.write('\n');
+            }
+        }
+    }
+
+    private void writeTimersJson(Writer writer) throws IOException {
+        final JsonWriter json = new JsonWriter(writer);
+        json.beginArray();
+        try (Cursor cursor = TimerDAO.queryTimers(getContext())) {
+            while (cursor.moveToNext()) {
+                final Timer timer = TimerDAO.readTimer(cursor);
+                if (timer == null) {
+                    continue;
+                }
+                json.beginObject()
+                        .name("id").value(timer.getId())
+                        .name("state").value(timer.getState().name())
+                        .name("lengthMs").value(timer.getTotalLength())
+                        .name("remainingMs").value(timer.getRemainingTime())
+                        .name("label").value(timer.getLabel());
+                if (timer.isInterval()) {
+                    json.name("schedule").value(timer.getSchedule().toString());
+                }
+                json.endObject();
+            }
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    /**
+     * Writes {@code value} as a CSV field, quoting it if it contains a delimiter or quote.
+     */
+    private static void writeCsvField(Writer writer, String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            final char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    /**
+     * Streams a document into the write end of the pipe created by
+     * {@link #openPipeHelper}; runs on a background thread.
+     */
+    private final class DocumentWriter implements PipeDataWriter<Integer> {
+        @Override
+        public void writeDataToPipe(ParcelFileDescriptor output, Uri uri, String mimeType,
+                Bundle opts, Integer match) {
+            // The pipe itself is closed by openPipeHelper once this method returns.
+            final Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(output.getFileDescriptor()), StandardCharsets.UTF_8));
+            try {
+                switch (match) {
+                    case LAPS_CSV:
+                        writeLapsCsv(writer);
+                        break;
+                    case LAPS_JSON:
+                        writeLapsJson(writer);
+                        break;
+                    case TIMERS_CSV:
+                        writeTimersCsv(writer);
+                        break;
+                    case TIMERS_JSON:
+                        writeTimersJson(writer);
+                        break;
+                }
+                writer.flush();
+            } catch (IOException e) {
+                // Most commonly the reader closed its end of the pipe early.
+                LogUtils.w("Export of %s ended early: %s", uri, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.data;
+
+import android.text.TextUtils;
+
+import java.util.Arrays;
+
+/**
+ * An immutable description of an interval timer: a cycle of phases (e.g. work then rest) that is
+ * repeated for a number of rounds. The offset of every phase boundary is precomputed, so the
+ * current phase and the next boundary for any elapsed time are found with a binary search and no
+ * allocation. Because phases are located from the elapsed time of a single {@link Timer}, the
+ * boundaries never drift the way manually restarted timers do.
+ */
+public final class IntervalSchedule {
+
+    /** The length in milliseconds of each phase in one cycle. */
+    private final long[] mPhaseLengths;
+
+    /** The offset from the start of a cycle at which each phase ends. */
+    private final long[] mPhaseEnds;
+
+    /** The number of times the cycle of phases is repeated. */
+    private final int mRounds;
+
+    /** The length in milliseconds of one cycle of phases. */
+    private final long mCycleLength;
+
+    /**
+     * @param phaseLengths the length in milliseconds of each phase in one cycle
+     * @param rounds the number of times the cycle of phases is repeated
+     */
+    public IntervalSchedule(long[] phaseLengths, int rounds) {
+        if (phaseLengths.length == 0 || rounds < 1) {
+            throw new IllegalArgumentException("schedule requires at least one phase and round");
+        }
+
+        mPhaseLengths = phaseLengths.clone();
+        mPhaseEnds = new long[phaseLengths.length];
+        mRounds = rounds;
+
+        long cycleLength = 0;
+        for (int i = 0; i < phaseLengths.length; i++) {
+            if (phaseLengths[i] < Timer.MIN_LENGTH) {
+                throw new IllegalArgumentException("phase too short: " + phaseLengths[i]);
+            }
+            cycleLength += phaseLengths[i];
+            mPhaseEnds[i] = cycleLength;
+        }
+        mCycleLength = cycleLength;
+    }
+
+    public int getPhaseCount() { return mPhaseLengths.length; }
+    public int getRounds() { return mRounds; }
+    public long getPhaseLength(int phase) { return mPhaseLengths[phase]; }
+
+    /**
+     * @return the length in milliseconds of all rounds of all phases
+     */
+    public long getTotalLength() {
+        return mCycleLength * mRounds;
+    }
+
+    /**
+     * @param elapsed milliseconds since the start of the schedule
+     * @return the index of the phase within its cycle that is in progress at {@code elapsed}
+     */
+    public int getPhase(long elapsed) {
+        final long offset = getCycleOffset(elapsed);
+        final int index = Arrays.binarySearch(mPhaseEnds, offset);
+
+        // An exact match lands on a boundary, which begins the following phase.
+        return index >= 0 ? (index + 1) % mPhaseEnds.length : -index - 1;
+    }
+
+    /**
+     * @param elapsed milliseconds since the start of the schedule
+     * @return the zero-based round that is in progress at {@code elapsed}
+     */
+    public int getRound(long elapsed) {
+        return (int) Math.min(mRounds - 1, Math.max(0, elapsed) / mCycleLength);
+    }
+
+    /**
+     * @param elapsed milliseconds since the start of the schedule
+     * @return the milliseconds from {@code elapsed} until the end of the phase in progress
+     */
+    public long getPhaseRemainingTime(long elapsed) {
+        return getNextBoundary(elapsed) - Math.max(0, elapsed);
+    }
+
+    /**
+     * @param elapsed milliseconds since the start of the schedule
+     * @return the offset from the start of the schedule at which the phase in progress ends; the
+     *      {@link #getTotalLength() total length} once the final phase is in progress
+     */
+    public long getNextBoundary(long elapsed) {
+        final long total = getTotalLength();
+        if (elapsed >= total) {
+            return total;
+        }
+
+        final long cycleStart = getRound(elapsed) * mCycleLength;
+        return cycleStart + mPhaseEnds[getPhase(elapsed)];
+    }
+
+    private long getCycleOffset(long elapsed) {
+        if (elapsed <= 0) {
+            return 0;
+        } else if (elapsed >= getTotalLength()) {
+            // Report the final phase once the schedule is complete.
+            return mCycleLength - 1;
+        }
+        return elapsed % mCycleLength;
+    }
+
+    /**
+     * @return a compact encoding of this schedule, e.g. {@code "8:30000,10000"} for eight rounds
+     *      of 30 seconds then 10 seconds; see {@link #parse}
+     */
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder(8 + 8 * mPhaseLengths.length);
+        sb.append(mRounds).append(':');
+        for (int i = 0; i < mPhaseLengths.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(mPhaseLengths[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param encoded a schedule encoded by {@link #toString()}; may be {@code null}
+     * @return the decoded schedule or {@code null} if {@code encoded} is empty or malformed
+     */
+    public static IntervalSchedule parse(String encoded) {
+        if (TextUtils.isEmpty(encoded)) {
+            return null;
+        }
+
+        try {
+            final int colon = encoded.indexOf(':');
+            final int rounds = Integer.parseInt(encoded.substring(0, colon));
+            final String[] phases = encoded.substring(colon + 1).split(",");
+            final long[] phaseLengths = new long[phases.length];
+            for (int i = 0; i < phases.length; i++) {
+                phaseLengths[i] = Long.parseLong(phases[i]);
+            }
+            return new IntervalSchedule(phaseLengths, rounds);
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        final IntervalSchedule schedule = (IntervalSchedule) o;
+        return mRounds == schedule.mRounds && Arrays.equals(mPhaseLengths, schedule.mPhaseLengths);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * mRounds + Arrays.hashCode(mPhaseLengths);
+    }
+}
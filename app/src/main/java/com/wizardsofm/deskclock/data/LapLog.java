@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.data;
+
+import com.wizardsofm.deskclock.LogUtils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * An append-only file of fixed-size lap records. The file starts with a small header followed by
+ * one record per lap in the order the laps were recorded, so lap {@code n} lives at a computable
+ * offset and appending a lap writes a single record without rewriting anything else.
+ *
+ * Each record stores the accumulated time at the end of the lap alongside its bitwise complement.
+ * A record torn by a crash mid-write fails that check; it and anything after it are discarded and
+ * truncated when the log is next opened.
+ *
+ * The accumulated times are also held in memory so laps are read in constant time without I/O.
+ * {@link #append} and {@link #clear} only change that memory; {@link #flush} brings the file up
+ * to date and is meant to run on a background thread. Records reach the file strictly in order,
+ * so a failed write never leaves a gap before a later record.
+ */
+final class LapLog {
+
+    /** Identifies the file format: "LAPS". */
+    private static final int MAGIC = 0x4C415053;
+
+    private static final int VERSION = 1;
+
+    /** Header: magic number and version. */
+    private static final int HEADER_SIZE = 8;
+
+    /** Record: accumulated time and its bitwise complement. */
+    private static final int RECORD_SIZE = 16;
+
+    /** Initial capacity of the in-memory lap buffer; it grows by doubling as needed. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Receives each lap of a log, in the order the laps were recorded.
+     */
+    interface Visitor {
+        /**
+         * @param lapNumber the 1-based number of the lap
+         * @param lapTime the duration of the lap
+         * @param accumulatedTime the accumulated time at the end of the lap
+         */
+        void visit(int lapNumber, long lapTime, long accumulatedTime) throws IOException;
+    }
+
+    /** The file in which the laps are persisted. */
+    private final File mFile;
+
+    /** The accumulated time at the end of each lap; index 0 holds lap 1. Guarded by this. */
+    private long[] mAccumulatedTimes = new long[INITIAL_CAPACITY];
+
+    /** The number of laps in the log. Guarded by this. */
+    private int mCount;
+
+    /** {@code true} if the laps were cleared since the last flush. Guarded by this. */
+    private boolean mClearPending;
+
+    /** The number of laps known to be in the file; only accessed by the flushing thread. */
+    private int mFileCount;
+
+    /** {@code true} if the file could not be read and must therefore not be written. */
+    private boolean mReadOnly;
+
+    /** The open file; {@code null} until the first write. Only accessed by the flushing thread. */
+    private RandomAccessFile mOutput;
+
+    private LapLog(File file) {
+        mFile = file;
+    }
+
+    /**
+     * @param file the log file; created on the first write if it does not exist
+     * @return the log read from {@code file}, with any trailing torn record discarded
+     */
+    static LapLog open(File file) {
+        final LapLog log = new LapLog(file);
+        log.load();
+        return log;
+    }
+
+    /**
+     * Writes a complete log containing {@code accumulatedTimes} to {@code file}. The records are
+     * written to a temporary file that then replaces {@code file}, so a crash leaves either the
+     * old file or the new one but never a mix.
+     */
+    static void create(File file, long[] accumulatedTimes) throws IOException {
+        final File temp = new File(file.getPath() + ".tmp");
+        final ByteBuffer buffer =
+                ByteBuffer.allocate(HEADER_SIZE + accumulatedTimes.length * RECORD_SIZE);
+        buffer.putInt(MAGIC).putInt(VERSION);
+        for (long accumulatedTime : accumulatedTimes) {
+            buffer.putLong(accumulatedTime).putLong(~accumulatedTime);
+        }
+
+        try (RandomAccessFile output = new RandomAccessFile(temp, "rw")) {
+            output.setLength(0);
+            output.write(buffer.array());
+            output.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            throw new IOException("Unable to replace " + file);
+        }
+    }
+
+    /**
+     * Passes every lap in the log to {@code visitor}, including laps not yet flushed to the file.
+     * The laps are copied first so that {@code visitor} may be slow without holding up laps being
+     * recorded; the copy reflects the log at the time of the call.
+     */
+    void visit(Visitor visitor) throws IOException {
+        final long[] accumulatedTimes;
+        synchronized (this) {
+            accumulatedTimes = Arrays.copyOf(mAccumulatedTimes, mCount);
+        }
+
+        long prevAccumulatedTime = 0;
+        for (int i = 0; i < accumulatedTimes.length; i++) {
+            final long accumulatedTime = accumulatedTimes[i];
+            visitor.visit(i + 1, accumulatedTime - prevAccumulatedTime, accumulatedTime);
+            prevAccumulatedTime = accumulatedTime;
+        }
+    }
+
+    /**
+     * @return the number of laps in the log
+     */
+    synchronized int size() {
+        return mCount;
+    }
+
+    /**
+     * @param lapNumber the 1-based number of the lap
+     * @return the accumulated time at the end of the lap
+     */
+    synchronized long getAccumulatedTime(int lapNumber) {
+        if (lapNumber < 1 || lapNumber > mCount) {
+            throw new IndexOutOfBoundsException("lap " + lapNumber + " of " + mCount);
+        }
+        return mAccumulatedTimes[lapNumber - 1];
+    }
+
+    /**
+     * @param accumulatedTime the accumulated time at the end of the new lap
+     */
+    synchronized void append(long accumulatedTime) {
+        if (mCount == mAccumulatedTimes.length) {
+            mAccumulatedTimes = Arrays.copyOf(mAccumulatedTimes, mCount * 2);
+        }
+        mAccumulatedTimes[mCount++] = accumulatedTime;
+    }
+
+    /**
+     * Removes all laps from the log.
+     */
+    synchronized void clear() {
+        mCount = 0;
+        mClearPending = true;
+        if (mAccumulatedTimes.length > INITIAL_CAPACITY) {
+            mAccumulatedTimes = new long[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Writes the laps appended or cleared since the last flush to the file. Calls must be
+     * serialized, e.g. by running them all on one background thread. If a write fails the file is
+     * cut back to the records known to be complete and the next flush writes the rest again.
+     */
+    void flush() {
+        final boolean clear;
+        final long[] pending;
+        synchronized (this) {
+            clear = mClearPending;
+            mClearPending = false;
+            final int fileCount = clear ? 0 : mFileCount;
+            pending = Arrays.copyOfRange(mAccumulatedTimes, fileCount, mCount);
+        }
+
+        if (mReadOnly || (!clear && pending.length == 0)) {
+            return;
+        }
+
+        try {
+            final RandomAccessFile output = getOutput();
+            if (clear) {
+                mFileCount = 0;
+                output.setLength(HEADER_SIZE);
+            }
+            if (pending.length > 0) {
+                final ByteBuffer records = ByteBuffer.allocate(pending.length * RECORD_SIZE);
+                for (long accumulatedTime : pending) {
+                    records.putLong(accumulatedTime).putLong(~accumulatedTime);
+                }
+                output.seek(HEADER_SIZE + (long) mFileCount * RECORD_SIZE);
+                output.write(records.array());
+                mFileCount += pending.length;
+            }
+        } catch (IOException e) {
+            LogUtils.e("Unable to write laps to " + mFile, e);
+            truncateOutput();
+            closeOutput();
+        }
+    }
+
+    /**
+     * Reads the valid records of the log file into memory.
+     */
+    private void load() {
+        if (!mFile.exists()) {
+            return;
+        }
+
+        boolean validHeader = false;
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(mFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                // Unrecognized content is discarded below.
+                LogUtils.e("Discarding unrecognized lap log: %s", mFile);
+            } else {
+                validHeader = true;
+                while (true) {
+                    final long accumulatedTime = input.readLong();
+                    if (input.readLong() != ~accumulatedTime) {
+                        LogUtils.w("Discarding corrupt lap record %d in %s", mCount + 1, mFile);
+                        break;
+                    }
+                    if (mCount == mAccumulatedTimes.length) {
+                        mAccumulatedTimes = Arrays.copyOf(mAccumulatedTimes, mCount * 2);
+                    }
+                    mAccumulatedTimes[mCount++] = accumulatedTime;
+                }
+            }
+        } catch (EOFException e) {
+            // The end of the log, possibly within a record torn by a crash.
+        } catch (IOException e) {
+            // Leave the file untouched; laps are kept in memory only until it can be read again.
+            LogUtils.e("Unable to read laps from " + mFile, e);
+            mReadOnly = true;
+            return;
+        }
+
+        // Drop anything past the last valid record so later appends follow it directly. A file
+        // with an unrecognized header is rewritten even if it happens to be exactly header-sized.
+        mFileCount = mCount;
+        final long validLength = HEADER_SIZE + (long) mCount * RECORD_SIZE;
+        if (!validHeader || mFile.length() != validLength) {
+            try {
+                if (!validHeader) {
+                    getOutput().setLength(0);
+                    writeHeader();
+                } else {
+                    getOutput().setLength(validLength);
+                }
+            } catch (IOException e) {
+                // Appending after an unrepaired file would bury the new laps; keep them in memory.
+                LogUtils.e("Unable to truncate " + mFile, e);
+                closeOutput();
+                mReadOnly = true;
+            }
+        }
+    }
+
+    /**
+     * @return the open log file, created with its header if it did not exist
+     */
+    private RandomAccessFile getOutput() throws IOException {
+        if (mOutput == null) {
+            mOutput = new RandomAccessFile(mFile, "rw");
+            if (mOutput.length() < HEADER_SIZE) {
+                writeHeader();
+            }
+        }
+        return mOutput;
+    }
+
+    /**
+     * Cuts the file back to the records known to be complete after a failed write.
+     */
+    private void truncateOutput() {
+        if (mOutput != null) {
+            try {
+                mOutput.setLength(HEADER_SIZE + (long) mFileCount * RECORD_SIZE);
+            } catch (IOException e) {
+                LogUtils.e("Unable to truncate " + mFile, e);
+            }
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        mOutput.seek(0);
+        mOutput.writeInt(MAGIC);
+        mOutput.writeInt(VERSION);
+    }
+
+    private void closeOutput() {
+        if (mOutput != null) {
+            try {
+                mOutput.close();
+            } catch (IOException ignored) {
+            }
+            mOutput = null;
+        }
+    }
+}
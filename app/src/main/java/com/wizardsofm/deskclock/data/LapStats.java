@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.data;
+
+/**
+ * A read-only summary of the recorded stopwatch laps. Each instance is derived from the previous
+ * one and the newest lap in constant time, so the statistics never require a pass over the laps.
+ * The running mean and variance use Welford's method to stay accurate over many laps.
+ */
+public final class LapStats {
+
+    /** The statistics of a stopwatch without recorded laps. */
+    static final LapStats EMPTY = new LapStats(0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    /** The number of recorded laps. */
+    private final int mLapCount;
+
+    /** The number of the lap with the shortest lap time; the earliest wins ties. */
+    private final int mFastestLapNumber;
+
+    /** The number of the lap with the longest lap time; the earliest wins ties. */
+    private final int mSlowestLapNumber;
+
+    /** The shortest lap time in ms. */
+    private final long mMinLapTime;
+
+    /** The longest lap time in ms. */
+    private final long mMaxLapTime;
+
+    /** The lap time of the most recent lap in ms. */
+    private final long mLastLapTime;
+
+    /** The lap time of the most recent lap less that of the lap before it, in ms. */
+    private final long mLastSplitDelta;
+
+    /** The mean lap time in ms. */
+    private final double mMean;
+
+    /** The sum of squared differences from the mean; divided by the lap count gives variance. */
+    private final double mSquaredDeviations;
+
+    private LapStats(int lapCount, int fastestLapNumber, int slowestLapNumber, long minLapTime,
+            long maxLapTime, long lastLapTime, long lastSplitDelta, double mean,
+            double squaredDeviations) {
+        mLapCount = lapCount;
+        mFastestLapNumber = fastestLapNumber;
+        mSlowestLapNumber = slowestLapNumber;
+        mMinLapTime = minLapTime;
+        mMaxLapTime = maxLapTime;
+        mLastLapTime = lastLapTime;
+        mLastSplitDelta = lastSplitDelta;
+        mMean = mean;
+        mSquaredDeviations = squaredDeviations;
+    }
+
+    public int getLapCount() { return mLapCount; }
+    public int getFastestLapNumber() { return mFastestLapNumber; }
+    public int getSlowestLapNumber() { return mSlowestLapNumber; }
+    public long getMinLapTime() { return mMinLapTime; }
+    public long getMaxLapTime() { return mMaxLapTime; }
+    public long getLastSplitDelta() { return mLastSplitDelta; }
+
+    /**
+     * @return the mean lap time in ms; {@code 0} if no laps are recorded
+     */
+    public long getMeanLapTime() {
+        return Math.round(mMean);
+    }
+
+    /**
+     * @return the population standard deviation of the lap times in ms; {@code 0} if fewer than
+     *      two laps are recorded
+     */
+    public long getStandardDeviation() {
+        return mLapCount < 2 ? 0 : Math.round(Math.sqrt(mSquaredDeviations / mLapCount));
+    }
+
+    /**
+     * @param lapTime the lap time of a lap recorded after all laps summarized by this instance
+     * @return the statistics including the new lap
+     */
+    LapStats add(long lapTime) {
+        final int lapCount = mLapCount + 1;
+        final double delta = lapTime - mMean;
+        final double mean = mMean + delta / lapCount;
+        final double squaredDeviations = mSquaredDeviations + delta * (lapTime - mean);
+
+        if (mLapCount == 0) {
+            return new LapStats(1, 1, 1, lapTime, lapTime, lapTime, 0, mean, squaredDeviations);
+        }
+
+        final boolean fastest = lapTime < mMinLapTime;
+        final boolean slowest = lapTime > mMaxLapTime;
+        return new LapStats(lapCount,
+                fastest ? lapCount : mFastestLapNumber,
+                slowest ? lapCount : mSlowestLapNumber,
+                fastest ? lapTime : mMinLapTime,
+                slowest ? lapTime : mMaxLapTime,
+                lapTime,
+                lapTime - mLastLapTime,
+                mean,
+                squaredDeviations);
+    }
+}
@@ -19,15 +19,20 @@ package com.wizardsofm.deskclock.data;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import com.wizardsofm.deskclock.AsyncHandler;
+import com.wizardsofm.deskclock.LogUtils;
 import com.wizardsofm.deskclock.Utils;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
  * This class encapsulates the transfer of data between {@link Stopwatch} and {@link Lap} domain
- * objects and their permanent storage in {@link SharedPreferences}.
+ * objects and their permanent storage. The stopwatch lives in {@link SharedPreferences}; laps are
+ * appended to a {@link LapLog} so that recording a lap never rewrites the ones before it. The lap
+ * log is opened and written on the {@link AsyncHandler.Lane#BACKGROUND background} lane.
  */
 final class StopwatchDAO {
 
@@ -40,12 +45,18 @@ final class StopwatchDAO {
     /** Key to a preference that stores the accumulated elapsed time of the stopwatch. */
     private static final String ACCUMULATED_TIME = "sw_accum_time";
 
-    /** Prefix for a key to a preference that stores the number of recorded laps. */
+    /** Key to a legacy preference that stored the number of recorded laps. */
     private static final String LAP_COUNT = "sw_lap_num";
 
-    /** Prefix for a key to a preference that stores accumulated time at the end of a lap. */
+    /** Prefix for a key to a legacy preference that stored accumulated time at the end of a lap. */
     private static final String LAP_ACCUMULATED_TIME = "sw_lap_time_";
 
+    /** Name of the file in which laps are recorded. */
+    private static final String LAP_LOG_NAME = "stopwatch_laps";
+
+    /** The log of recorded laps; lazily opened. */
+    private static LapLog sLapLog;
+
     private StopwatchDAO() {}
 
     /**
@@ -81,64 +92,148 @@ final class StopwatchDAO {
     }
 
     /**
-     * @return a list of recorded laps for the stopwatch
+     * @return a live, read-only view of the recorded laps in display order, i.e. most recent first
      */
     static List<Lap> getLaps(Context context) {
-        final SharedPreferences prefs = Utils.getDefaultSharedPreferences(context);
-
-        // Prepare the container to be filled with laps.
-        final int lapCount = prefs.getInt(LAP_COUNT, 0);
-        final List<Lap> laps = new ArrayList<>(lapCount);
+        final LapLog lapLog = getLapLog(context);
+        return new AbstractList<Lap>() {
+            @Override
+            public Lap get(int index) {
+                // Laps are stored in the order they were recorded; display order is the reverse.
+                final int lapNumber = lapLog.size() - index;
+                final long accumulatedTime = lapLog.getAccumulatedTime(lapNumber);
+                final long prevAccumulatedTime =
+                        lapNumber == 1 ? 0 : lapLog.getAccumulatedTime(lapNumber - 1);
+
+                // Lap time is the delta between accumulated time of this lap and prior lap.
+                return new Lap(lapNumber, accumulatedTime - prevAccumulatedTime, accumulatedTime);
+            }
+
+            @Override
+            public int size() {
+                return lapLog.size();
+            }
+        };
+    }
 
+    /**
+     * @return the statistics of all recorded laps, computed in a single pass
+     */
+    static LapStats getLapStats(Context context) {
+        final LapLog lapLog = getLapLog(context);
+        LapStats lapStats = LapStats.EMPTY;
         long prevAccumulatedTime = 0;
+        for (int lapNumber = 1; lapNumber <= lapLog.size(); lapNumber++) {
+            final long accumulatedTime = lapLog.getAccumulatedTime(lapNumber);
+            lapStats = lapStats.add(accumulatedTime - prevAccumulatedTime);
+            prevAccumulatedTime = accumulatedTime;
+        }
+        return lapStats;
+    }
 
-        // Lap numbers are 1-based and so the are corresponding shared preference keys.
-        for (int lapNumber = 1; lapNumber <= lapCount; lapNumber++) {
-            // Look up the accumulated time for the lap.
-            final String lapAccumulatedTimeKey = LAP_ACCUMULATED_TIME + lapNumber;
-            final long accumulatedTime = prefs.getLong(lapAccumulatedTimeKey, 0);
+    /**
+     * @param accumulatedTime the amount of time accumulate by the stopwatch at the end of the lap
+     */
+    static void addLap(Context context, long accumulatedTime) {
+        final LapLog lapLog = getLapLog(context);
+        lapLog.append(accumulatedTime);
+        flushLaps(lapLog);
+    }
+
+    /**
+     * Remove the recorded laps for the stopwatch
+     */
+    static void clearLaps(Context context) {
+        final LapLog lapLog = getLapLog(context);
+        lapLog.clear();
+        flushLaps(lapLog);
+    }
+
+    /**
+     * Opens the lap log in the background so that the first call to read laps need not.
+     */
+    static void preloadLaps(final Context context) {
+        AsyncHandler.post(AsyncHandler.Lane.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                getLapLog(context);
+            }
+        });
+    }
 
-            // Lap time is the delta between accumulated time of this lap and prior lap.
-            final long lapTime = accumulatedTime - prevAccumulatedTime;
+    /**
+     * Passes the recorded laps, oldest first, to {@code visitor}. The laps come from the lap log
+     * in memory, so laps recorded or cleared but not yet written to the file are reflected. Safe
+     * to call from any thread.
+     */
+    static void visitLaps(Context context, LapLog.Visitor visitor) throws IOException {
+        getLapLog(context).visit(visitor);
+    }
 
-            // Create the lap instance from the data.
-            laps.add(new Lap(lapNumber, lapTime, accumulatedTime));
+    /**
+     * Writes the laps changed in memory to the lap log file off the calling thread.
+     */
+    private static void flushLaps(final LapLog lapLog) {
+        AsyncHandler.post(AsyncHandler.Lane.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                lapLog.flush();
+            }
+        });
+    }
 
-            // Update the accumulated time of the previous lap.
-            prevAccumulatedTime = accumulatedTime;
+    private static synchronized LapLog getLapLog(Context context) {
+        if (sLapLog == null) {
+            sLapLog = LapLog.open(getLapLogFile(context));
         }
 
-        // Laps are stored in the order they were recorded; display order is the reverse.
-        Collections.reverse(laps);
-
-        return laps;
+        return sLapLog;
     }
 
     /**
-     * @param newLapCount the number of laps including the new lap
-     * @param accumulatedTime the amount of time accumulate by the stopwatch at the end of the lap
+     * @return the lap log file, into which any laps recorded by earlier versions have been moved
      */
-    static void addLap(Context context, int newLapCount, long accumulatedTime) {
-        final SharedPreferences prefs = Utils.getDefaultSharedPreferences(context);
-        prefs.edit()
-                .putInt(LAP_COUNT, newLapCount)
-                .putLong(LAP_ACCUMULATED_TIME + newLapCount, accumulatedTime)
-                .apply();
+    private static synchronized File getLapLogFile(Context context) {
+        final File file = new File(getStorageContext(context).getFilesDir(), LAP_LOG_NAME);
+        migrateLaps(context, file);
+        return file;
     }
 
     /**
-     * Remove the recorded laps for the stopwatch
+     * Moves laps recorded by earlier versions, one preference per lap, into the lap log. The log
+     * is written completely before the preferences are removed, so an interrupted migration is
+     * simply repeated.
      */
-    static void clearLaps(Context context) {
+    private static void migrateLaps(Context context, File file) {
         final SharedPreferences prefs = Utils.getDefaultSharedPreferences(context);
-        final SharedPreferences.Editor editor = prefs.edit();
+        if (!prefs.contains(LAP_COUNT)) {
+            return;
+        }
 
+        // Lap numbers are 1-based and so the are corresponding shared preference keys.
         final int lapCount = prefs.getInt(LAP_COUNT, 0);
+        final long[] accumulatedTimes = new long[lapCount];
+        for (int lapNumber = 1; lapNumber <= lapCount; lapNumber++) {
+            accumulatedTimes[lapNumber - 1] = prefs.getLong(LAP_ACCUMULATED_TIME + lapNumber, 0);
+        }
+
+        try {
+            LapLog.create(file, accumulatedTimes);
+        } catch (IOException e) {
+            LogUtils.e("Unable to migrate laps", e);
+            return;
+        }
+
+        final SharedPreferences.Editor editor = prefs.edit();
         for (int lapNumber = 1; lapNumber <= lapCount; lapNumber++) {
             editor.remove(LAP_ACCUMULATED_TIME + lapNumber);
         }
-        editor.remove(LAP_COUNT);
+        editor.remove(LAP_COUNT).commit();
+    }
 
-        editor.apply();
+    private static Context getStorageContext(Context context) {
+        // Laps must be readable before the user unlocks the device, so live alongside the
+        // preferences in device encrypted storage.
+        return Utils.isNOrLater() ? context.createDeviceProtectedStorageContext() : context;
     }
-}
\ No newline at end of file
+}
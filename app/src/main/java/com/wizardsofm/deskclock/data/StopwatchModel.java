@@ -27,7 +27,6 @@ import android.support.v4.app.NotificationManagerCompat;
 import com.wizardsofm.deskclock.Utils;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 /**
@@ -56,9 +55,12 @@ final class StopwatchModel {
     /** The current state of the stopwatch. */
     private Stopwatch mStopwatch;
 
-    /** A mutable copy of the recorded stopwatch laps. */
+    /** A live view of the recorded stopwatch laps, most recent first. */
     private List<Lap> mLaps;
 
+    /** The statistics of the recorded laps; updated incrementally as laps are added. */
+    private LapStats mLapStats;
+
     StopwatchModel(Context context, NotificationModel notificationModel) {
         mContext = context;
         mNotificationModel = notificationModel;
@@ -67,6 +69,9 @@ final class StopwatchModel {
         // Update stopwatch notification when locale changes.
         final IntentFilter localeBroadcastFilter = new IntentFilter(Intent.ACTION_LOCALE_CHANGED);
         mContext.registerReceiver(mLocaleChangedReceiver, localeBroadcastFilter);
+
+        // Read the recorded laps before they are first displayed.
+        StopwatchDAO.preloadLaps(context);
     }
 
     /**
@@ -126,7 +131,11 @@ final class StopwatchModel {
      * @return the laps recorded for this stopwatch
      */
     List<Lap> getLaps() {
-        return Collections.unmodifiableList(getMutableLaps());
+        if (mLaps == null) {
+            mLaps = StopwatchDAO.getLaps(mContext);
+        }
+
+        return mLaps;
     }
 
     /**
@@ -137,17 +146,12 @@ final class StopwatchModel {
             return null;
         }
 
-        final long totalTime = getStopwatch().getTotalTime();
-        final List<Lap> laps = getMutableLaps();
+        // Load the statistics of the prior laps before the new lap is recorded.
+        final LapStats priorLapStats = getLapStats();
 
-        final int lapNumber = laps.size() + 1;
-        StopwatchDAO.addLap(mContext, lapNumber, totalTime);
-
-        final long prevAccumulatedTime = laps.isEmpty() ? 0 : laps.get(0).getAccumulatedTime();
-        final long lapTime = totalTime - prevAccumulatedTime;
-
-        final Lap lap = new Lap(lapNumber, lapTime, totalTime);
-        laps.add(0, lap);
+        StopwatchDAO.addLap(mContext, getStopwatch().getTotalTime());
+        final Lap lap = getLaps().get(0);
+        mLapStats = priorLapStats.add(lap.getLapTime());
 
         // Refresh the stopwatch notification to reflect the latest stopwatch state.
         if (!mNotificationModel.isApplicationInForeground()) {
@@ -168,36 +172,39 @@ final class StopwatchModel {
     @VisibleForTesting
     void clearLaps() {
         StopwatchDAO.clearLaps(mContext);
-        getMutableLaps().clear();
+        mLapStats = LapStats.EMPTY;
     }
 
     /**
-     * @return {@code true} iff more laps can be recorded
+     * @return the statistics of the recorded laps
+     */
+    LapStats getLapStats() {
+        if (mLapStats == null) {
+            mLapStats = StopwatchDAO.getLapStats(mContext);
+        }
+
+        return mLapStats;
+    }
+
+    /**
+     * @return {@code true} iff more laps can be recorded; laps are limited only by storage
      */
     boolean canAddMoreLaps() {
-        return getLaps().size() < 98;
+        return true;
     }
 
     /**
      * @return the longest lap time of all recorded laps and the current lap
      */
     long getLongestLapTime() {
-        long maxLapTime = 0;
-
-        final List<Lap> laps = getLaps();
-        if (!laps.isEmpty()) {
-            // Compute the maximum lap time across all recorded laps.
-            for (Lap lap : getLaps()) {
-                maxLapTime = Math.max(maxLapTime, lap.getLapTime());
-            }
-
-            // Compare with the maximum lap time for the current lap.
-            final Stopwatch stopwatch = getStopwatch();
-            final long currentLapTime = stopwatch.getTotalTime() - laps.get(0).getAccumulatedTime();
-            maxLapTime = Math.max(maxLapTime, currentLapTime);
+        final LapStats lapStats = getLapStats();
+        if (lapStats.getLapCount() == 0) {
+            return 0;
         }
 
-        return maxLapTime;
+        // Compare the maximum lap time across all recorded laps with the current lap.
+        final long currentLapTime = getCurrentLapTime(getStopwatch().getTotalTime());
+        return Math.max(lapStats.getMaxLapTime(), currentLapTime);
     }
 
     /**
@@ -232,14 +239,6 @@ final class StopwatchModel {
         mNotificationManager.notify(mNotificationModel.getStopwatchNotificationId(), notification);
     }
 
-    private List<Lap> getMutableLaps() {
-        if (mLaps == null) {
-            mLaps = StopwatchDAO.getLaps(mContext);
-        }
-
-        return mLaps;
-    }
-
     private NotificationBuilder getNotificationBuilder() {
         if (mNotificationBuilder == null) {
             if (Utils.isNOrLater()) {
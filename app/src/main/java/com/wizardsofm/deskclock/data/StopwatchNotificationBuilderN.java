@@ -93,10 +93,10 @@ class StopwatchNotificationBuilderN implements StopwatchModel.NotificationBuilde
             }
 
             // Show the current lap number if any laps have been recorded.
-            final int lapCount = DataModel.getDataModel().getLaps().size();
+            final LapStats lapStats = DataModel.getDataModel().getLapStats();
+            final int lapCount = lapStats.getLapCount();
             if (lapCount > 0) {
-                final int lapNumber = lapCount + 1;
-                final String lap = res.getString(com.wizardsofm.deskclock.R.string.sw_notification_lap_number, lapNumber);
+                final String lap = StopwatchNotificationBuilderPreN.getLapText(res, lapStats);
                 content.setTextViewText(com.wizardsofm.deskclock.R.id.state, lap);
                 content.setViewVisibility(com.wizardsofm.deskclock.R.id.state, VISIBLE);
             } else {
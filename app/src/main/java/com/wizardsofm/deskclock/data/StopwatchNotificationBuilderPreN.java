@@ -100,10 +100,10 @@ class StopwatchNotificationBuilderPreN implements StopwatchModel.NotificationBui
             }
 
             // Show the current lap number if any laps have been recorded.
-            final int lapCount = DataModel.getDataModel().getLaps().size();
+            final LapStats lapStats = DataModel.getDataModel().getLapStats();
+            final int lapCount = lapStats.getLapCount();
             if (lapCount > 0) {
-                final int lapNumber = lapCount + 1;
-                final String lap = res.getString(R.string.sw_notification_lap_number, lapNumber);
+                final String lap = getLapText(res, lapStats);
                 collapsed.setTextViewText(R.id.swn_collapsed_laps, lap);
                 collapsed.setViewVisibility(R.id.swn_collapsed_laps, VISIBLE);
                 expanded.setTextViewText(R.id.swn_expanded_laps, lap);
@@ -161,4 +161,16 @@ class StopwatchNotificationBuilderPreN implements StopwatchModel.NotificationBui
     private static void setTextViewDrawable(RemoteViews rv, int viewId, int drawableId) {
         rv.setTextViewCompoundDrawablesRelative(viewId, drawableId, 0, 0, 0);
     }
-}
\ No newline at end of file
+
+    /**
+     * @return e.g. "Lap 3" or, once recorded laps can be compared, "Lap 3 · fastest: lap 1"
+     */
+    static String getLapText(Resources res, LapStats lapStats) {
+        final int lapNumber = lapStats.getLapCount() + 1;
+        if (lapStats.getLapCount() < 2) {
+            return res.getString(R.string.sw_notification_lap_number, lapNumber);
+        }
+        return res.getString(R.string.sw_notification_lap_stats, lapNumber,
+                lapStats.getFastestLapNumber());
+    }
+}
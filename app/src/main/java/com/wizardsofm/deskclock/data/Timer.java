@@ -108,8 +108,17 @@ public final class Timer {
     /** A flag indicating the timer should be deleted when it is reset. */
     private final boolean mDeleteAfterUse;
 
+    /** The phases of an interval timer; {@code null} for a timer with a single phase. */
+    private final IntervalSchedule mSchedule;
+
     Timer(int id, State state, long length, long totalLength, long lastStartTime,
             long remainingTime, String label, boolean deleteAfterUse) {
+        this(id, state, length, totalLength, lastStartTime, remainingTime, label, deleteAfterUse,
+                null);
+    }
+
+    Timer(int id, State state, long length, long totalLength, long lastStartTime,
+            long remainingTime, String label, boolean deleteAfterUse, IntervalSchedule schedule) {
         mId = id;
         mState = state;
         mLength = length;
@@ -118,6 +127,7 @@ public final class Timer {
         mRemainingTime = remainingTime;
         mLabel = label;
         mDeleteAfterUse = deleteAfterUse;
+        mSchedule = schedule;
     }
 
     public int getId() { return mId; }
@@ -130,6 +140,8 @@ public final class Timer {
     public boolean isRunning() { return mState == RUNNING; }
     public boolean isPaused() { return mState == PAUSED; }
     public boolean isExpired() { return mState == EXPIRED; }
+    public boolean isInterval() { return mSchedule != null; }
+    public IntervalSchedule getSchedule() { return mSchedule; }
 
     /**
      * @return the {@link Uri} identifying the timer instance.
@@ -177,6 +189,39 @@ public final class Timer {
         return getTotalLength() - getRemainingTime();
     }
 
+    /**
+     * @return the time remaining in the current phase of an interval timer; for other timers and
+     *      expired interval timers this is the {@link #getRemainingTime() remaining time}
+     */
+    public long getPhaseRemainingTime() {
+        if (mSchedule == null || mState == EXPIRED) {
+            return getRemainingTime();
+        }
+
+        return mSchedule.getPhaseRemainingTime(getElapsedTime());
+    }
+
+    /**
+     * @return the length of the current phase of an interval timer; for other timers and expired
+     *      interval timers this is the {@link #getTotalLength() total length}
+     */
+    public long getPhaseLength() {
+        if (mSchedule == null || mState == EXPIRED) {
+            return getTotalLength();
+        }
+
+        return mSchedule.getPhaseLength(mSchedule.getPhase(getElapsedTime()));
+    }
+
+    /**
+     * @return the time at which the current phase of this running interval timer ends; phase
+     *      boundaries are derived from the expiration time so they never drift
+     */
+    long getNextPhaseTime() {
+        final long nextBoundary = mSchedule.getNextBoundary(getElapsedTime());
+        return getExpirationTime() - (mTotalLength - nextBoundary);
+    }
+
     long getLastStartTime() { return mLastStartTime; }
 
     /**
@@ -188,7 +233,7 @@ public final class Timer {
         }
 
         return new Timer(mId, RUNNING, mLength, mTotalLength, now(), mRemainingTime, mLabel,
-                mDeleteAfterUse);
+                mDeleteAfterUse, mSchedule);
     }
 
     /**
@@ -203,7 +248,7 @@ public final class Timer {
 
         final long remainingTime = getRemainingTime();
         return new Timer(mId, PAUSED, mLength, mTotalLength, Long.MIN_VALUE, remainingTime, mLabel,
-                mDeleteAfterUse);
+                mDeleteAfterUse, mSchedule);
     }
 
     /**
@@ -215,7 +260,7 @@ public final class Timer {
         }
 
         return new Timer(mId, EXPIRED, mLength, mTotalLength, mLastStartTime, mRemainingTime,
-                mLabel, mDeleteAfterUse);
+                mLabel, mDeleteAfterUse, mSchedule);
     }
 
     /**
@@ -227,7 +272,7 @@ public final class Timer {
         }
 
         return new Timer(mId, RESET, mLength, mLength, Long.MIN_VALUE, mLength, mLabel,
-                mDeleteAfterUse);
+                mDeleteAfterUse, mSchedule);
     }
 
     /**
@@ -239,14 +284,20 @@ public final class Timer {
         }
 
         return new Timer(mId, mState, mLength, mTotalLength, mLastStartTime, mRemainingTime, label,
-                mDeleteAfterUse);
+                mDeleteAfterUse, mSchedule);
     }
 
     /**
      * @return a copy of this timer with an additional minute added to the remaining time and total
-     *      length, or this Timer if adding a minute would exceed the maximum timer duration
+     *      length, or this Timer if adding a minute would exceed the maximum timer duration or
+     *      this is an interval timer
      */
     Timer addMinute() {
+        // Extra time has no place in the fixed phases of an interval timer.
+        if (mSchedule != null) {
+            return this;
+        }
+
         final long lastStartTime;
         final long remainingTime;
         final long totalLength;
@@ -269,7 +320,7 @@ public final class Timer {
         }
 
         return new Timer(mId, state, mLength, totalLength, lastStartTime, remainingTime, mLabel,
-                mDeleteAfterUse);
+                mDeleteAfterUse, mSchedule);
     }
 
     @Override
@@ -17,170 +17,318 @@
 package com.wizardsofm.deskclock.data;
 
 import android.content.Context;
-import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteStatement;
 
-import com.wizardsofm.deskclock.Utils;
+import com.wizardsofm.deskclock.AsyncHandler;
+import com.wizardsofm.deskclock.LogUtils;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper.DELETE_AFTER_USE;
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper.LABEL;
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper.LAST_START_TIME;
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper.LENGTH;
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper.REMAINING_TIME;
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper.SCHEDULE;
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper.STATE;
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper.TIMERS_TABLE_NAME;
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper.TOTAL_LENGTH;
+import static com.wizardsofm.deskclock.data.TimerDatabaseHelper._ID;
 
 /**
  * This class encapsulates the transfer of data between {@link Timer} domain objects and their
- * permanent storage in {@link SharedPreferences}.
+ * permanent storage in the {@link TimerDatabaseHelper timers table}. Writes use statements that
+ * are compiled once and rebound for each timer, so the cost of persisting a change is a single
+ * row update regardless of how many timers exist.
+ *
+ * Writes are queued on the {@link AsyncHandler.Lane#BACKGROUND background} lane, which applies
+ * them in the order they were made. Ids of new timers are therefore assigned here rather than by
+ * the insert, continuing the table's sequence so an id is never handed out twice.
  */
 final class TimerDAO {
 
-    /** Key to a preference that stores the set of timer ids. */
-    private static final String TIMER_IDS = "timers_list";
-
-    /** Key to a preference that stores the id to assign to the next timer. */
-    private static final String NEXT_TIMER_ID = "next_timer_id";
-
-    /** Prefix for a key to a preference that stores the state of the timer. */
-    private static final String STATE = "timer_state_";
-
-    /** Prefix for a key to a preference that stores the original timer length at creation. */
-    private static final String LENGTH = "timer_setup_timet_";
-
-    /** Prefix for a key to a preference that stores the total timer length with additions. */
-    private static final String TOTAL_LENGTH = "timer_original_timet_";
-
-    /** Prefix for a key to a preference that stores the last start time of the timer. */
-    private static final String LAST_START_TIME = "timer_start_time_";
-
-    /** Prefix for a key to a preference that stores the remaining time before expiry. */
-    private static final String REMAINING_TIME = "timer_time_left_";
+    private static final String[] TIMER_COLUMNS = {
+            _ID,
+            STATE,
+            LENGTH,
+            TOTAL_LENGTH,
+            LAST_START_TIME,
+            REMAINING_TIME,
+            LABEL,
+            DELETE_AFTER_USE,
+            SCHEDULE
+    };
 
-    /** Prefix for a key to a preference that stores the label of the timer. */
-    private static final String LABEL = "timer_label_";
-
-    /** Prefix for a key to a preference that signals the timer should be deleted on first reset. */
-    private static final String DELETE_AFTER_USE = "delete_after_use_";
+    /**
+     * These save calls to cursor.getColumnIndexOrThrow()
+     * THEY MUST BE KEPT IN SYNC WITH ABOVE TIMER COLUMNS
+     */
+    private static final int ID_INDEX = 0;
+    private static final int STATE_INDEX = 1;
+    private static final int LENGTH_INDEX = 2;
+    private static final int TOTAL_LENGTH_INDEX = 3;
+    private static final int LAST_START_TIME_INDEX = 4;
+    private static final int REMAINING_TIME_INDEX = 5;
+    private static final int LABEL_INDEX = 6;
+    private static final int DELETE_AFTER_USE_INDEX = 7;
+    private static final int SCHEDULE_INDEX = 8;
+
+    /** Binds the timer fields at indices 1-8; both statements bind the id at index 9. */
+    private static final String INSERT_SQL = "INSERT INTO " + TIMERS_TABLE_NAME + " (" +
+            STATE + ", " + LENGTH + ", " + TOTAL_LENGTH + ", " + LAST_START_TIME + ", " +
+            REMAINING_TIME + ", " + LABEL + ", " + DELETE_AFTER_USE + ", " + SCHEDULE + ", " +
+            _ID + ") VALUES (?,?,?,?,?,?,?,?,?)";
+
+    private static final String UPDATE_SQL = "UPDATE " + TIMERS_TABLE_NAME + " SET " +
+            STATE + "=?, " + LENGTH + "=?, " + TOTAL_LENGTH + "=?, " + LAST_START_TIME + "=?, " +
+            REMAINING_TIME + "=?, " + LABEL + "=?, " + DELETE_AFTER_USE + "=?, " + SCHEDULE +
+            "=? WHERE " + _ID + "=?";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM " + TIMERS_TABLE_NAME + " WHERE " + _ID + "=?";
+
+    /** Reads the largest id ever assigned to a timer; AUTOINCREMENT records it. */
+    private static final String LAST_ID_SQL =
+            "SELECT seq FROM sqlite_sequence WHERE name='" + TIMERS_TABLE_NAME + "'";
+
+    /** Lazily opened database helper shared by all timer operations. */
+    private static TimerDatabaseHelper sHelper;
+
+    /** Compiled statements reused across writes; guarded by the class lock. */
+    private static SQLiteStatement sInsertStatement;
+    private static SQLiteStatement sUpdateStatement;
+    private static SQLiteStatement sDeleteStatement;
+
+    /** Guards {@link #sNextTimerId} so assigning an id never waits for a queued write. */
+    private static final Object sNextTimerIdLock = new Object();
+
+    /** The id to assign to the next timer; read from the database on first use. */
+    private static int sNextTimerId = -1;
 
     private TimerDAO() {}
 
     /**
      * @return the timers from permanent storage
      */
-    static List<Timer> getTimers(Context context) {
-        final SharedPreferences prefs = Utils.getDefaultSharedPreferences(context);
-
-        // Read the set of timer ids.
-        final Set<String> timerIds = prefs.getStringSet(TIMER_IDS, Collections.<String>emptySet());
-        final List<Timer> timers = new ArrayList<>(timerIds.size());
-
-        // Build a timer using the data associated with each timer id.
-        for (String timerId : timerIds) {
-            final int id = Integer.parseInt(timerId);
-            final int stateValue = prefs.getInt(STATE + id, Timer.State.RESET.getValue());
-            final Timer.State state = Timer.State.fromValue(stateValue);
-
-            // Timer state may be null when migrating timers from prior releases which defined a
-            // "deleted" state. Such a state is no longer required.
-            if (state != null) {
-                final long length = prefs.getLong(LENGTH + id, Long.MIN_VALUE);
-                final long totalLength = prefs.getLong(TOTAL_LENGTH + id, Long.MIN_VALUE);
-                final long lastStartTime = prefs.getLong(LAST_START_TIME + id, Long.MIN_VALUE);
-                final long remainingTime = prefs.getLong(REMAINING_TIME + id, totalLength);
-                final String label = prefs.getString(LABEL + id, null);
-                final boolean deleteAfterUse = prefs.getBoolean(DELETE_AFTER_USE + id, false);
-                timers.add(new Timer(id, state, length, totalLength, lastStartTime, remainingTime,
-                        label, deleteAfterUse));
+    static synchronized List<Timer> getTimers(Context context) {
+        try (Cursor cursor = queryTimers(context)) {
+            final List<Timer> timers = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                final Timer timer = readTimer(cursor);
+                if (timer != null) {
+                    timers.add(timer);
+                }
             }
+            return timers;
         }
+    }
+
+    /**
+     * Callers may step through the returned cursor on any thread without holding up writes; it
+     * pages rows in from the database rather than loading them all.
+     *
+     * @return a cursor over all timers in permanent storage, ordered by id, to be read with
+     *      {@link #readTimer}
+     */
+    static synchronized Cursor queryTimers(Context context) {
+        final SQLiteDatabase db = getHelper(context).getReadableDatabase();
+        return db.query(TIMERS_TABLE_NAME, TIMER_COLUMNS, null, null, null, null, _ID);
+    }
 
-        return timers;
+    /**
+     * @param cursor a cursor returned by {@link #queryTimers} positioned at a row
+     * @return the timer stored in the current row; {@code null} if its state is unrecognized
+     */
+    static Timer readTimer(Cursor cursor) {
+        final Timer.State state = Timer.State.fromValue(cursor.getInt(STATE_INDEX));
+        if (state == null) {
+            return null;
+        }
+        return new Timer(cursor.getInt(ID_INDEX), state,
+                cursor.getLong(LENGTH_INDEX),
+                cursor.getLong(TOTAL_LENGTH_INDEX),
+                cursor.getLong(LAST_START_TIME_INDEX),
+                cursor.getLong(REMAINING_TIME_INDEX),
+                cursor.getString(LABEL_INDEX),
+                cursor.getInt(DELETE_AFTER_USE_INDEX) == 1,
+                IntervalSchedule.parse(cursor.getString(SCHEDULE_INDEX)));
     }
 
     /**
      * @param timer the timer to be added
+     * @return a copy of {@code timer} bearing its newly assigned id
      */
     static Timer addTimer(Context context, Timer timer) {
-        final SharedPreferences prefs = Utils.getDefaultSharedPreferences(context);
-        final SharedPreferences.Editor editor = prefs.edit();
-
-        // Fetch the next timer id.
-        final int id = prefs.getInt(NEXT_TIMER_ID, 0);
-        editor.putInt(NEXT_TIMER_ID, id + 1);
-
-        // Add the new timer id to the set of all timer ids.
-        final Set<String> timerIds = new HashSet<>(getTimerIds(context));
-        timerIds.add(String.valueOf(id));
-        editor.putStringSet(TIMER_IDS, timerIds);
-
-        // Record the fields of the timer.
-        editor.putInt(STATE + id, timer.getState().getValue());
-        editor.putLong(LENGTH + id, timer.getLength());
-        editor.putLong(TOTAL_LENGTH + id, timer.getTotalLength());
-        editor.putLong(LAST_START_TIME + id, timer.getLastStartTime());
-        editor.putLong(REMAINING_TIME + id, timer.getRemainingTime());
-        editor.putString(LABEL + id, timer.getLabel());
-        editor.putBoolean(DELETE_AFTER_USE + id, timer.getDeleteAfterUse());
-
-        editor.apply();
-
-        // Return a new timer with the generated timer id present.
-        return new Timer(id, timer.getState(), timer.getLength(), timer.getTotalLength(),
-                timer.getLastStartTime(), timer.getRemainingTime(), timer.getLabel(),
-                timer.getDeleteAfterUse());
+        final Timer added = new Timer(nextTimerId(context), timer.getState(), timer.getLength(),
+                timer.getTotalLength(), timer.getLastStartTime(), timer.getLastRemainingTime(),
+                timer.getLabel(), timer.getDeleteAfterUse(), timer.getSchedule());
+        final Context appContext = context.getApplicationContext();
+        AsyncHandler.post(AsyncHandler.Lane.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                insertTimer(appContext, added);
+            }
+        });
+        return added;
     }
 
     /**
      * @param timer the timer to be updated
      */
-    static void updateTimer(Context context, Timer timer) {
-        final SharedPreferences prefs = Utils.getDefaultSharedPreferences(context);
-        final SharedPreferences.Editor editor = prefs.edit();
-
-        // Record the fields of the timer.
-        final int id = timer.getId();
-        editor.putInt(STATE + id, timer.getState().getValue());
-        editor.putLong(LENGTH + id, timer.getLength());
-        editor.putLong(TOTAL_LENGTH + id, timer.getTotalLength());
-        editor.putLong(LAST_START_TIME + id, timer.getLastStartTime());
-        editor.putLong(REMAINING_TIME + id, timer.getRemainingTime());
-        editor.putString(LABEL + id, timer.getLabel());
-        editor.putBoolean(DELETE_AFTER_USE + id, timer.getDeleteAfterUse());
-
-        editor.apply();
+    static void updateTimer(Context context, final Timer timer) {
+        final Context appContext = context.getApplicationContext();
+        AsyncHandler.post(AsyncHandler.Lane.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                writeTimer(appContext, timer);
+            }
+        });
     }
 
     /**
      * @param timer the timer to be removed
      */
-    static void removeTimer(Context context, Timer timer) {
-        final SharedPreferences prefs = Utils.getDefaultSharedPreferences(context);
-        final SharedPreferences.Editor editor = prefs.edit();
-
-        final int id = timer.getId();
-
-        // Remove the timer id from the set of all timer ids.
-        final Set<String> timerIds = new HashSet<>(getTimerIds(context));
-        timerIds.remove(String.valueOf(id));
-        if (timerIds.isEmpty()) {
-            editor.remove(TIMER_IDS);
-            editor.remove(NEXT_TIMER_ID);
-        } else {
-            editor.putStringSet(TIMER_IDS, timerIds);
+    static void removeTimer(Context context, final Timer timer) {
+        final Context appContext = context.getApplicationContext();
+        AsyncHandler.post(AsyncHandler.Lane.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                deleteTimer(appContext, timer);
+            }
+        });
+    }
+
+    /**
+     * Persists a batch of timer changes in a single transaction. Timers added by the batch are
+     * replaced in {@code after} by copies that bear their newly assigned ids before this method
+     * returns; the transaction itself runs later on the background lane.
+     *
+     * @param before the state of each timer before the batch; {@code null} for added timers
+     * @param after the state of each timer after the batch; {@code null} for removed timers
+     */
+    static void applyChanges(Context context, List<Timer> before, List<Timer> after) {
+        for (int i = 0; i < before.size(); i++) {
+            if (before.get(i) == null) {
+                final Timer timer = after.get(i);
+                after.set(i, new Timer(nextTimerId(context), timer.getState(), timer.getLength(),
+                        timer.getTotalLength(), timer.getLastStartTime(),
+                        timer.getLastRemainingTime(), timer.getLabel(), timer.getDeleteAfterUse(),
+                        timer.getSchedule()));
+            }
         }
 
-        // Record the fields of the timer.
-        editor.remove(STATE + id);
-        editor.remove(LENGTH + id);
-        editor.remove(TOTAL_LENGTH + id);
-        editor.remove(LAST_START_TIME + id);
-        editor.remove(REMAINING_TIME + id);
-        editor.remove(LABEL + id);
-        editor.remove(DELETE_AFTER_USE + id);
+        final Context appContext = context.getApplicationContext();
+        final List<Timer> beforeCopy = new ArrayList<>(before);
+        final List<Timer> afterCopy = new ArrayList<>(after);
+        AsyncHandler.post(AsyncHandler.Lane.BACKGROUND, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    writeChanges(appContext, beforeCopy, afterCopy);
+                } catch (SQLiteException e) {
+                    LogUtils.e("Unable to write timer changes", e);
+                }
+            }
+        });
+    }
 
-        editor.apply();
+    /**
+     * @return the id to assign to a new timer; one more than the largest id ever assigned
+     */
+    private static int nextTimerId(Context context) {
+        synchronized (sNextTimerIdLock) {
+            if (sNextTimerId < 0) {
+                final SQLiteDatabase db = getHelper(context).getReadableDatabase();
+                try (Cursor cursor = db.rawQuery(LAST_ID_SQL, null)) {
+                    sNextTimerId = cursor.moveToFirst() ? cursor.getInt(0) + 1 : 0;
+                }
+            }
+            return sNextTimerId++;
+        }
+    }
+
+    private static synchronized void insertTimer(Context context, Timer timer) {
+        if (sInsertStatement == null) {
+            sInsertStatement = compile(context, INSERT_SQL);
+        }
+
+        bindTimer(sInsertStatement, timer);
+        sInsertStatement.bindLong(9, timer.getId());
+        sInsertStatement.executeInsert();
     }
 
-    private static Set<String> getTimerIds(Context context) {
-        final SharedPreferences prefs = Utils.getDefaultSharedPreferences(context);
-        return prefs.getStringSet(TIMER_IDS, Collections.<String>emptySet());
+    private static synchronized void writeTimer(Context context, Timer timer) {
+        if (sUpdateStatement == null) {
+            sUpdateStatement = compile(context, UPDATE_SQL);
+        }
+
+        bindTimer(sUpdateStatement, timer);
+        sUpdateStatement.bindLong(9, timer.getId());
+        sUpdateStatement.executeUpdateDelete();
+    }
+
+    private static synchronized void deleteTimer(Context context, Timer timer) {
+        if (sDeleteStatement == null) {
+            sDeleteStatement = compile(context, DELETE_SQL);
+        }
+
+        sDeleteStatement.bindLong(1, timer.getId());
+        sDeleteStatement.executeUpdateDelete();
+    }
+
+    private static synchronized void writeChanges(Context context, List<Timer> before,
+            List<Timer> after) {
+        final SQLiteDatabase db = getHelper(context).getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < before.size(); i++) {
+                final Timer timer = after.get(i);
+                if (before.get(i) == null) {
+                    insertTimer(context, timer);
+                } else if (timer == null) {
+                    deleteTimer(context, before.get(i));
+                } else {
+                    writeTimer(context, timer);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static void bindTimer(SQLiteStatement statement, Timer timer) {
+        statement.clearBindings();
+        statement.bindLong(1, timer.getState().getValue());
+        statement.bindLong(2, timer.getLength());
+        statement.bindLong(3, timer.getTotalLength());
+        statement.bindLong(4, timer.getLastStartTime());
+        statement.bindLong(5, timer.getLastRemainingTime());
+        if (timer.getLabel() == null) {
+            statement.bindNull(6);
+        } else {
+            statement.bindString(6, timer.getLabel());
+        }
+        statement.bindLong(7, timer.getDeleteAfterUse() ? 1 : 0);
+        if (timer.getSchedule() == null) {
+            statement.bindNull(8);
+        } else {
+            statement.bindString(8, timer.getSchedule().toString());
+        }
+    }
+
+    private static SQLiteStatement compile(Context context, String sql) {
+        return getHelper(context).getWritableDatabase().compileStatement(sql);
+    }
+
+    private static synchronized TimerDatabaseHelper getHelper(Context context) {
+        if (sHelper == null) {
+            sHelper = new TimerDatabaseHelper(context.getApplicationContext());
+        }
+        return sHelper;
     }
-}
\ No newline at end of file
+}
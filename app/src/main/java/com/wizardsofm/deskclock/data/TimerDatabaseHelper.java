@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.data;
+
+import android.annotation.TargetApi;
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
+
+import com.wizardsofm.deskclock.LogUtils;
+import com.wizardsofm.deskclock.Utils;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Opens the database that holds timers. Each timer is a single row, so persisting a change to one
+ * timer rewrites only that row rather than every preference the application owns.
+ *
+ * Timers were previously stored as a handful of {@link SharedPreferences} keys per timer; those are
+ * copied into the table and removed when the database is first created.
+ */
+final class TimerDatabaseHelper extends SQLiteOpenHelper {
+
+    /**
+     * Original timer database.
+     */
+    private static final int VERSION_1 = 1;
+
+    /**
+     * Added SCHEDULE column for interval timers.
+     */
+    private static final int VERSION_2 = 2;
+
+    static final String DATABASE_NAME = "timers.db";
+    static final String TIMERS_TABLE_NAME = "timers";
+
+    // Column names
+    static final String _ID = "_id";
+    static final String STATE = "state";
+    static final String LENGTH = "length";
+    static final String TOTAL_LENGTH = "total_length";
+    static final String LAST_START_TIME = "last_start_time";
+    static final String REMAINING_TIME = "remaining_time";
+    static final String LABEL = "label";
+    static final String DELETE_AFTER_USE = "delete_after_use";
+    static final String SCHEDULE = "schedule";
+
+    /** Key to a legacy preference that stores the set of timer ids. */
+    private static final String PREF_TIMER_IDS = "timers_list";
+
+    /** Key to a legacy preference that stores the id to assign to the next timer. */
+    private static final String PREF_NEXT_TIMER_ID = "next_timer_id";
+
+    /** Prefix for a key to a legacy preference that stores the state of the timer. */
+    private static final String PREF_STATE = "timer_state_";
+
+    /** Prefix for a key to a legacy preference that stores the original timer length. */
+    private static final String PREF_LENGTH = "timer_setup_timet_";
+
+    /** Prefix for a key to a legacy preference that stores the total timer length. */
+    private static final String PREF_TOTAL_LENGTH = "timer_original_timet_";
+
+    /** Prefix for a key to a legacy preference that stores the last start time of the timer. */
+    private static final String PREF_LAST_START_TIME = "timer_start_time_";
+
+    /** Prefix for a key to a legacy preference that stores the remaining time before expiry. */
+    private static final String PREF_REMAINING_TIME = "timer_time_left_";
+
+    /** Prefix for a key to a legacy preference that stores the label of the timer. */
+    private static final String PREF_LABEL = "timer_label_";
+
+    /** Prefix for a key to a legacy preference that signals deletion on first reset. */
+    private static final String PREF_DELETE_AFTER_USE = "delete_after_use_";
+
+    /** Used to locate the legacy timer preferences during migration. */
+    private final Context mContext;
+
+    TimerDatabaseHelper(Context context) {
+        super(getStorageContext(context), DATABASE_NAME, null, VERSION_2);
+        mContext = context;
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TIMERS_TABLE_NAME + " (" +
+                _ID + " INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                STATE + " INTEGER NOT NULL, " +
+                LENGTH + " INTEGER NOT NULL, " +
+                TOTAL_LENGTH + " INTEGER NOT NULL, " +
+                LAST_START_TIME + " INTEGER NOT NULL, " +
+                REMAINING_TIME + " INTEGER NOT NULL, " +
+                LABEL + " TEXT, " +
+                DELETE_AFTER_USE + " INTEGER NOT NULL DEFAULT 0, " +
+                SCHEDULE + " TEXT);");
+        LogUtils.i("Timers table created");
+
+        migrateTimerPreferences(db);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int currentVersion) {
+        LogUtils.v("Upgrading timers database from version %d to %d", oldVersion, currentVersion);
+
+        if (oldVersion < VERSION_2) {
+            db.execSQL("ALTER TABLE " + TIMERS_TABLE_NAME + " ADD COLUMN " + SCHEDULE + " TEXT;");
+        }
+    }
+
+    /**
+     * Copies timers stored by prior releases in {@link SharedPreferences} into the new table,
+     * preserving their ids, and then discards the preferences. The table's id sequence resumes
+     * from the legacy next timer id so that ids handed out before the migration are not reused.
+     */
+    private void migrateTimerPreferences(SQLiteDatabase db) {
+        final SharedPreferences prefs = Utils.getDefaultSharedPreferences(mContext);
+        final Set<String> timerIds =
+                prefs.getStringSet(PREF_TIMER_IDS, Collections.<String>emptySet());
+        if (timerIds.isEmpty() && !prefs.contains(PREF_NEXT_TIMER_ID)) {
+            return;
+        }
+
+        LogUtils.i("Copying %d timers from preferences", timerIds.size());
+        final SharedPreferences.Editor editor = prefs.edit();
+        final ContentValues values = new ContentValues(8);
+        int lastId = prefs.getInt(PREF_NEXT_TIMER_ID, 0) - 1;
+        for (String timerId : timerIds) {
+            final int id = Integer.parseInt(timerId);
+            lastId = Math.max(lastId, id);
+            final int stateValue = prefs.getInt(PREF_STATE + id, Timer.State.RESET.getValue());
+
+            // Timer state may be null when migrating timers from prior releases which defined a
+            // "deleted" state. Such a state is no longer required.
+            if (Timer.State.fromValue(stateValue) != null) {
+                final long totalLength = prefs.getLong(PREF_TOTAL_LENGTH + id, Long.MIN_VALUE);
+                values.clear();
+                values.put(_ID, id);
+                values.put(STATE, stateValue);
+                values.put(LENGTH, prefs.getLong(PREF_LENGTH + id, Long.MIN_VALUE));
+                values.put(TOTAL_LENGTH, totalLength);
+                values.put(LAST_START_TIME, prefs.getLong(PREF_LAST_START_TIME + id,
+                        Long.MIN_VALUE));
+                values.put(REMAINING_TIME, prefs.getLong(PREF_REMAINING_TIME + id, totalLength));
+                values.put(LABEL, prefs.getString(PREF_LABEL + id, null));
+                values.put(DELETE_AFTER_USE,
+                        prefs.getBoolean(PREF_DELETE_AFTER_USE + id, false) ? 1 : 0);
+                db.insert(TIMERS_TABLE_NAME, null, values);
+            }
+
+            editor.remove(PREF_STATE + id);
+            editor.remove(PREF_LENGTH + id);
+            editor.remove(PREF_TOTAL_LENGTH + id);
+            editor.remove(PREF_LAST_START_TIME + id);
+            editor.remove(PREF_REMAINING_TIME + id);
+            editor.remove(PREF_LABEL + id);
+            editor.remove(PREF_DELETE_AFTER_USE + id);
+        }
+
+        // AUTOINCREMENT keeps the largest id handed out in sqlite_sequence; seed it.
+        if (lastId >= 0) {
+            db.execSQL("DELETE FROM sqlite_sequence WHERE name=?",
+                    new Object[] { TIMERS_TABLE_NAME });
+            db.execSQL("INSERT INTO sqlite_sequence (name, seq) VALUES (?, ?)",
+                    new Object[] { TIMERS_TABLE_NAME, lastId });
+        }
+
+        editor.remove(PREF_TIMER_IDS);
+        editor.remove(PREF_NEXT_TIMER_ID);
+        editor.apply();
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private static Context getStorageContext(Context context) {
+        if (!Utils.isNOrLater()) {
+            return context;
+        }
+
+        // Timers must be readable before the user unlocks the device, so live alongside the
+        // preferences in device encrypted storage.
+        final Context storageContext = context.createDeviceProtectedStorageContext();
+        if (!storageContext.moveDatabaseFrom(context, DATABASE_NAME)) {
+            LogUtils.wtf("Failed to migrate database: %s", DATABASE_NAME);
+        }
+        return storageContext;
+    }
+}
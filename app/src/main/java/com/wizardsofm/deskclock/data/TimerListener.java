@@ -16,6 +16,8 @@
 
 package com.wizardsofm.deskclock.data;
 
+import java.util.List;
+
 /**
  * The interface through which interested parties are notified of changes to one of the timers.
  */
@@ -36,4 +38,16 @@ public interface TimerListener {
      * @param timer the timer that was removed
      */
     void timerRemoved(Timer timer);
+
+    /**
+     * Reports the changes made by a bulk operation in a single callback; the individual
+     * callbacks above are not invoked for them. Both lists have the same size and corresponding
+     * elements describe the same timer.
+     *
+     * @param before the state of each changed timer before the operation; {@code null} elements
+     *      indicate added timers
+     * @param after the state of each changed timer after the operation; {@code null} elements
+     *      indicate removed timers
+     */
+    void timersChanged(List<Timer> before, List<Timer> after);
 }
\ No newline at end of file
@@ -30,6 +30,8 @@ import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import android.media.Ringtone;
 import android.media.RingtoneManager;
 import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.StringRes;
 import android.support.v4.app.NotificationManagerCompat;
 import android.util.ArraySet;
@@ -44,8 +46,12 @@ import com.wizardsofm.deskclock.timer.TimerService;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.NavigableMap;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 import static android.app.AlarmManager.ELAPSED_REALTIME_WAKEUP;
 
@@ -54,6 +60,15 @@ import static android.app.AlarmManager.ELAPSED_REALTIME_WAKEUP;
  */
 final class TimerModel {
 
+    /** Orders running or expired timers by expiration time; ties broken by id. */
+    private static final Comparator<Timer> EXPIRATION_ORDER = new Comparator<Timer>() {
+        @Override
+        public int compare(Timer timer1, Timer timer2) {
+            final int order = Long.compare(timer1.getExpirationTime(), timer2.getExpirationTime());
+            return order != 0 ? order : Integer.compare(timer1.getId(), timer2.getId());
+        }
+    };
+
     private final Context mContext;
 
     /** The alarm manager system service that calls back when timers expire. */
@@ -82,6 +97,9 @@ final class TimerModel {
     /** The listeners to notify when a timer is added, updated or removed. */
     private final List<TimerListener> mTimerListeners = new ArrayList<>();
 
+    /** Broadcasts {@link DataModel#ACTION_TIMERS_CHANGED} once per burst of timer changes. */
+    private final TimersChangedNotifier mTimersChangedNotifier = new TimersChangedNotifier();
+
     /**
      * The ids of expired timers for which the ringer is ringing. Not all expired timers have their
      * ids in this collection. If a timer was already expired when the app was started its id will
@@ -96,11 +114,32 @@ final class TimerModel {
     /** The title of the ringtone to play for timers. */
     private String mTimerRingtoneTitle;
 
-    /** A mutable copy of the timers. */
-    private List<Timer> mTimers;
+    /** All timers keyed by id, newest first; {@code null} until loaded from storage. */
+    private NavigableMap<Integer, Timer> mTimers;
+
+    /** Running timers ordered by expiration time; the first is the next to expire. */
+    private final TreeSet<Timer> mRunningTimers = new TreeSet<>(EXPIRATION_ORDER);
+
+    /** Expired timers ordered by expiration time; the last is the most recent to expire. */
+    private final TreeSet<Timer> mExpiredTimers = new TreeSet<>(EXPIRATION_ORDER);
 
-    /** A mutable copy of the expired timers. */
-    private List<Timer> mExpiredTimers;
+    /** An immutable snapshot of all timers; rebuilt on demand after any timer changes. */
+    private List<Timer> mTimersSnapshot;
+
+    /** An immutable snapshot of the expired timers; rebuilt on demand after expiries change. */
+    private List<Timer> mExpiredTimersSnapshot;
+
+    /**
+     * While a bulk operation is in progress, the state of each changed timer before the change;
+     * {@code null} elements indicate added timers. {@code null} when no bulk operation is active.
+     */
+    private List<Timer> mBatchBefore;
+
+    /**
+     * While a bulk operation is in progress, the state of each changed timer after the change;
+     * {@code null} elements indicate removed timers. {@code null} when no bulk operation is active.
+     */
+    private List<Timer> mBatchAfter;
 
     /** Delegate that builds platform-specific timer notifications. */
     private NotificationBuilder mNotificationBuilder;
@@ -127,6 +166,9 @@ final class TimerModel {
         // Update stopwatch notification when locale changes.
         final IntentFilter localeBroadcastFilter = new IntentFilter(Intent.ACTION_LOCALE_CHANGED);
         mContext.registerReceiver(mLocaleChangedReceiver, localeBroadcastFilter);
+
+        // Tell the timer widgets about every change to the timers.
+        mTimerListeners.add(mTimersChangedNotifier);
     }
 
     /**
@@ -147,14 +189,24 @@ final class TimerModel {
      * @return all defined timers in their creation order
      */
     List<Timer> getTimers() {
-        return Collections.unmodifiableList(getMutableTimers());
+        if (mTimersSnapshot == null) {
+            mTimersSnapshot =
+                    Collections.unmodifiableList(new ArrayList<>(getTimerMap().values()));
+        }
+
+        return mTimersSnapshot;
     }
 
     /**
      * @return all expired timers in their expiration order
      */
     List<Timer> getExpiredTimers() {
-        return Collections.unmodifiableList(getMutableExpiredTimers());
+        if (mExpiredTimersSnapshot == null) {
+            getTimerMap();
+            mExpiredTimersSnapshot = Collections.unmodifiableList(new ArrayList<>(mExpiredTimers));
+        }
+
+        return mExpiredTimersSnapshot;
     }
 
     /**
@@ -162,13 +214,7 @@ final class TimerModel {
      * @return the timer with the given {@code timerId}
      */
     Timer getTimer(int timerId) {
-        for (Timer timer : getMutableTimers()) {
-            if (timer.getId() == timerId) {
-                return timer;
-            }
-        }
-
-        return null;
+        return getTimerMap().get(timerId);
     }
 
     /**
@@ -176,8 +222,8 @@ final class TimerModel {
      *      expired
      */
     Timer getMostRecentExpiredTimer() {
-        final List<Timer> timers = getMutableExpiredTimers();
-        return timers.isEmpty() ? null : timers.get(timers.size() - 1);
+        getTimerMap();
+        return mExpiredTimers.isEmpty() ? null : mExpiredTimers.last();
     }
 
     /**
@@ -188,14 +234,31 @@ final class TimerModel {
      */
     Timer addTimer(long length, String label, boolean deleteAfterUse) {
         // Create the timer instance.
-        Timer timer = new Timer(-1, Timer.State.RESET, length, length, Long.MIN_VALUE, length, label,
-                deleteAfterUse);
+        final Timer timer = new Timer(-1, Timer.State.RESET, length, length, Long.MIN_VALUE,
+                length, label, deleteAfterUse);
+        return doAddTimer(timer);
+    }
+
+    /**
+     * @param schedule the phases of the interval timer
+     * @param label describes the purpose of the timer
+     * @param deleteAfterUse {@code true} indicates the timer should be deleted when it is reset
+     * @return the newly added interval timer
+     */
+    Timer addIntervalTimer(IntervalSchedule schedule, String label, boolean deleteAfterUse) {
+        final long length = schedule.getTotalLength();
+        final Timer timer = new Timer(-1, Timer.State.RESET, length, length, Long.MIN_VALUE,
+                length, label, deleteAfterUse, schedule);
+        return doAddTimer(timer);
+    }
 
+    private Timer doAddTimer(Timer timer) {
         // Add the timer to permanent storage.
         timer = TimerDAO.addTimer(mContext, timer);
 
         // Add the timer to the cache.
-        getMutableTimers().add(0, timer);
+        getTimerMap().put(timer.getId(), timer);
+        mTimersSnapshot = null;
 
         // Update the timer notification.
         updateNotification();
@@ -209,6 +272,67 @@ final class TimerModel {
         return timer;
     }
 
+    /**
+     * Adds a group of timers, such as those of a preset, in a single bulk operation.
+     *
+     * @param lengths the length of each timer in milliseconds
+     * @param label describes the purpose of the timers
+     * @param start {@code true} to start all of the new timers together
+     * @return the newly added timers
+     */
+    List<Timer> addTimers(long[] lengths, String label, boolean start) {
+        beginBatch();
+        for (long length : lengths) {
+            final Timer timer = new Timer(-1, Timer.State.RESET, length, length, Long.MIN_VALUE,
+                    length, label, false);
+            mBatchBefore.add(null);
+            mBatchAfter.add(start ? timer.start() : timer);
+        }
+
+        // Heads-Up notification is unaffected by this change
+        return commitBatch(false);
+    }
+
+    /**
+     * Resumes all paused timers.
+     */
+    void startTimers() {
+        beginBatch();
+        for (Timer timer : getTimers()) {
+            if (timer.isPaused()) {
+                doUpdateTimer(timer.start());
+            }
+        }
+
+        // Heads-Up notification is unaffected by this change
+        commitBatch(false);
+    }
+
+    /**
+     * Pauses all running timers.
+     */
+    void pauseTimers() {
+        beginBatch();
+        for (Timer timer : getTimers()) {
+            if (timer.isRunning()) {
+                doUpdateTimer(timer.pause());
+            }
+        }
+
+        // Heads-Up notification is unaffected by this change
+        commitBatch(false);
+    }
+
+    /**
+     * Called when a running interval timer reaches a phase boundary. Refreshes the notification,
+     * which counts down the current phase, and schedules the callback for the next boundary.
+     */
+    void updateTimerPhases() {
+        updatePhaseAlarm();
+        updateNotification();
+        mTimersChangedNotifier.schedule();
+    }
+
     /**
      * @param service used to start foreground notifications related to expired timers
      * @param timer the timer to be expired
@@ -286,14 +410,11 @@ final class TimerModel {
      * @param eventLabelId the label of the timer event to send; 0 if no event should be sent
      */
     void resetTimers(@StringRes int eventLabelId) {
-        final List<Timer> timers = new ArrayList<>(getTimers());
-        for (Timer timer : timers) {
+        beginBatch();
+        for (Timer timer : getTimers()) {
             doResetOrDeleteTimer(timer, eventLabelId);
         }
-
-        // Update the notifications once after all timers are reset.
-        updateNotification();
-        updateHeadsUpNotification();
+        commitBatch(true);
     }
 
     /**
@@ -302,16 +423,13 @@ final class TimerModel {
      * @param eventLabelId the label of the timer event to send; 0 if no event should be sent
      */
     void resetExpiredTimers(@StringRes int eventLabelId) {
-        final List<Timer> timers = new ArrayList<>(getTimers());
-        for (Timer timer : timers) {
+        beginBatch();
+        for (Timer timer : getTimers()) {
             if (timer.isExpired()) {
                 doResetOrDeleteTimer(timer, eventLabelId);
             }
         }
-
-        // Update the notifications once after all timers are updated.
-        updateNotification();
-        updateHeadsUpNotification();
+        commitBatch(true);
     }
 
     /**
@@ -320,16 +438,15 @@ final class TimerModel {
      * @param eventLabelId the label of the timer event to send; 0 if no event should be sent
      */
     void resetUnexpiredTimers(@StringRes int eventLabelId) {
-        final List<Timer> timers = new ArrayList<>(getTimers());
-        for (Timer timer : timers) {
+        beginBatch();
+        for (Timer timer : getTimers()) {
             if (timer.isRunning() || timer.isPaused()) {
                 doResetOrDeleteTimer(timer, eventLabelId);
             }
         }
 
-        // Update the notification once after all timers are updated.
-        updateNotification();
         // Heads-Up notification is unaffected by this change
+        commitBatch(false);
     }
 
     /**
@@ -403,28 +520,45 @@ final class TimerModel {
         mSettingsModel.setTimerVibrate(enabled);
     }
 
-    private List<Timer> getMutableTimers() {
+    /**
+     * @return the cache of all timers, loading it from permanent storage on first use
+     */
+    private NavigableMap<Integer, Timer> getTimerMap() {
         if (mTimers == null) {
-            mTimers = TimerDAO.getTimers(mContext);
-            Collections.sort(mTimers, Timer.ID_COMPARATOR);
+            // Iterating in descending id order lists the newest timers first.
+            mTimers = new TreeMap<>(Collections.<Integer>reverseOrder());
+            for (Timer timer : TimerDAO.getTimers(mContext)) {
+                mTimers.put(timer.getId(), timer);
+                addToExpiryQueue(timer);
+            }
         }
 
         return mTimers;
     }
 
-    private List<Timer> getMutableExpiredTimers() {
-        if (mExpiredTimers == null) {
-            mExpiredTimers = new ArrayList<>();
-
-            for (Timer timer : getMutableTimers()) {
-                if (timer.isExpired()) {
-                    mExpiredTimers.add(timer);
-                }
-            }
-            Collections.sort(mExpiredTimers, Timer.EXPIRY_COMPARATOR);
+    /**
+     * Adds the given {@code timer} to the running or expired queue that matches its state.
+     */
+    private void addToExpiryQueue(Timer timer) {
+        if (timer.isRunning()) {
+            mRunningTimers.add(timer);
+        } else if (timer.isExpired()) {
+            mExpiredTimers.add(timer);
+            mExpiredTimersSnapshot = null;
         }
+    }
 
-        return mExpiredTimers;
+    /**
+     * Removes the given {@code timer} from the running or expired queue that matches its state.
+     * The instance must be the one that was queued so its expiration time locates it.
+     */
+    private void removeFromExpiryQueue(Timer timer) {
+        if (timer.isRunning()) {
+            mRunningTimers.remove(timer);
+        } else if (timer.isExpired()) {
+            mExpiredTimers.remove(timer);
+            mExpiredTimersSnapshot = null;
+        }
     }
 
     /**
@@ -436,26 +570,30 @@ final class TimerModel {
      */
     private Timer doUpdateTimer(Timer timer) {
         // Retrieve the cached form of the timer.
-        final List<Timer> timers = getMutableTimers();
-        final int index = timers.indexOf(timer);
-        final Timer before = timers.get(index);
+        final NavigableMap<Integer, Timer> timers = getTimerMap();
+        final Timer before = timers.get(timer.getId());
 
         // If no change occurred, ignore this update.
         if (timer == before) {
             return timer;
         }
 
-        // Update the timer in permanent storage.
-        TimerDAO.updateTimer(mContext, timer);
-
-        // Update the timer in the cache.
-        final Timer oldTimer = timers.set(index, timer);
+        // Update the timer in the cache and move it between the expiry queues.
+        final Timer oldTimer = timers.put(timer.getId(), timer);
+        removeFromExpiryQueue(before);
+        addToExpiryQueue(timer);
+        mTimersSnapshot = null;
 
-        // Clear the cache of expired timers if the timer changed to/from expired.
-        if (before.isExpired() || timer.isExpired()) {
-            mExpiredTimers = null;
+        // A bulk operation persists and reports all of its changes when it commits.
+        if (mBatchBefore != null) {
+            mBatchBefore.add(before);
+            mBatchAfter.add(timer);
+            return oldTimer;
         }
 
+        // Update the timer in permanent storage.
+        TimerDAO.updateTimer(mContext, timer);
+
         // Update the timer expiration callback.
         updateAlarmManager();
 
@@ -477,25 +615,30 @@ final class TimerModel {
      * @param timer an existing timer to be removed
      */
     void doRemoveTimer(Timer timer) {
-        // Remove the timer from permanent storage.
-        TimerDAO.removeTimer(mContext, timer);
-
         // Remove the timer from the cache.
-        final List<Timer> timers = getMutableTimers();
-        final int index = timers.indexOf(timer);
+        final Timer removed = getTimerMap().remove(timer.getId());
 
         // If the timer cannot be located there is nothing to remove.
-        if (index == -1) {
+        if (removed == null) {
+            // Remove any trace of the timer from permanent storage regardless.
+            TimerDAO.removeTimer(mContext, timer);
             return;
         }
 
-        timer = timers.remove(index);
+        timer = removed;
+        removeFromExpiryQueue(timer);
+        mTimersSnapshot = null;
 
-        // Clear the cache of expired timers if a new expired timer was added.
-        if (timer.isExpired()) {
-            mExpiredTimers = null;
+        // A bulk operation persists and reports all of its changes when it commits.
+        if (mBatchBefore != null) {
+            mBatchBefore.add(timer);
+            mBatchAfter.add(null);
+            return;
         }
 
+        // Remove the timer from permanent storage.
+        TimerDAO.removeTimer(mContext, timer);
+
         // Update the timer expiration callback.
         updateAlarmManager();
 
@@ -539,6 +682,72 @@ final class TimerModel {
         return timer;
     }
 
+    /**
+     * Starts collecting timer changes so they can be committed together by {@link #commitBatch}.
+     */
+    private void beginBatch() {
+        mBatchBefore = new ArrayList<>();
+        mBatchAfter = new ArrayList<>();
+    }
+
+    /**
+     * Completes the bulk operation begun by {@link #beginBatch}. Updated and removed timers were
+     * already applied to the cache as they were changed; added timers receive their ids and join
+     * the cache here. All changes are then persisted in a single write on the background lane,
+     * the expiration callback is updated once, the changes are reported to listeners in a single
+     * callback and the notifications are rebuilt once.
+     *
+     * @param updateHeadsUp {@code true} if the changes may affect the expired timers
+     * @return the state of each changed timer after the batch; added timers bear their new ids
+     */
+    private List<Timer> commitBatch(boolean updateHeadsUp) {
+        final List<Timer> before = mBatchBefore;
+        final List<Timer> after = mBatchAfter;
+        mBatchBefore = null;
+        mBatchAfter = null;
+
+        if (before.isEmpty()) {
+            return after;
+        }
+
+        // Persist all changes at once; this assigns the ids of added timers.
+        TimerDAO.applyChanges(mContext, before, after);
+
+        // Add the new timers to the cache.
+        final NavigableMap<Integer, Timer> timers = getTimerMap();
+        for (int i = 0; i < before.size(); i++) {
+            if (before.get(i) == null) {
+                final Timer added = after.get(i);
+                timers.put(added.getId(), added);
+                addToExpiryQueue(added);
+            }
+        }
+        mTimersSnapshot = null;
+
+        // Update the timer expiration callback.
+        updateAlarmManager();
+
+        // Update the timer ringer.
+        for (int i = 0; i < before.size(); i++) {
+            updateRinger(before.get(i), after.get(i));
+        }
+
+        // Notify listeners of all changes at once.
+        final List<Timer> beforeList = Collections.unmodifiableList(before);
+        final List<Timer> afterList = Collections.unmodifiableList(after);
+        for (TimerListener timerListener : mTimerListeners) {
+            timerListener.timersChanged(beforeList, afterList);
+        }
+
+        // Update the notifications once after all timers are updated.
+        updateNotification();
+        if (updateHeadsUp) {
+            updateHeadsUpNotification();
+        }
+
+        return afterList;
+    }
+
     /**
      * Updates the callback given to this application from the {@link AlarmManager} that signals the
      * expiration of the next timer. If no timers are currently set to expire (i.e. no running
@@ -546,16 +755,8 @@ final class TimerModel {
      */
     private void updateAlarmManager() {
         // Locate the next firing timer if one exists.
-        Timer nextExpiringTimer = null;
-        for (Timer timer : getMutableTimers()) {
-            if (timer.isRunning()) {
-                if (nextExpiringTimer == null) {
-                    nextExpiringTimer = timer;
-                } else if (timer.getExpirationTime() < nextExpiringTimer.getExpirationTime()) {
-                    nextExpiringTimer = timer;
-                }
-            }
-        }
+        getTimerMap();
+        final Timer nextExpiringTimer = mRunningTimers.isEmpty() ? null : mRunningTimers.first();
 
         // Build the intent that signals the timer expiration.
         final Intent intent = TimerService.createTimerExpiredIntent(mContext, nextExpiringTimer);
@@ -574,6 +775,44 @@ final class TimerModel {
                     0, intent, PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_UPDATE_CURRENT);
             schedulePendingIntent(mAlarmManager, nextExpiringTimer.getExpirationTime(), pi);
         }
+
+        updatePhaseAlarm();
+    }
+
+    /**
+     * Updates the callback from the {@link AlarmManager} that signals the next phase boundary of
+     * any running interval timer. Only the single nearest boundary is ever registered; the final
+     * boundary of each interval timer is its expiration and is covered by the expiration callback.
+     */
+    private void updatePhaseAlarm() {
+        // Load the timers; a phase callback may be the first thing to start this process.
+        getTimerMap();
+
+        long nextPhaseTime = Long.MAX_VALUE;
+        for (Timer timer : mRunningTimers) {
+            if (timer.isInterval()) {
+                final long phaseTime = timer.getNextPhaseTime();
+                if (phaseTime < timer.getExpirationTime()) {
+                    nextPhaseTime = Math.min(nextPhaseTime, phaseTime);
+                }
+            }
+        }
+
+        final Intent intent = TimerService.createTimerPhaseIntent(mContext);
+        if (nextPhaseTime == Long.MAX_VALUE) {
+            // Cancel the existing phase callback.
+            final PendingIntent pi = PendingIntent.getService(mContext,
+                    1, intent, PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_NO_CREATE);
+            if (pi != null) {
+                mAlarmManager.cancel(pi);
+                pi.cancel();
+            }
+        } else {
+            // Update the existing phase callback.
+            final PendingIntent pi = PendingIntent.getService(mContext,
+                    1, intent, PendingIntent.FLAG_ONE_SHOT | PendingIntent.FLAG_UPDATE_CURRENT);
+            schedulePendingIntent(mAlarmManager, nextPhaseTime, pi);
+        }
     }
 
     /**
@@ -618,7 +857,7 @@ final class TimerModel {
 
         // Filter the timers to just include unexpired ones.
         final List<Timer> unexpired = new ArrayList<>();
-        for (Timer timer : getMutableTimers()) {
+        for (Timer timer : getTimerMap().values()) {
             if (timer.isRunning() || timer.isPaused()) {
                 unexpired.add(timer);
             }
@@ -688,6 +927,48 @@ final class TimerModel {
         }
     }
 
+    /**
+     * Coalesces all timer changes made while handling one message on the main thread (e.g. the
+     * individual updates of a reset or an expiry that also restarts the alarm) into a single
+     * {@link DataModel#ACTION_TIMERS_CHANGED} broadcast, so widgets rebuild their views once.
+     */
+    private final class TimersChangedNotifier implements TimerListener, Runnable {
+
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void timerAdded(Timer timer) {
+            schedule();
+        }
+
+        @Override
+        public void timerUpdated(Timer before, Timer after) {
+            schedule();
+        }
+
+        @Override
+        public void timerRemoved(Timer timer) {
+            schedule();
+        }
+
+        @Override
+        public void timersChanged(List<Timer> before, List<Timer> after) {
+            schedule();
+        }
+
+        void schedule() {
+            mHandler.removeCallbacks(this);
+            mHandler.post(this);
+        }
+
+        @Override
+        public void run() {
+            final Intent intent = new Intent(DataModel.ACTION_TIMERS_CHANGED)
+                    .setPackage(mContext.getPackageName());
+            mContext.sendBroadcast(intent);
+        }
+    }
+
     /**
      * This receiver is notified when shared preferences change. Cached information built on
      * preferences must be cleared.
@@ -125,12 +125,29 @@ class TimerNotificationBuilderN implements TimerModel.NotificationBuilder {
                 stateText = res.getString(com.wizardsofm.deskclock.R.string.timers_stopped, count);
             }
 
+            // Left button: Pause all or Resume all
+            final Intent toggle;
+            final Icon icon1;
+            final CharSequence title1;
+            if (running) {
+                toggle = TimerService.createPauseTimersIntent(context);
+                icon1 = Icon.createWithResource(context, com.wizardsofm.deskclock.R.drawable.ic_pause_24dp);
+                title1 = res.getText(com.wizardsofm.deskclock.R.string.timer_pause_all);
+            } else {
+                toggle = TimerService.createStartTimersIntent(context);
+                icon1 = Icon.createWithResource(context, com.wizardsofm.deskclock.R.drawable.ic_start_24dp);
+                title1 = res.getText(com.wizardsofm.deskclock.R.string.timer_resume_all);
+            }
+            final PendingIntent intent1 = Utils.pendingServiceIntent(context, toggle);
+            actions.add(new Notification.Action.Builder(icon1, title1, intent1).build());
+
+            // Right button: Reset all
             final Intent reset = TimerService.createResetUnexpiredTimersIntent(context);
 
-            final Icon icon1 = Icon.createWithResource(context, com.wizardsofm.deskclock.R.drawable.ic_reset_24dp);
-            final CharSequence title1 = res.getText(com.wizardsofm.deskclock.R.string.timer_reset_all);
-            final PendingIntent intent1 = Utils.pendingServiceIntent(context, reset);
-            actions.add(new Notification.Action.Builder(icon1, title1, intent1).build());
+            final Icon icon2 = Icon.createWithResource(context, com.wizardsofm.deskclock.R.drawable.ic_reset_24dp);
+            final CharSequence title2 = res.getText(com.wizardsofm.deskclock.R.string.timer_reset_all);
+            final PendingIntent intent2 = Utils.pendingServiceIntent(context, reset);
+            actions.add(new Notification.Action.Builder(icon2, title2, intent2).build());
         }
 
         content.setTextViewText(com.wizardsofm.deskclock.R.id.state, stateText);
@@ -244,7 +261,7 @@ class TimerNotificationBuilderN implements TimerModel.NotificationBuilder {
     private static long getChronometerBase(Timer timer) {
         // The in-app timer display rounds *up* to the next second for positive timer values. Mirror
         // that behavior in the notification's Chronometer by padding in an extra second as needed.
-        final long remaining = timer.getRemainingTime();
+        final long remaining = timer.getPhaseRemainingTime();
         final long adjustedRemaining = remaining < 0 ? remaining : remaining + SECOND_IN_MILLIS;
 
         // Chronometer will/did reach 0:00 adjustedRemaining milliseconds from now.
@@ -47,7 +47,7 @@ class TimerNotificationBuilderPreN implements TimerModel.NotificationBuilder {
     @Override
     public Notification build(Context context, NotificationModel nm, List<Timer> unexpired) {
         final Timer timer = unexpired.get(0);
-        final long remainingTime = timer.getRemainingTime();
+        final long remainingTime = timer.getPhaseRemainingTime();
 
         // Generate some descriptive text, a title, and some actions based on timer states.
         final String contentText;
@@ -106,9 +106,19 @@ class TimerNotificationBuilderPreN implements TimerModel.NotificationBuilder {
                 contentTitle = context.getString(com.wizardsofm.deskclock.R.string.timers_stopped, unexpired.size());
             }
 
-            firstActionIconId = com.wizardsofm.deskclock.R.drawable.ic_reset_24dp;
-            firstActionTitleId = com.wizardsofm.deskclock.R.string.timer_reset_all;
-            firstActionIntent = TimerService.createResetUnexpiredTimersIntent(context);
+            if (timer.isRunning()) {
+                firstActionIconId = com.wizardsofm.deskclock.R.drawable.ic_pause_24dp;
+                firstActionTitleId = com.wizardsofm.deskclock.R.string.timer_pause_all;
+                firstActionIntent = TimerService.createPauseTimersIntent(context);
+            } else {
+                firstActionIconId = com.wizardsofm.deskclock.R.drawable.ic_start_24dp;
+                firstActionTitleId = com.wizardsofm.deskclock.R.string.timer_resume_all;
+                firstActionIntent = TimerService.createStartTimersIntent(context);
+            }
+
+            secondActionIconId = com.wizardsofm.deskclock.R.drawable.ic_reset_24dp;
+            secondActionTitleId = com.wizardsofm.deskclock.R.string.timer_reset_all;
+            secondActionIntent = TimerService.createResetUnexpiredTimersIntent(context);
         }
 
         // Intent to load the app and show the timer when the notification is tapped.
@@ -0,0 +1,222 @@
+/*
+ * Copyright (C) 2015 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.wizardsofm.deskclock.data;
+
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+
+import static android.text.format.DateUtils.DAY_IN_MILLIS;
+import static android.text.format.DateUtils.HOUR_IN_MILLIS;
+import static android.text.format.DateUtils.MINUTE_IN_MILLIS;
+
+/**
+ * A process-wide cache of the UTC offsets of the time zones displayed as world clocks. The first
+ * lookup for a zone precomputes its offset intervals for the coming year; subsequent offset, day
+ * and day-boundary lookups are then binary searches over those intervals rather than calls into
+ * {@link TimeZone} and {@link Calendar}.
+ *
+ * Time zone rules only change when tzdata is updated, which requires the process to restart, so
+ * the cache need only be {@link #invalidate() invalidated} when the device time zone changes.
+ */
+public final class ZoneTransitions {
+
+    /** The span of time covered by the intervals computed for a zone. */
+    private static final long HORIZON = 366 * DAY_IN_MILLIS;
+
+    /** Offsets are sampled at this interval; transitions are then located to the minute. */
+    private static final long SCAN_STEP = 12 * HOUR_IN_MILLIS;
+
+    /** 1970-01-01, local day 0, was a Thursday. */
+    private static final int EPOCH_DAY_OF_WEEK = Calendar.THURSDAY;
+
+    /** Maps each time zone id to its precomputed offset intervals. */
+    private static final Map<String, Intervals> sIntervals = new HashMap<>();
+
+    private ZoneTransitions() {}
+
+    /**
+     * @return the offset from UTC of {@code zone} at {@code time}, including daylight savings
+     */
+    public static synchronized int getOffset(TimeZone zone, long time) {
+        return getIntervals(zone, time).getOffset(time);
+    }
+
+    /**
+     * @return the time of the first offset change of {@code zone} after {@code time}, or
+     *      {@link Long#MAX_VALUE} if it does not change within the coming year
+     */
+    public static synchronized long getNextTransition(TimeZone zone, long time) {
+        return getIntervals(zone, time).getNextTransition(time);
+    }
+
+    /**
+     * @return the number of whole days between the epoch and {@code time} in {@code zone}
+     */
+    public static synchronized long getLocalDay(TimeZone zone, long time) {
+        return toLocalDay(time, getIntervals(zone, time).getOffset(time));
+    }
+
+    /**
+     * @return the day of week of {@code time} in {@code zone}, e.g. {@link Calendar#MONDAY}
+     */
+    public static int getDayOfWeek(TimeZone zone, long time) {
+        final int dayOfWeek = (int) (getLocalDay(zone, time) % 7);
+        return (dayOfWeek + 7 + EPOCH_DAY_OF_WEEK - Calendar.SUNDAY) % 7 + Calendar.SUNDAY;
+    }
+
+    /**
+     * @return {@code true} iff {@code time} falls on different days in the two zones
+     */
+    public static synchronized boolean isDifferentDay(TimeZone zone1, TimeZone zone2, long time) {
+        return getLocalDay(zone1, time) != getLocalDay(zone2, time);
+    }
+
+    /**
+     * @return the first moment after {@code time} that falls on the following day in {@code zone}
+     */
+    public static synchronized long getNextMidnight(TimeZone zone, long time) {
+        final Intervals intervals = getIntervals(zone, time);
+        final int offset = intervals.getOffset(time);
+        final long nextDay = toLocalDay(time, offset) + 1;
+        final long localMidnight = nextDay * DAY_IN_MILLIS;
+
+        final long midnight = localMidnight - offset;
+        final int midnightOffset = getIntervals(zone, midnight).getOffset(midnight);
+        if (midnightOffset == offset) {
+            return midnight;
+        }
+
+        // The offset changes before midnight. If clocks fall back across midnight, the day begins
+        // once midnight recurs at the new offset; if they spring forward over it, the day begins
+        // at the transition itself.
+        final long shiftedMidnight = localMidnight - midnightOffset;
+        return toLocalDay(shiftedMidnight, midnightOffset) == nextDay ? shiftedMidnight : midnight;
+    }
+
+    /**
+     * Discards all cached intervals; called when the device time zone changes.
+     */
+    public static synchronized void invalidate() {
+        sIntervals.clear();
+    }
+
+    private static long toLocalDay(long time, int offset) {
+        final long localTime = time + offset;
+        // Round toward negative infinity so times before the epoch map to negative days.
+        return localTime >= 0 ? localTime / DAY_IN_MILLIS
+                : (localTime - DAY_IN_MILLIS + 1) / DAY_IN_MILLIS;
+    }
+
+    private static Intervals getIntervals(TimeZone zone, long time) {
+        final String id = zone.getID();
+        Intervals intervals = sIntervals.get(id);
+        if (intervals == null || !intervals.contains(time)) {
+            intervals = Intervals.compute(zone, time);
+            sIntervals.put(id, intervals);
+        }
+        return intervals;
+    }
+
+    /**
+     * The offsets of one time zone over a span of time, as a sorted array of interval start times
+     * and a parallel array of the offset in effect throughout each interval.
+     */
+    private static final class Intervals {
+
+        private final long[] mStarts;
+        private final int[] mOffsets;
+        private final long mEnd;
+
+        private Intervals(long[] starts, int[] offsets, long end) {
+            mStarts = starts;
+            mOffsets = offsets;
+            mEnd = end;
+        }
+
+        private boolean contains(long time) {
+            return time >= mStarts[0] && time < mEnd;
+        }
+
+        private int getOffset(long time) {
+            return mOffsets[indexOf(time)];
+        }
+
+        private long getNextTransition(long time) {
+            final int next = indexOf(time) + 1;
+            return next < mStarts.length ? mStarts[next] : Long.MAX_VALUE;
+        }
+
+        private int indexOf(long time) {
+            final int index = Arrays.binarySearch(mStarts, time);
+            return index >= 0 ? index : -index - 2;
+        }
+
+        /**
+         * Samples the offsets of {@code zone} from a day before {@code time} through the coming
+         * year and locates each change to the minute.
+         */
+        private static Intervals compute(TimeZone zone, long time) {
+            final long start = (time - DAY_IN_MILLIS) / MINUTE_IN_MILLIS * MINUTE_IN_MILLIS;
+            final long end = start + HORIZON;
+
+            long[] starts = new long[4];
+            int[] offsets = new int[4];
+            starts[0] = start;
+            offsets[0] = zone.getOffset(start);
+            int count = 1;
+
+            for (long sample = start; sample < end; ) {
+                final long next = Math.min(sample + SCAN_STEP, end);
+                final int offset = zone.getOffset(next);
+                if (offset != offsets[count - 1]) {
+                    if (count == starts.length) {
+                        starts = Arrays.copyOf(starts, count * 2);
+                        offsets = Arrays.copyOf(offsets, count * 2);
+                    }
+                    starts[count] = findTransition(zone, sample, next, offsets[count - 1]);
+                    offsets[count] = offset;
+                    count++;
+                }
+                sample = next;
+            }
+
+            return new Intervals(Arrays.copyOf(starts, count), Arrays.copyOf(offsets, count), end);
+        }
+
+        /**
+         * @return the first minute in ({@code low}, {@code high}] at which {@code zone} no longer
+         *      has offset {@code lowOffset}
+         */
+        private static long findTransition(TimeZone zone, long low, long high, int lowOffset) {
+            long lowMinute = low / MINUTE_IN_MILLIS;
+            long highMinute = (high + MINUTE_IN_MILLIS - 1) / MINUTE_IN_MILLIS;
+            while (highMinute - lowMinute > 1) {
+                final long mid = (lowMinute + highMinute) >>> 1;
+                if (zone.getOffset(mid * MINUTE_IN_MILLIS) == lowOffset) {
+                    lowMinute = mid;
+                } else {
+                    highMinute = mid;
+                }
+            }
+            return highMinute * MINUTE_IN_MILLIS;
+        }
+    }
+}
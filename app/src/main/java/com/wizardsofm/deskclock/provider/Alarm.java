@@ -20,7 +20,6 @@ import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
-import android.content.CursorLoader;
 import android.content.Intent;
 import android.database.Cursor;
 import android.media.RingtoneManager;
@@ -48,6 +47,14 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
             ClockDatabaseHelper.ALARMS_TABLE_NAME + "." +  MINUTES + " ASC" + ", " +
             ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + _ID + " DESC";
 
+    /**
+     * The columns of {@link #DEFAULT_SORT_ORDER}, used to locate pages of alarms by keyset.
+     */
+    private static final String KEYSET_HOUR = ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + HOUR;
+    private static final String KEYSET_MINUTES =
+            ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + MINUTES;
+    private static final String KEYSET_ID = ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + _ID;
+
     private static final String[] QUERY_COLUMNS = {
             _ID,
             HOUR,
@@ -82,13 +89,27 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
             ClockDatabaseHelper.INSTANCES_TABLE_NAME + "." + VIBRATE
     };
 
+    /**
+     * The columns of the alarm index: the sort key of each alarm plus the integer columns that
+     * change whenever the alarm or its displayed instance does.
+     */
+    private static final String[] QUERY_ALARM_INDEX_COLUMNS = {
+            ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + _ID,
+            ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + HOUR,
+            ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + MINUTES,
+            ClockDatabaseHelper.ALARMS_TABLE_NAME + "." + VERSION,
+            ClockDatabaseHelper.INSTANCES_TABLE_NAME + "." + _ID,
+            ClockDatabaseHelper.INSTANCES_TABLE_NAME + "."
+                    + ClockContract.InstancesColumns.ALARM_STATE
+    };
+
     /**
      * These save calls to cursor.getColumnIndexOrThrow()
      * THEY MUST BE KEPT IN SYNC WITH ABOVE QUERY COLUMNS
      */
-    private static final int ID_INDEX = 0;
-    private static final int HOUR_INDEX = 1;
-    private static final int MINUTES_INDEX = 2;
+    public static final int ID_INDEX = 0;
+    public static final int HOUR_INDEX = 1;
+    public static final int MINUTES_INDEX = 2;
     private static final int DAYS_OF_WEEK_INDEX = 3;
     private static final int ENABLED_INDEX = 4;
     private static final int VIBRATE_INDEX = 5;
@@ -105,6 +126,14 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
     public static final int INSTANCE_LABEL_INDEX = 16;
     public static final int INSTANCE_VIBRATE_INDEX = 17;
 
+    /**
+     * Indices of the columns of {@link #getAlarmIndexCursor} following the shared
+     * {@link #ID_INDEX}, {@link #HOUR_INDEX} and {@link #MINUTES_INDEX}.
+     */
+    private static final int INDEX_VERSION_INDEX = 3;
+    private static final int INDEX_INSTANCE_ID_INDEX = 4;
+    private static final int INDEX_INSTANCE_STATE_INDEX = 5;
+
     private static final int COLUMN_COUNT = DELETE_AFTER_USE_INDEX + 1;
     private static final int ALARM_JOIN_INSTANCE_COLUMN_COUNT = INSTANCE_VIBRATE_INDEX + 1;
 
@@ -144,14 +173,70 @@ public final class Alarm implements Parcelable, ClockContract.AlarmsColumns {
     }
 
     /**
-     * Get alarm cursor loader for all alarms.
+     * Get a cursor over all alarms joined with their instances, in display order.
+     *
+     * @param cr to perform the query on.
+     * @return cursor with all the alarms, or null if the query failed.
+     */
+    public static Cursor getAlarmsWithInstancesCursor(ContentResolver cr) {
+        return cr.query(ALARMS_WITH_INSTANCES_URI, QUERY_ALARMS_WITH_INSTANCES_COLUMNS, null, null,
+                DEFAULT_SORT_ORDER);
+    }
+
+    /**
+     * Get a cursor over the index of all alarms, in display order. Each row holds only the
+     * {@link #ID_INDEX id}, {@link #HOUR_INDEX hour} and {@link #MINUTES_INDEX minutes} of an
+     * alarm and the integer columns read by {@link #getChangeMarker}.
+     *
+     * @param cr to perform the query on.
+     * @return cursor over the alarm index, or null if the query failed.
+     */
+    public static Cursor getAlarmIndexCursor(ContentResolver cr) {
+        return cr.query(ALARMS_WITH_INSTANCES_URI, QUERY_ALARM_INDEX_COLUMNS, null, null,
+                DEFAULT_SORT_ORDER);
+    }
+
+    /**
+     * @param c a cursor returned by {@link #getAlarmIndexCursor}
+     * @return a value that changes whenever the alarm in the current row is updated or its
+     *      displayed instance is replaced or changes state
+     */
+    public static int getChangeMarker(Cursor c) {
+        final int version = c.getInt(INDEX_VERSION_INDEX);
+        final long instanceId = c.isNull(INDEX_INSTANCE_ID_INDEX)
+                ? INVALID_ID : c.getLong(INDEX_INSTANCE_ID_INDEX);
+        final int instanceState = c.isNull(INDEX_INSTANCE_STATE_INDEX)
+                ? -1 : c.getInt(INDEX_INSTANCE_STATE_INDEX);
+        return (31 * version + (int) (instanceId ^ (instanceId >>> 32))) * 31 + instanceState;
+    }
+
+    /**
+     * Get a page of alarms joined with their instances, in display order. The page is located by
+     * the sort key of the alarm preceding it rather than by offset, so the cost of the query does
+     * not grow with the distance of the page from the start of the list.
      *
-     * @param context to query the database.
-     * @return cursor loader with all the alarms.
+     * @param cr to perform the query on.
+     * @param hour the hour of the alarm preceding the page, or -1 for the first page.
+     * @param minutes the minutes of the alarm preceding the page.
+     * @param alarmId the id of the alarm preceding the page.
+     * @param limit the maximum number of rows to return.
+     * @return cursor with the alarms in the page, or null if the query failed.
      */
-    public static CursorLoader getAlarmsCursorLoader(Context context) {
-        return new CursorLoader(context, ALARMS_WITH_INSTANCES_URI,
-                QUERY_ALARMS_WITH_INSTANCES_COLUMNS, null, null, DEFAULT_SORT_ORDER);
+    public static Cursor getAlarmsWithInstancesCursor(ContentResolver cr, int hour, int minutes,
+            long alarmId, int limit) {
+        final Uri uri = ALARMS_WITH_INSTANCES_URI.buildUpon()
+                .appendQueryParameter(ClockContract.QUERY_PARAMETER_LIMIT, String.valueOf(limit))
+                .build();
+        final String selection = KEYSET_HOUR + " > ? OR (" + KEYSET_HOUR + " = ? AND ("
+                + KEYSET_MINUTES + " > ? OR (" + KEYSET_MINUTES + " = ? AND "
+                + KEYSET_ID + " < ?)))";
+        final String[] selectionArgs = {
+                String.valueOf(hour), String.valueOf(hour),
+                String.valueOf(minutes), String.valueOf(minutes),
+                String.valueOf(alarmId)
+        };
+        return cr.query(uri, QUERY_ALARMS_WITH_INSTANCES_COLUMNS, selection, selectionArgs,
+                DEFAULT_SORT_ORDER);
     }
 
     /**
@@ -24,6 +24,7 @@ import android.content.Intent;
 import android.database.Cursor;
 import android.media.RingtoneManager;
 import android.net.Uri;
+import android.os.Bundle;
 
 import com.wizardsofm.deskclock.LogUtils;
 import com.wizardsofm.deskclock.Utils;
@@ -60,6 +61,22 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
      */
     public static final long INVALID_ID = -1;
 
+    /**
+     * Provider method that commits an instance state transition to one or more comma-separated
+     * instance ids; see {@link #updateInstanceState(ContentResolver, AlarmInstance, boolean)}.
+     */
+    static final String METHOD_TRANSITION = "transition_instance";
+
+    /**
+     * Boolean extra of {@link #METHOD_TRANSITION} requesting the next firing instance.
+     */
+    static final String EXTRA_QUERY_NEXT_ALARM = "query_next_alarm";
+
+    /**
+     * Int extra of the {@link #METHOD_TRANSITION} result holding the number of updated rows.
+     */
+    static final String EXTRA_UPDATED_ROWS = "updated_rows";
+
     private static final String[] QUERY_COLUMNS = {
             _ID,
             YEAR,
@@ -259,12 +276,110 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
         return rowsUpdated == 1;
     }
 
+    /**
+     * Commits the state and alarm time of {@code instance} with a single provider call. The
+     * provider applies the change in one update statement and emits one change notification. When
+     * {@code queryNextAlarm} is true the provider also looks up, within the same transaction, the
+     * instance that will fire next so callers can refresh the next-alarm indicator without
+     * issuing another query.
+     *
+     * @param contentResolver to perform the update on
+     * @param instance whose state and alarm time should be committed
+     * @param queryNextAlarm true to include the next firing instance in the result
+     * @return the result of the transition; never null
+     */
+    public static Transition updateInstanceState(ContentResolver contentResolver,
+            AlarmInstance instance, boolean queryNextAlarm) {
+        if (instance.mId == INVALID_ID) return new Transition(false, null);
+        return transition(contentResolver, String.valueOf(instance.mId), instance, queryNextAlarm);
+    }
+
+    /**
+     * Commits the same state and alarm time to every one of {@code instances} with a single
+     * provider call and a single update statement. The state and alarm time are taken from the
+     * first instance; all instances are expected to share them.
+     *
+     * @param contentResolver to perform the update on
+     * @param instances whose state and alarm time should be committed
+     * @param queryNextAlarm true to include the next firing instance in the result
+     * @return the result of the transition; {@link Transition#updated} is true only if every
+     *      instance was updated
+     */
+    public static Transition updateInstancesState(ContentResolver contentResolver,
+            List<AlarmInstance> instances, boolean queryNextAlarm) {
+        if (instances.isEmpty()) return new Transition(false, null);
+        final StringBuilder ids = new StringBuilder();
+        for (AlarmInstance instance : instances) {
+            if (instance.mId == INVALID_ID) return new Transition(false, null);
+            if (ids.length() > 0) {
+                ids.append(',');
+            }
+            ids.append(instance.mId);
+        }
+        return transition(contentResolver, ids.toString(), instances.get(0), queryNextAlarm);
+    }
+
+    private static Transition transition(ContentResolver contentResolver, String ids,
+            AlarmInstance instance, boolean queryNextAlarm) {
+        final Bundle extras = new Bundle(7);
+        extras.putInt(ALARM_STATE, instance.mAlarmState);
+        extras.putInt(YEAR, instance.mYear);
+        extras.putInt(MONTH, instance.mMonth);
+        extras.putInt(DAY, instance.mDay);
+        extras.putInt(HOUR, instance.mHour);
+        extras.putInt(MINUTES, instance.mMinute);
+        extras.putBoolean(EXTRA_QUERY_NEXT_ALARM, queryNextAlarm);
+
+        final Bundle result = contentResolver.call(CONTENT_URI, METHOD_TRANSITION, ids, extras);
+        if (result == null) return new Transition(false, null);
+
+        final int expectedRows = ids.split(",").length;
+        final boolean updated = result.getInt(EXTRA_UPDATED_ROWS) == expectedRows;
+        if (!result.containsKey(_ID)) return new Transition(updated, null);
+
+        // Only the scheduling fields of the next instance are returned by the provider.
+        final AlarmInstance next = new AlarmInstance(Calendar.getInstance());
+        next.mId = result.getLong(_ID);
+        next.mYear = result.getInt(YEAR);
+        next.mMonth = result.getInt(MONTH);
+        next.mDay = result.getInt(DAY);
+        next.mHour = result.getInt(HOUR);
+        next.mMinute = result.getInt(MINUTES);
+        next.mAlarmState = result.getInt(ALARM_STATE);
+        if (result.containsKey(ALARM_ID)) {
+            next.mAlarmId = result.getLong(ALARM_ID);
+        }
+        return new Transition(updated, next);
+    }
+
     public static boolean deleteInstance(ContentResolver contentResolver, long instanceId) {
         if (instanceId == INVALID_ID) return false;
         int deletedRows = contentResolver.delete(getUri(instanceId), "", null);
         return deletedRows == 1;
     }
 
+    /**
+     * Deletes all of the given instances with a single delete statement.
+     *
+     * @param contentResolver to access the content provider
+     * @param instances to delete
+     * @return the number of instances deleted
+     */
+    public static int deleteInstances(ContentResolver contentResolver,
+            List<AlarmInstance> instances) {
+        final StringBuilder selection = new StringBuilder(_ID).append(" IN (");
+        int count = 0;
+        for (AlarmInstance instance : instances) {
+            if (instance.mId == INVALID_ID) continue;
+            if (count++ > 0) {
+                selection.append(',');
+            }
+            selection.append(instance.mId);
+        }
+        if (count == 0) return 0;
+        return contentResolver.delete(CONTENT_URI, selection.append(')').toString(), null);
+    }
+
     /**
      * @param context
      * @param contentResolver to access the content provider
@@ -282,6 +397,26 @@ public final class AlarmInstance implements ClockContract.InstancesColumns {
         }
     }
 
+    /**
+     * The outcome of {@link #updateInstanceState(ContentResolver, AlarmInstance, boolean)}.
+     */
+    public static final class Transition {
+
+        /** True if the instance row was updated. */
+        public final boolean updated;
+
+        /**
+         * The instance that fires next after the transition, holding only its id, parent alarm
+         * id, state and alarm time; null if no instance is scheduled or it was not requested.
+         */
+        public final AlarmInstance nextAlarm;
+
+        private Transition(boolean updated, AlarmInstance nextAlarm) {
+            this.updated = updated;
+            this.nextAlarm = nextAlarm;
+        }
+    }
+
     // Public fields
     public long mId;
     public int mYear;
@@ -0,0 +1,250 @@
+/*
+ * Copyright (C) 2016 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.wizardsofm.deskclock.provider;
+
+import android.content.ContentResolver;
+import android.database.Cursor;
+
+import java.util.Arrays;
+
+/**
+ * A lightweight view of the scheduling columns of alarm instances: id, parent alarm id, state and
+ * alarm time. Rows are read through a narrow projection that skips the label and ringtone strings
+ * and are stored in primitive buffers that are reused across {@link #load} calls, so scheduler
+ * code can scan instances without building an {@link AlarmInstance} per row.
+ */
+public final class AlarmInstanceSchedule implements ClockContract.InstancesColumns {
+
+    private static final String[] SCHEDULE_COLUMNS = {
+            _ID,
+            ALARM_ID,
+            ALARM_STATE,
+            YEAR,
+            MONTH,
+            DAY,
+            HOUR,
+            MINUTES
+    };
+
+    /**
+     * These save calls to cursor.getColumnIndexOrThrow()
+     * THEY MUST BE KEPT IN SYNC WITH ABOVE SCHEDULE COLUMNS
+     */
+    private static final int ID_INDEX = 0;
+    private static final int ALARM_ID_INDEX = 1;
+    private static final int ALARM_STATE_INDEX = 2;
+    private static final int YEAR_INDEX = 3;
+    private static final int MONTH_INDEX = 4;
+    private static final int DAY_INDEX = 5;
+    private static final int HOUR_INDEX = 6;
+    private static final int MINUTES_INDEX = 7;
+
+    /** Initial capacity of the row buffers; they grow by doubling as needed. */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Receives the scheduling columns of each instance row, in cursor order, without any
+     * intermediate objects being created.
+     */
+    public interface Visitor {
+        /**
+         * @param id the instance id
+         * @param alarmId the parent alarm id or {@link Alarm#INVALID_ID} if the instance has none
+         * @param state the instance state
+         * @param timeKey the alarm time packed by {@link #getTimeKey}
+         * @return {@code true} to continue visiting rows; {@code false} to stop early
+         */
+        boolean visit(long id, long alarmId, int state, long timeKey);
+    }
+
+    /**
+     * Streams the scheduling columns of the instances matching {@code selection} to the given
+     * {@code visitor}. No list of results is built; the cursor is closed before returning.
+     *
+     * @param cr to perform the query on
+     * @param visitor to receive each matching row
+     * @param selection SQL WHERE clause (excluding the WHERE itself); null for all rows
+     * @param selectionArgs replace the ?s in {@code selection}
+     */
+    public static void visit(ContentResolver cr, Visitor visitor, String selection,
+            String... selectionArgs) {
+        try (Cursor cursor = query(cr, selection, selectionArgs)) {
+            if (cursor == null) {
+                return;
+            }
+            while (cursor.moveToNext()) {
+                if (!visitor.visit(cursor.getLong(ID_INDEX), getAlarmId(cursor),
+                        cursor.getInt(ALARM_STATE_INDEX), getTimeKey(cursor))) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Packs the local alarm time fields of an instance into a single value whose natural order
+     * matches the chronological order of the corresponding {@link AlarmInstance#getAlarmTime()}.
+     */
+    public static long getTimeKey(int year, int month, int day, int hour, int minute) {
+        return (((year * 13L + month) * 32L + day) * 24L + hour) * 60L + minute;
+    }
+
+    /**
+     * @return the packed alarm time of the given {@code instance}
+     */
+    public static long getTimeKey(AlarmInstance instance) {
+        return getTimeKey(instance.mYear, instance.mMonth, instance.mDay, instance.mHour,
+                instance.mMinute);
+    }
+
+    private static Cursor query(ContentResolver cr, String selection, String[] selectionArgs) {
+        return cr.query(CONTENT_URI, SCHEDULE_COLUMNS, selection, selectionArgs, null);
+    }
+
+    private static long getAlarmId(Cursor c) {
+        return c.isNull(ALARM_ID_INDEX) ? Alarm.INVALID_ID : c.getLong(ALARM_ID_INDEX);
+    }
+
+    private static long getTimeKey(Cursor c) {
+        return getTimeKey(c.getInt(YEAR_INDEX), c.getInt(MONTH_INDEX), c.getInt(DAY_INDEX),
+                c.getInt(HOUR_INDEX), c.getInt(MINUTES_INDEX));
+    }
+
+    /** The number of rows currently held in the buffers. */
+    private int mCount;
+
+    private long[] mIds = new long[INITIAL_CAPACITY];
+    private long[] mAlarmIds = new long[INITIAL_CAPACITY];
+    private int[] mStates = new int[INITIAL_CAPACITY];
+    private long[] mTimeKeys = new long[INITIAL_CAPACITY];
+
+    /**
+     * Replaces the contents of this schedule with the instances matching {@code selection}. The
+     * existing buffers are reused and only grow when more rows are returned than ever before.
+     *
+     * @param cr to perform the query on
+     * @param selection SQL WHERE clause (excluding the WHERE itself); null for all rows
+     * @param selectionArgs replace the ?s in {@code selection}
+     * @return this schedule, for chaining
+     */
+    public AlarmInstanceSchedule load(ContentResolver cr, String selection,
+            String... selectionArgs) {
+        mCount = 0;
+        try (Cursor cursor = query(cr, selection, selectionArgs)) {
+            if (cursor == null) {
+                return this;
+            }
+            ensureCapacity(cursor.getCount());
+            while (cursor.moveToNext()) {
+                ensureCapacity(mCount + 1);
+                mIds[mCount] = cursor.getLong(ID_INDEX);
+                mAlarmIds[mCount] = getAlarmId(cursor);
+                mStates[mCount] = cursor.getInt(ALARM_STATE_INDEX);
+                mTimeKeys[mCount] = getTimeKey(cursor);
+                mCount++;
+            }
+        }
+        return this;
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    public long getId(int index) {
+        return mIds[index];
+    }
+
+    public long getAlarmId(int index) {
+        return mAlarmIds[index];
+    }
+
+    public int getState(int index) {
+        return mStates[index];
+    }
+
+    public long getTimeKey(int index) {
+        return mTimeKeys[index];
+    }
+
+    /**
+     * @return the index of the earliest instance in this schedule, or -1 if it is empty
+     */
+    public int indexOfEarliest() {
+        int earliest = -1;
+        for (int i = 0; i < mCount; i++) {
+            if (earliest == -1 || mTimeKeys[i] < mTimeKeys[earliest]) {
+                earliest = i;
+            }
+        }
+        return earliest;
+    }
+
+    /** @return the hour of day of the instance at {@code index} */
+    public int getHour(int index) {
+        return (int) (mTimeKeys[index] / 60 % 24);
+    }
+
+    /** @return the minute of the instance at {@code index} */
+    public int getMinute(int index) {
+        return (int) (mTimeKeys[index] % 60);
+    }
+
+    /**
+     * @return the index of the earliest instance that has not yet fired, or -1 if none exist
+     */
+    public int indexOfNextFiring() {
+        int earliest = -1;
+        for (int i = 0; i < mCount; i++) {
+            if (mStates[i] >= FIRED_STATE) {
+                continue;
+            }
+            if (earliest == -1 || mTimeKeys[i] < mTimeKeys[earliest]) {
+                earliest = i;
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * @param alarmId identifies the parent alarm of interest
+     * @return the index of the earliest instance owned by {@code alarmId}, or -1 if none exist
+     */
+    public int indexOfEarliest(long alarmId) {
+        int earliest = -1;
+        for (int i = 0; i < mCount; i++) {
+            if (mAlarmIds[i] != alarmId) {
+                continue;
+            }
+            if (earliest == -1 || mTimeKeys[i] < mTimeKeys[earliest]) {
+                earliest = i;
+            }
+        }
+        return earliest;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mIds.length) {
+            return;
+        }
+        final int newCapacity = Math.max(capacity, mIds.length * 2);
+        mIds = Arrays.copyOf(mIds, newCapacity);
+        mAlarmIds = Arrays.copyOf(mAlarmIds, newCapacity);
+        mStates = Arrays.copyOf(mStates, newCapacity);
+        mTimeKeys = Arrays.copyOf(mTimeKeys, newCapacity);
+    }
+}
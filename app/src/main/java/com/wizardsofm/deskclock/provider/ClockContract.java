@@ -44,6 +44,11 @@ public final class ClockContract {
      */
     public static final String AUTHORITY = BuildConfig.APPLICATION_ID;
 
+    /**
+     * Query parameter that limits the number of rows returned by a query, e.g. "?limit=50".
+     */
+    public static final String QUERY_PARAMETER_LIMIT = "limit";
+
     /**
      * This utility class cannot be instantiated
      */
@@ -133,6 +138,12 @@ public final class ClockContract {
          * <p>Type: INTEGER</p>
          */
         String DELETE_AFTER_USE = "delete_after_use";
+
+        /**
+         * Incremented by the database each time the alarm is updated.
+         * <p>Type: INTEGER</p>
+         */
+        String VERSION = "version";
     }
 
     /**
@@ -56,6 +56,11 @@ class ClockDatabaseHelper extends SQLiteOpenHelper {
      */
     private static final int VERSION_8 = 8;
 
+    /**
+     * Added VERSION column to alarms table.
+     */
+    private static final int VERSION_9 = 9;
+
     // This creates a default alarm at 8:30 for every Mon,Tue,Wed,Thu,Fri
     private static final String DEFAULT_ALARM_1 = "(8, 30, 31, 0, 1, '', NULL, 0);";
 
@@ -102,14 +107,31 @@ class ClockDatabaseHelper extends SQLiteOpenHelper {
         LogUtils.i("Instance table created");
     }
 
+    /**
+     * Adds the {@link ClockContract.AlarmsColumns#VERSION} column to the alarms table, along with
+     * the trigger that increments it whenever an alarm is updated.
+     */
+    private static void addAlarmVersion(SQLiteDatabase db) {
+        db.execSQL("ALTER TABLE " + ALARMS_TABLE_NAME + " ADD COLUMN " +
+                ClockContract.AlarmsColumns.VERSION + " INTEGER NOT NULL DEFAULT 0;");
+        db.execSQL("CREATE TRIGGER " + ALARMS_TABLE_NAME + "_version AFTER UPDATE ON " +
+                ALARMS_TABLE_NAME + " WHEN NEW." + ClockContract.AlarmsColumns.VERSION +
+                " = OLD." + ClockContract.AlarmsColumns.VERSION + " BEGIN UPDATE " +
+                ALARMS_TABLE_NAME + " SET " + ClockContract.AlarmsColumns.VERSION + " = OLD." +
+                ClockContract.AlarmsColumns.VERSION + " + 1 WHERE " +
+                ClockContract.AlarmsColumns._ID + " = NEW." + ClockContract.AlarmsColumns._ID +
+                "; END;");
+    }
+
     public ClockDatabaseHelper(Context context) {
-        super(context, DATABASE_NAME, null, VERSION_8);
+        super(context, DATABASE_NAME, null, VERSION_9);
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
         createAlarmsTable(db);
         createInstanceTable(db);
+        addAlarmVersion(db);
 
         // insert default alarms
         LogUtils.i("Inserting default alarms");
@@ -189,6 +211,11 @@ class ClockDatabaseHelper extends SQLiteOpenHelper {
             LogUtils.i("Dropping old alarm table");
             db.execSQL("DROP TABLE IF EXISTS " + OLD_ALARMS_TABLE_NAME + ";");
         }
+
+        if (oldVersion <= VERSION_8) {
+            // Applied last so that it also covers the alarms table created above.
+            addAlarmVersion(db);
+        }
     }
 
     long fixAlarmInsert(ContentValues values) {
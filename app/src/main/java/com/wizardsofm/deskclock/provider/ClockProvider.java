@@ -28,6 +28,7 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
 import android.os.Build;
+import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.ArrayMap;
 
@@ -74,6 +75,8 @@ public class ClockProvider extends ContentProvider {
                 ALARMS_TABLE_NAME + "." + AlarmsColumns.RINGTONE);
         sAlarmsWithInstancesProjection.put(ALARMS_TABLE_NAME + "." + AlarmsColumns.DELETE_AFTER_USE,
                 ALARMS_TABLE_NAME + "." + AlarmsColumns.DELETE_AFTER_USE);
+        sAlarmsWithInstancesProjection.put(ALARMS_TABLE_NAME + "." + AlarmsColumns.VERSION,
+                ALARMS_TABLE_NAME + "." + AlarmsColumns.VERSION);
         sAlarmsWithInstancesProjection.put(INSTANCES_TABLE_NAME + "."
                 + InstancesColumns.ALARM_STATE,
                 INSTANCES_TABLE_NAME + "." + InstancesColumns.ALARM_STATE);
@@ -105,6 +108,24 @@ public class ClockProvider extends ContentProvider {
                     ") FROM " + INSTANCES_TABLE_NAME + " WHERE " + InstancesColumns.ALARM_ID +
                     " = " + ALARMS_TABLE_NAME + "." + AlarmsColumns._ID + ")";
 
+    /**
+     * Columns read back by {@link #queryNextAlarm}, in the order they are consumed.
+     */
+    private static final String[] NEXT_ALARM_COLUMNS = {
+            InstancesColumns._ID,
+            InstancesColumns.ALARM_ID,
+            InstancesColumns.ALARM_STATE,
+            InstancesColumns.YEAR,
+            InstancesColumns.MONTH,
+            InstancesColumns.DAY,
+            InstancesColumns.HOUR,
+            InstancesColumns.MINUTES
+    };
+
+    private static final String NEXT_ALARM_ORDER = InstancesColumns.YEAR + ", "
+            + InstancesColumns.MONTH + ", " + InstancesColumns.DAY + ", "
+            + InstancesColumns.HOUR + ", " + InstancesColumns.MINUTES;
+
     private static final UriMatcher sURIMatcher = new UriMatcher(UriMatcher.NO_MATCH);
     static {
         sURIMatcher.addURI(ClockContract.AUTHORITY, "alarms", ALARMS);
@@ -172,7 +193,12 @@ public class ClockProvider extends ContentProvider {
                 throw new IllegalArgumentException("Unknown URI " + uri);
         }
 
-        Cursor ret = qb.query(db, projectionIn, selection, selectionArgs, null, null, sort);
+        final String limit = uri.getQueryParameter(ClockContract.QUERY_PARAMETER_LIMIT);
+        if (limit != null && !TextUtils.isDigitsOnly(limit)) {
+            throw new IllegalArgumentException("Invalid limit " + limit);
+        }
+
+        Cursor ret = qb.query(db, projectionIn, selection, selectionArgs, null, null, sort, limit);
 
         if (ret == null) {
             LogUtils.e("Alarms.query: failed");
@@ -227,6 +253,82 @@ public class ClockProvider extends ContentProvider {
         return count;
     }
 
+    /**
+     * Handles {@link AlarmInstance#METHOD_TRANSITION}: the new state and alarm time of one or more
+     * instances are written with a single update statement and, if requested, the next instance to
+     * fire is read back within the same transaction. Exactly one change notification is emitted.
+     */
+    @Override
+    public Bundle call(String method, String arg, Bundle extras) {
+        if (!AlarmInstance.METHOD_TRANSITION.equals(method)) {
+            return super.call(method, arg, extras);
+        }
+        if (arg == null || extras == null) {
+            throw new IllegalArgumentException("Missing instance ids or state for " + method);
+        }
+
+        // The argument is one or more comma-separated instance ids.
+        final String[] ids = arg.split(",");
+        final StringBuilder where = new StringBuilder(InstancesColumns._ID).append(" IN (");
+        for (int i = 0; i < ids.length; i++) {
+            where.append(i == 0 ? "" : ",").append(Long.parseLong(ids[i].trim()));
+        }
+        where.append(')');
+
+        final ContentValues values = new ContentValues(6);
+        values.put(InstancesColumns.ALARM_STATE, extras.getInt(InstancesColumns.ALARM_STATE));
+        values.put(InstancesColumns.YEAR, extras.getInt(InstancesColumns.YEAR));
+        values.put(InstancesColumns.MONTH, extras.getInt(InstancesColumns.MONTH));
+        values.put(InstancesColumns.DAY, extras.getInt(InstancesColumns.DAY));
+        values.put(InstancesColumns.HOUR, extras.getInt(InstancesColumns.HOUR));
+        values.put(InstancesColumns.MINUTES, extras.getInt(InstancesColumns.MINUTES));
+
+        final Bundle result = new Bundle();
+        final SQLiteDatabase db = mOpenHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            final int count = db.update(INSTANCES_TABLE_NAME, values, where.toString(), null);
+            result.putInt(AlarmInstance.EXTRA_UPDATED_ROWS, count);
+
+            if (extras.getBoolean(AlarmInstance.EXTRA_QUERY_NEXT_ALARM)) {
+                queryNextAlarm(db, result);
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+
+        final Uri uri = ids.length == 1 ? AlarmInstance.getUri(Long.parseLong(ids[0].trim()))
+                : InstancesColumns.CONTENT_URI;
+        LogUtils.v("*** notifyChange() ids: " + arg + " url " + uri);
+        notifyChange(getContext().getContentResolver(), uri);
+        return result;
+    }
+
+    /**
+     * Copies the scheduling columns of the earliest instance that has not yet fired into
+     * {@code result}; leaves {@code result} untouched if there is no such instance.
+     */
+    private static void queryNextAlarm(SQLiteDatabase db, Bundle result) {
+        try (Cursor c = db.query(INSTANCES_TABLE_NAME, NEXT_ALARM_COLUMNS,
+                InstancesColumns.ALARM_STATE + "<" + InstancesColumns.FIRED_STATE, null,
+                null, null, NEXT_ALARM_ORDER, "1")) {
+            if (c == null || !c.moveToFirst()) {
+                return;
+            }
+            result.putLong(InstancesColumns._ID, c.getLong(0));
+            if (!c.isNull(1)) {
+                result.putLong(InstancesColumns.ALARM_ID, c.getLong(1));
+            }
+            result.putInt(InstancesColumns.ALARM_STATE, c.getInt(2));
+            result.putInt(InstancesColumns.YEAR, c.getInt(3));
+            result.putInt(InstancesColumns.MONTH, c.getInt(4));
+            result.putInt(InstancesColumns.DAY, c.getInt(5));
+            result.putInt(InstancesColumns.HOUR, c.getInt(6));
+            result.putInt(InstancesColumns.MINUTES, c.getInt(7));
+        }
+    }
+
     @Override
     public Uri insert(Uri uri, ContentValues initialValues) {
         long rowId;
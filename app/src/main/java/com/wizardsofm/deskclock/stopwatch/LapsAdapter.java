@@ -17,7 +17,9 @@
 package com.wizardsofm.deskclock.stopwatch;
 
 import android.content.Context;
+import android.content.res.ColorStateList;
 import android.support.annotation.VisibleForTesting;
+import android.support.v4.content.ContextCompat;
 import android.support.v7.widget.RecyclerView;
 import android.text.format.DateUtils;
 import android.view.LayoutInflater;
@@ -28,6 +30,7 @@ import android.widget.TextView;
 import com.wizardsofm.deskclock.R;
 import com.wizardsofm.deskclock.data.DataModel;
 import com.wizardsofm.deskclock.data.Lap;
+import com.wizardsofm.deskclock.data.LapStats;
 import com.wizardsofm.deskclock.data.Stopwatch;
 import com.wizardsofm.deskclock.uidata.UiDataModel;
 
@@ -49,12 +52,22 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
     /** A single space preceded by a zero-width LRM; This groups adjacent chars left-to-right. */
     private static final String LRM_SPACE = "\u200E ";
 
+    /**
+     * Beyond this many laps the shared text carries only the summary; all laps are shared as a
+     * separate document instead.
+     */
+    private static final int MAX_SHARED_TEXT_LAPS = 100;
+
     /** Reusable StringBuilder that assembles a formatted time; alleviates memory churn. */
     private static final StringBuilder sTimeBuilder = new StringBuilder(12);
 
     private final LayoutInflater mInflater;
     private final Context mContext;
 
+    /** The lap time colors that mark the fastest and slowest recorded laps. */
+    private final int mFastestLapColor;
+    private final int mSlowestLapColor;
+
     /** Used to determine when the time format for the lap time column has changed length. */
     private int mLastFormattedLapTimeLength;
 
@@ -64,6 +77,8 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
     public LapsAdapter(Context context) {
         mContext = context;
         mInflater = LayoutInflater.from(context);
+        mFastestLapColor = ContextCompat.getColor(context, R.color.lap_fastest);
+        mSlowestLapColor = ContextCompat.getColor(context, R.color.lap_slowest);
         setHasStableIds(true);
     }
 
@@ -109,6 +124,18 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
         viewHolder.lapTime.setText(formatLapTime(lapTime, true));
         viewHolder.accumulatedTime.setText(formatAccumulatedTime(totalTime, true));
         viewHolder.lapNumber.setText(formatLapNumber(getLaps().size() + 1, lapNumber));
+
+        // Once laps can be compared, mark the fastest and slowest of them.
+        final LapStats lapStats = getLapStats();
+        if (lap != null && lapStats.getLapCount() > 1
+                && lapNumber == lapStats.getFastestLapNumber()) {
+            viewHolder.lapTime.setTextColor(mFastestLapColor);
+        } else if (lap != null && lapStats.getLapCount() > 1
+                && lapNumber == lapStats.getSlowestLapNumber()) {
+            viewHolder.lapTime.setTextColor(mSlowestLapColor);
+        } else {
+            viewHolder.lapTime.setTextColor(viewHolder.lapTimeColors);
+        }
     }
 
     @Override
@@ -148,10 +175,12 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
      * @return a newly cleared lap
      */
     Lap addLap() {
+        final LapStats before = getLapStats();
         final Lap lap = DataModel.getDataModel().addLap();
+        final LapStats after = getLapStats();
 
-        if (getItemCount() == 10) {
-            // 10 total laps indicates all items switch from 1 to 2 digit lap numbers.
+        if (isPowerOfTen(getItemCount())) {
+            // 10, 100, ... total laps indicates all items gain a digit in their lap numbers.
             notifyDataSetChanged();
         } else {
             // New current lap now exists.
@@ -159,11 +188,37 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
 
             // Prior current lap must be refreshed once with the true values in place.
             notifyItemChanged(1);
+
+            // Laps that gained or lost the fastest or slowest mark must be refreshed.
+            if (before.getLapCount() == 1) {
+                notifyLapChanged(1);
+            }
+            if (before.getFastestLapNumber() != after.getFastestLapNumber()) {
+                notifyLapChanged(before.getFastestLapNumber());
+            }
+            if (before.getSlowestLapNumber() != after.getSlowestLapNumber()) {
+                notifyLapChanged(before.getSlowestLapNumber());
+            }
         }
 
         return lap;
     }
 
+    /**
+     * @param lapNumber the number of a recorded lap whose item must be rebound
+     */
+    private void notifyLapChanged(int lapNumber) {
+        // The current lap occupies position 0; recorded laps follow, most recent first.
+        notifyItemChanged(getLaps().size() - lapNumber + 1);
+    }
+
+    private static boolean isPowerOfTen(int value) {
+        while (value >= 10 && value % 10 == 0) {
+            value /= 10;
+        }
+        return value == 1;
+    }
+
     /**
      * Remove all recorded laps and update this adapter.
      */
@@ -191,7 +246,7 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
         builder.append("\n");
 
         final List<Lap> laps = getLaps();
-        if (!laps.isEmpty()) {
+        if (!laps.isEmpty() && laps.size() <= MAX_SHARED_TEXT_LAPS) {
             // Add a header for lap times.
             builder.append(mContext.getString(R.string.sw_share_laps));
             builder.append("\n");
@@ -207,13 +262,28 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
             }
         }
 
+        // Summarize the laps once they can be compared.
+        final LapStats lapStats = getLapStats();
+        if (lapStats.getLapCount() > 1) {
+            final long maxTime = lapStats.getMaxLapTime();
+            builder.append(mContext.getString(R.string.sw_share_lap_stats,
+                    lapStats.getFastestLapNumber(),
+                    formatTime(maxTime, lapStats.getMinLapTime(), " "),
+                    lapStats.getSlowestLapNumber(),
+                    formatTime(maxTime, maxTime, " "),
+                    formatTime(maxTime, lapStats.getMeanLapTime(), " "),
+                    formatTime(maxTime, lapStats.getStandardDeviation(), " ")));
+            builder.append("\n");
+        }
+
         return builder.toString();
     }
 
     /**
      * @param lapCount the total number of recorded laps
      * @param lapNumber the number of the lap being formatted
-     * @return e.g. "# 7" if {@code lapCount} less than 10; "# 07" if {@code lapCount} is 10 or more
+     * @return e.g. "# 7" if {@code lapCount} less than 10; "# 07" if {@code lapCount} is 10 to 99;
+     *      "# 007" if {@code lapCount} is 100 to 999, and so on
      */
     @VisibleForTesting
     static String formatLapNumber(int lapCount, int lapNumber) {
@@ -221,7 +291,8 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
             return String.format(Locale.getDefault(), "# %d", lapNumber);
         }
 
-        return String.format(Locale.getDefault(), "# %02d", lapNumber);
+        final int digits = String.valueOf(lapCount).length();
+        return String.format(Locale.getDefault(), "# %0" + digits + "d", lapNumber);
     }
 
     /**
@@ -325,6 +396,10 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
         return DataModel.getDataModel().getLaps();
     }
 
+    private LapStats getLapStats() {
+        return DataModel.getDataModel().getLapStats();
+    }
+
     /**
      * Cache the child views of each lap item view.
      */
@@ -334,12 +409,16 @@ class LapsAdapter extends RecyclerView.Adapter<LapsAdapter.LapItemHolder> {
         private final TextView lapTime;
         private final TextView accumulatedTime;
 
+        /** The lap time colors used for laps that are neither fastest nor slowest. */
+        private final ColorStateList lapTimeColors;
+
         public LapItemHolder(View itemView) {
             super(itemView);
 
             lapTime = (TextView) itemView.findViewById(R.id.lap_time);
             lapNumber = (TextView) itemView.findViewById(R.id.lap_number);
             accumulatedTime = (TextView) itemView.findViewById(R.id.lap_total);
+            lapTimeColors = lapTime.getTextColors();
         }
     }
 }
\ No newline at end of file
@@ -18,6 +18,7 @@ package com.wizardsofm.deskclock.stopwatch;
 
 import android.annotation.SuppressLint;
 import android.content.ActivityNotFoundException;
+import android.content.ClipData;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
@@ -25,6 +26,7 @@ import android.graphics.Canvas;
 import android.graphics.drawable.Animatable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.SystemClock;
 import android.support.annotation.ColorInt;
@@ -45,6 +47,7 @@ import com.wizardsofm.deskclock.DeskClockFragment;
 import com.wizardsofm.deskclock.LogUtils;
 import com.wizardsofm.deskclock.Utils;
 import com.wizardsofm.deskclock.data.DataModel;
+import com.wizardsofm.deskclock.data.ExportProvider;
 import com.wizardsofm.deskclock.data.Lap;
 import com.wizardsofm.deskclock.data.Stopwatch;
 import com.wizardsofm.deskclock.data.StopwatchListener;
@@ -348,9 +351,19 @@ public final class StopwatchFragment extends DeskClockFragment {
                 .putExtra(Intent.EXTRA_TEXT, text)
                 .setType("text/plain");
 
+        // Attach every lap as a CSV document streamed from storage by the export provider.
+        if (!DataModel.getDataModel().getLaps().isEmpty()) {
+            final Uri laps = ExportProvider.LAPS_CSV_URI;
+            shareIntent.putExtra(Intent.EXTRA_STREAM, laps)
+                    .setClipData(ClipData.newRawUri(null, laps))
+                    .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION)
+                    .setType("text/csv");
+        }
+
         final Context context = getActivity();
         final String title = context.getString(com.wizardsofm.deskclock.R.string.sw_share_button);
-        final Intent shareChooserIntent = Intent.createChooser(shareIntent, title);
+        final Intent shareChooserIntent = Intent.createChooser(shareIntent, title)
+                .addFlags(shareIntent.getFlags() & Intent.FLAG_GRANT_READ_URI_PERMISSION);
         try {
             context.startActivity(shareChooserIntent);
         } catch (ActivityNotFoundException anfe) {
@@ -22,6 +22,7 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Typeface;
+import android.os.SystemClock;
 import android.support.annotation.PluralsRes;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
@@ -57,11 +58,37 @@ public class CountingTimerView extends View {
     /** Reusable StringBuilder to assemble talk back announcements when the time is updated. */
     private static final StringBuilder sTalkBackBuilder = new StringBuilder(50);
 
+    /** The minimum interval between updates of the spoken content description. */
+    private static final long CONTENT_DESCRIPTION_INTERVAL = DateUtils.SECOND_IN_MILLIS;
+
     // Radial offset of the enclosing circle
     private final float mRadiusOffset;
 
     private String mHours, mMinutes, mSeconds, mHundredths;
 
+    // The displayed time fields; setTime() compares against these to skip unchanged frames.
+    private int mHoursValue = -1, mMinutesValue = -1, mSecondsValue = -1, mHundredthsValue = -1;
+    private boolean mShowNeg;
+
+    // The spoken time fields reflected by the current content description.
+    private int mSpokenHours = -1, mSpokenMinutes = -1, mSpokenSeconds = -1;
+    private boolean mSpokenNeg;
+
+    /** The time at which the content description was last updated. */
+    private long mContentDescriptionTime = Long.MIN_VALUE / 2;
+
+    /** {@code true} while {@link #mContentDescriptionUpdater} is scheduled. */
+    private boolean mContentDescriptionPending;
+
+    /** Brings the content description up to date once the update interval has passed. */
+    private final Runnable mContentDescriptionUpdater = new Runnable() {
+        @Override
+        public void run() {
+            mContentDescriptionPending = false;
+            updateContentDescription();
+        }
+    };
+
     private boolean mShowTimeStr = true;
     private final Paint mPaintBigThin = new Paint();
     private final Paint mPaintMed = new Paint();
@@ -179,7 +206,7 @@ public class CountingTimerView extends View {
             float textEm  = mEm / 2f;
             while (ii < time.length()) {
                 x += textEm;
-                canvas.drawText(time.substring(ii, ii + 1), x, y, mPaint);
+                canvas.drawText(time, ii, ii + 1, x, y, mPaint);
                 x += textEm;
                 ii++;
             }
@@ -256,7 +283,7 @@ public class CountingTimerView extends View {
                 float minusWidth = mMinusWidth / 2;
                 x += minusWidth;
                 //TODO:hyphen is too thick when painted
-                canvas.drawText(time.substring(0, 1), x, y, mPaint);
+                canvas.drawText(time, 0, 1, x, y, mPaint);
                 x += minusWidth;
                 ii++;
             }
@@ -321,7 +348,9 @@ public class CountingTimerView extends View {
 
     /**
      * Update the time to display. Separates that time into the hours, minutes, seconds and
-     * hundredths. If update is true, the view is invalidated so that it will draw again.
+     * hundredths. The view is invalidated only if a displayed digit changed; at steady state this
+     * method allocates nothing, since the digit strings come from a cache and the content
+     * description is rebuilt only when the spoken time changes, at most once per second.
      *
      * @param time new time to display - in milliseconds
      * @param showHundredths flag to show hundredths resolution
@@ -373,6 +402,21 @@ public class CountingTimerView extends View {
             }
         }
 
+        if (!showHundredths) {
+            hundredths = -1;
+        }
+
+        // Nothing to do if every displayed digit is unchanged.
+        if (hours == mHoursValue && minutes == mMinutesValue && seconds == mSecondsValue
+                && hundredths == mHundredthsValue && showNeg == mShowNeg) {
+            return;
+        }
+        mHoursValue = hours;
+        mMinutesValue = minutes;
+        mSecondsValue = seconds;
+        mHundredthsValue = hundredths;
+        mShowNeg = showNeg;
+
         // Hours may be empty.
         final UiDataModel uiDataModel = UiDataModel.getUiDataModel();
         if (hours > 0) {
@@ -405,11 +449,39 @@ public class CountingTimerView extends View {
             mRemeasureText = true;
         }
 
-        setContentDescription(getTimeStringForAccessibility(hours, minutes, seconds, showNeg,
-                getResources()));
+        updateContentDescription();
         postInvalidateOnAnimation();
     }
 
+    /**
+     * Updates the content description to speak the displayed time if it changed, deferring the
+     * update if the previous one happened less than {@link #CONTENT_DESCRIPTION_INTERVAL} ago.
+     */
+    private void updateContentDescription() {
+        if (mHoursValue == mSpokenHours && mMinutesValue == mSpokenMinutes
+                && mSecondsValue == mSpokenSeconds && mShowNeg == mSpokenNeg) {
+            return;
+        }
+
+        final long now = SystemClock.elapsedRealtime();
+        final long nextUpdateTime = mContentDescriptionTime + CONTENT_DESCRIPTION_INTERVAL;
+        if (now < nextUpdateTime) {
+            if (!mContentDescriptionPending) {
+                mContentDescriptionPending = true;
+                postDelayed(mContentDescriptionUpdater, nextUpdateTime - now);
+            }
+            return;
+        }
+
+        mContentDescriptionTime = now;
+        mSpokenHours = mHoursValue;
+        mSpokenMinutes = mMinutesValue;
+        mSpokenSeconds = mSecondsValue;
+        mSpokenNeg = mShowNeg;
+        setContentDescription(getTimeStringForAccessibility(mHoursValue, mMinutesValue,
+                mSecondsValue, mShowNeg, getResources()));
+    }
+
     private int getDigitsLength() {
         return ((mHours == null) ? 0 : mHours.length())
                 + ((mMinutes == null) ? 0 : mMinutes.length())
@@ -635,4 +707,22 @@ public class CountingTimerView extends View {
         mRemeasureText = true;
         resetTextSize();
     }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+
+        // An update deferred while detached was cancelled; the displayed digits may not change
+        // again soon, so bring the description up to date now.
+        updateContentDescription();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+
+        // A detached view speaks nothing; reattaching brings the description up to date.
+        removeCallbacks(mContentDescriptionUpdater);
+        mContentDescriptionPending = false;
+    }
 }
\ No newline at end of file
@@ -291,5 +291,18 @@ public class ExpiredTimersActivity extends BaseActivity {
                 removeTimer(timer);
             }
         }
+
+        @Override
+        public void timersChanged(List<Timer> before, List<Timer> after) {
+            for (int i = 0; i < before.size(); i++) {
+                if (before.get(i) == null) {
+                    timerAdded(after.get(i));
+                } else if (after.get(i) == null) {
+                    timerRemoved(before.get(i));
+                } else {
+                    timerUpdated(before.get(i), after.get(i));
+                }
+            }
+        }
     }
 }
@@ -82,12 +82,27 @@ public final class TimerCircleView extends View {
     }
 
     void update(Timer timer) {
-        if (mTimer != timer) {
+        // The progress of a running timer advances with every update.
+        if (mTimer != timer || timer.isRunning()) {
             mTimer = timer;
-            postInvalidateOnAnimation();
+            invalidate();
         }
     }
 
+    /**
+     * @return the number of milliseconds a running {@code timer} takes to advance its progress
+     *      dot by one pixel along the circle, or -1 if the progress drawn is static
+     */
+    long getUpdateDelay(Timer timer) {
+        final float radius = Math.min(getWidth(), getHeight()) / 2f - mRadiusOffset;
+        if (!timer.isRunning() || radius <= 0) {
+            return -1;
+        }
+
+        final double circumference = 2 * Math.PI * radius;
+        return Math.max(1, (long) (timer.getPhaseLength() / circumference));
+    }
+
     @Override
     public void onDraw(Canvas canvas) {
         if (mTimer == null) {
@@ -125,7 +140,9 @@ public final class TimerCircleView extends View {
             mArcRect.bottom = yCenter + radius;
             mArcRect.left = xCenter - radius;
             mArcRect.right = xCenter + radius;
-            redPercent = Math.min(1, (float) mTimer.getElapsedTime() / (float) mTimer.getTotalLength());
+            final long phaseLength = mTimer.getPhaseLength();
+            final long phaseElapsed = phaseLength - mTimer.getPhaseRemainingTime();
+            redPercent = Math.min(1, (float) phaseElapsed / (float) phaseLength);
             final float whitePercent = 1 - redPercent;
 
             // Draw a white arc to indicate the amount of timer that remains.
@@ -142,9 +159,5 @@ public final class TimerCircleView extends View {
         final float dotX = xCenter + (float) (radius * Math.cos(dotAngleRadians));
         final float dotY = yCenter + (float) (radius * Math.sin(dotAngleRadians));
         canvas.drawCircle(dotX, dotY, mDotRadius, mFill);
-
-        if (mTimer.isRunning()) {
-            postInvalidateOnAnimation();
-        }
     }
 }
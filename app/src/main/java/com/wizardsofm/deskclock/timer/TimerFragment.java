@@ -23,10 +23,10 @@ import android.animation.ObjectAnimator;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
-import android.os.SystemClock;
 import android.support.annotation.NonNull;
 import android.support.annotation.VisibleForTesting;
 import android.support.v4.view.ViewPager;
+import android.view.Choreographer;
 import android.view.KeyEvent;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -47,6 +47,7 @@ import com.wizardsofm.deskclock.uidata.UiDataModel;
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.List;
 
 import static android.view.View.ALPHA;
 import static android.view.View.GONE;
@@ -67,7 +68,7 @@ public final class TimerFragment extends DeskClockFragment {
     private final TimerPageChangeListener mTimerPageChangeListener = new TimerPageChangeListener();
 
     /** Scheduled to update the timers while at least one is running. */
-    private final Runnable mTimeUpdateRunnable = new TimeUpdateRunnable();
+    private final Choreographer.FrameCallback mTimeUpdateCallback = new TimeUpdateCallback();
 
     /** Updates the {@link #mPageIndicators} in response to timers being added or removed. */
     private final TimerListener mTimerWatcher = new TimerWatcher();
@@ -555,29 +556,29 @@ public final class TimerFragment extends DeskClockFragment {
     private void startUpdatingTime() {
         // Ensure only one copy of the runnable is ever scheduled by first stopping updates.
         stopUpdatingTime();
-        mViewPager.post(mTimeUpdateRunnable);
+        Choreographer.getInstance().postFrameCallback(mTimeUpdateCallback);
     }
 
     private void stopUpdatingTime() {
-        mViewPager.removeCallbacks(mTimeUpdateRunnable);
+        Choreographer.getInstance().removeFrameCallback(mTimeUpdateCallback);
     }
 
     /**
-     * Periodically refreshes the state of each timer.
+     * Refreshes all attached timer pages from a single frame callback. Rather than redrawing every
+     * frame, the next callback is scheduled for the frame in which the display of a visible timer
+     * next changes: the next whole second of its text, or the next pixel its progress circle
+     * sweeps through.
      */
-    private class TimeUpdateRunnable implements Runnable {
+    private class TimeUpdateCallback implements Choreographer.FrameCallback {
         @Override
-        public void run() {
-            final long startTime = SystemClock.elapsedRealtime();
+        public void doFrame(long frameTimeNanos) {
             // If no timers require continuous updates, avoid scheduling the next update.
-            if (!mAdapter.updateTime()) {
+            final long delay = mAdapter.updateTime();
+            if (delay == -1) {
                 return;
             }
-            final long endTime = SystemClock.elapsedRealtime();
 
-            // Try to maintain a consistent period of time between redraws.
-            final long delay = Math.max(0, startTime + 20 - endTime);
-            mTimersView.postDelayed(this, delay);
+            Choreographer.getInstance().postFrameCallbackDelayed(this, delay);
         }
     }
 
@@ -656,5 +657,30 @@ public final class TimerFragment extends DeskClockFragment {
             updatePageIndicators();
             updateFab(UpdateType.FAB_AND_BUTTONS_IMMEDIATE);
         }
+
+        @Override
+        public void timersChanged(List<Timer> before, List<Timer> after) {
+            // The user interface should not be updated unless the fragment is resumed. It will be
+            // refreshed during onResume later if it is not currently resumed.
+            if (!isResumed()) {
+                return;
+            }
+
+            // If any timer started, animate the timers.
+            for (int i = 0; i < after.size(); i++) {
+                final Timer timerBefore = before.get(i);
+                final Timer timerAfter = after.get(i);
+                if (timerAfter != null && !timerAfter.isReset()
+                        && (timerBefore == null || timerBefore.isReset())) {
+                    startUpdatingTime();
+                    break;
+                }
+            }
+
+            updatePageIndicators();
+            if (mCurrentView == mTimersView) {
+                updateFab(UpdateType.FAB_AND_BUTTONS_IMMEDIATE);
+            }
+        }
     }
 }
\ No newline at end of file
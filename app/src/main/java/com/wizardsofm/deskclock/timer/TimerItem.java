@@ -64,12 +64,20 @@ public class TimerItem extends LinearLayout {
         mTimerText.setShowBoundingCircle(mCircleView != null);
     }
 
+    /**
+     * @return the number of milliseconds until the progress circle of the running {@code timer}
+     *      visibly advances, or -1 if this layout draws no circle or its progress is static
+     */
+    long getProgressUpdateDelay(Timer timer) {
+        return mCircleView == null ? -1 : mCircleView.getUpdateDelay(timer);
+    }
+
     /**
      * Updates this view to display the latest state of the {@code timer}.
      */
     void update(Timer timer) {
         // Update the time.
-        mTimerText.setTime(timer.getRemainingTime(), false);
+        mTimerText.setTime(timer.getPhaseRemainingTime(), false);
 
         // Update the label if it changed.
         final String label = timer.getLabel();
@@ -19,34 +19,54 @@ package com.wizardsofm.deskclock.timer;
 import android.app.Fragment;
 import android.app.FragmentManager;
 import android.app.FragmentTransaction;
-import android.support.v13.app.FragmentCompat;
+import android.graphics.Rect;
+import android.os.SystemClock;
 import android.support.v4.view.PagerAdapter;
-import android.util.ArrayMap;
+import android.util.SparseArray;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
+import com.wizardsofm.deskclock.LabelDialogFragment;
+import com.wizardsofm.deskclock.R;
 import com.wizardsofm.deskclock.data.DataModel;
 import com.wizardsofm.deskclock.data.Timer;
 import com.wizardsofm.deskclock.data.TimerListener;
+import com.wizardsofm.deskclock.events.Events;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
-import java.util.Map;
+
+import static android.text.format.DateUtils.SECOND_IN_MILLIS;
 
 /**
- * This adapter produces a {@link TimerItemFragment} for each timer.
+ * This adapter produces a {@link TimerItem} view for each timer. Only the pages the
+ * {@link android.support.v4.view.ViewPager} keeps attached have views; views of pages that are
+ * destroyed are recycled for the next page instantiated, so the number of views is bounded by the
+ * pager's offscreen limit rather than the number of timers.
  */
 class TimerPagerAdapter extends PagerAdapter implements TimerListener {
 
+    /** Timers blink at this period while paused or expired. */
+    private static final long BLINK_PERIOD = SECOND_IN_MILLIS / 2;
+
     private final FragmentManager mFragmentManager;
 
-    /** Maps each timer id to the corresponding {@link TimerItemFragment} that draws it. */
-    private final Map<Integer, TimerItemFragment> mFragments = new ArrayMap<>();
+    /** Maps each timer id to the attached {@link TimerItem} that draws it. */
+    private final SparseArray<TimerItem> mViews = new SparseArray<>();
+
+    /** Views of destroyed pages waiting to be reused. */
+    private final Deque<TimerItem> mRecycledViews = new ArrayDeque<>();
 
-    /** The current fragment transaction in play or {@code null}. */
-    private FragmentTransaction mCurrentTransaction;
+    /** Shared by all pages to begin editing the label of their timer. */
+    private final View.OnClickListener mEditLabelListener = new EditLabelListener();
 
-    /** The {@link TimerItemFragment} that is current visible on screen. */
-    private Fragment mCurrentPrimaryItem;
+    /** Shared by all pages to reset their timer or add a minute to it. */
+    private final View.OnClickListener mResetAddListener = new ResetAddListener();
+
+    /** Reused to determine whether a page is on screen. */
+    private final Rect mVisibleRect = new Rect();
 
     public TimerPagerAdapter(FragmentManager fragmentManager) {
         mFragmentManager = fragmentManager;
@@ -59,83 +79,47 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
 
     @Override
     public boolean isViewFromObject(View view, Object object) {
-        return ((Fragment) object).getView() == view;
+        return view == object;
     }
 
     @Override
     public int getItemPosition(Object object) {
-        final TimerItemFragment fragment = (TimerItemFragment) object;
-        final Timer timer = fragment.getTimer();
+        final Timer timer = DataModel.getDataModel().getTimer(getTimerId((View) object));
 
-        final int position = getTimers().indexOf(timer);
+        final int position = timer == null ? -1 : getTimers().indexOf(timer);
         return position == -1 ? POSITION_NONE : position;
     }
 
     @Override
-    public Fragment instantiateItem(ViewGroup container, int position) {
-        if (mCurrentTransaction == null) {
-            mCurrentTransaction = mFragmentManager.beginTransaction();
-        }
-
+    public Object instantiateItem(ViewGroup container, int position) {
         final Timer timer = getTimers().get(position);
 
-        // Search for the existing fragment by tag.
-        final String tag = getClass().getSimpleName() + timer.getId();
-        TimerItemFragment fragment = (TimerItemFragment) mFragmentManager.findFragmentByTag(tag);
-
-        if (fragment != null) {
-            // Reattach the existing fragment.
-            mCurrentTransaction.attach(fragment);
-        } else {
-            // Create and add a new fragment.
-            fragment = TimerItemFragment.newInstance(timer);
-            mCurrentTransaction.add(container.getId(), fragment, tag);
-        }
-
-        if (fragment != mCurrentPrimaryItem) {
-            setItemVisible(fragment, false);
+        TimerItem view = mRecycledViews.poll();
+        if (view == null) {
+            view = (TimerItem) LayoutInflater.from(container.getContext())
+                    .inflate(R.layout.timer_item, container, false);
+            view.findViewById(R.id.reset_add).setOnClickListener(mResetAddListener);
+            view.findViewById(R.id.timer_label).setOnClickListener(mEditLabelListener);
         }
 
-        mFragments.put(timer.getId(), fragment);
+        view.setTag(timer.getId());
+        view.update(timer);
+        container.addView(view);
+        mViews.put(timer.getId(), view);
 
-        return fragment;
+        return view;
     }
 
     @Override
     public void destroyItem(ViewGroup container, int position, Object object) {
-        final TimerItemFragment fragment = (TimerItemFragment) object;
+        final TimerItem view = (TimerItem) object;
+        container.removeView(view);
 
-        if (mCurrentTransaction == null) {
-            mCurrentTransaction = mFragmentManager.beginTransaction();
-        }
-
-        mFragments.remove(fragment.getTimerId());
-        mCurrentTransaction.remove(fragment);
-    }
-
-    @Override
-    public void setPrimaryItem(ViewGroup container, int position, Object object) {
-        final Fragment fragment = (Fragment) object;
-        if (fragment != mCurrentPrimaryItem) {
-            if (mCurrentPrimaryItem != null) {
-                setItemVisible(mCurrentPrimaryItem, false);
-            }
-
-            mCurrentPrimaryItem = fragment;
-
-            if (mCurrentPrimaryItem != null) {
-                setItemVisible(mCurrentPrimaryItem, true);
-            }
-        }
-    }
-
-    @Override
-    public void finishUpdate(ViewGroup container) {
-        if (mCurrentTransaction != null) {
-            mCurrentTransaction.commitAllowingStateLoss();
-            mCurrentTransaction = null;
-            mFragmentManager.executePendingTransactions();
+        final int timerId = getTimerId(view);
+        if (mViews.get(timerId) == view) {
+            mViews.remove(timerId);
         }
+        mRecycledViews.push(view);
     }
 
     @Override
@@ -150,21 +134,64 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
 
     @Override
     public void timerUpdated(Timer before, Timer after) {
-        final TimerItemFragment timerItemFragment = mFragments.get(after.getId());
-        if (timerItemFragment != null) {
-            timerItemFragment.updateTime();
+        final TimerItem view = mViews.get(after.getId());
+        if (view != null) {
+            view.update(after);
+        }
+    }
+
+    @Override
+    public void timersChanged(List<Timer> before, List<Timer> after) {
+        boolean pagesChanged = false;
+        for (int i = 0; i < after.size(); i++) {
+            final Timer timer = after.get(i);
+            if (timer == null || before.get(i) == null) {
+                pagesChanged = true;
+                continue;
+            }
+
+            final TimerItem view = mViews.get(timer.getId());
+            if (view != null) {
+                view.update(timer);
+            }
+        }
+
+        // Pages are rebuilt once for all timers that were added or removed.
+        if (pagesChanged) {
+            notifyDataSetChanged();
         }
     }
 
     /**
-     * @return {@code true} if at least one timer is in a state requiring continuous updates
+     * Refreshes the timers of all attached pages: the visible page and the adjacent pages the
+     * pager keeps ready for swiping. Only pages at least partly on screen decide how soon the
+     * next refresh is due; the progress circles of running timers on screen are refreshed as
+     * often as they visibly advance so they sweep smoothly between whole seconds.
+     *
+     * @return the number of milliseconds until the displayed state of any visible timer next
+     *      changes, or -1 if no visible timer requires further updates
      */
-    boolean updateTime() {
-        boolean continuousUpdates = false;
-        for (TimerItemFragment fragment : mFragments.values()) {
-            continuousUpdates |= fragment.updateTime();
+    long updateTime() {
+        final long now = SystemClock.elapsedRealtime();
+        long delay = -1;
+        for (int i = 0; i < mViews.size(); i++) {
+            final TimerItem view = mViews.valueAt(i);
+            final Timer timer = DataModel.getDataModel().getTimer(mViews.keyAt(i));
+            if (timer == null) {
+                continue;
+            }
+
+            view.update(timer);
+
+            // Pages not yet laid out cannot be located; treat them as visible.
+            if (view.getWidth() > 0 && !view.getLocalVisibleRect(mVisibleRect)) {
+                continue;
+            }
+
+            delay = minDelay(delay, getUpdateDelay(timer, now));
+            delay = minDelay(delay, view.getProgressUpdateDelay(timer));
         }
-        return continuousUpdates;
+        return delay;
     }
 
     Timer getTimer(int index) {
@@ -175,8 +202,91 @@ class TimerPagerAdapter extends PagerAdapter implements TimerListener {
         return DataModel.getDataModel().getTimers();
     }
 
-    private static void setItemVisible(Fragment item, boolean visible) {
-        FragmentCompat.setMenuVisibility(item, visible);
-        FragmentCompat.setUserVisibleHint(item, visible);
+    /**
+     * @return the number of milliseconds until the display of {@code timer} next changes: the
+     *      next whole second of its countdown or the next half second of its blinking; -1 if the
+     *      display is static
+     */
+    private static long getUpdateDelay(Timer timer, long now) {
+        final long blinkDelay = BLINK_PERIOD - now % BLINK_PERIOD;
+        switch (timer.getState()) {
+            case RUNNING: {
+                // Positive times are displayed rounded up, so the display changes as the
+                // remaining time crosses each whole second.
+                final long remainder = timer.getPhaseRemainingTime() % SECOND_IN_MILLIS;
+                return remainder > 0 ? remainder : SECOND_IN_MILLIS + remainder;
+            }
+            case EXPIRED: {
+                final long remainder = -timer.getRemainingTime() % SECOND_IN_MILLIS;
+                return Math.min(blinkDelay, SECOND_IN_MILLIS - remainder);
+            }
+            case PAUSED:
+                return blinkDelay;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * @return the earlier of two delays, either of which may be -1 to indicate no update
+     */
+    private static long minDelay(long delay1, long delay2) {
+        if (delay1 == -1) {
+            return delay2;
+        }
+        return delay2 == -1 ? delay1 : Math.min(delay1, delay2);
+    }
+
+    private static int getTimerId(View view) {
+        return (Integer) view.getTag();
+    }
+
+    /**
+     * @return the timer drawn by the page containing {@code v}
+     */
+    private static Timer getTimer(View v) {
+        View page = v;
+        while (!(page instanceof TimerItem)) {
+            page = (View) page.getParent();
+        }
+        return DataModel.getDataModel().getTimer(getTimerId(page));
+    }
+
+    private static class ResetAddListener implements View.OnClickListener {
+        @Override
+        public void onClick(View v) {
+            final Timer timer = getTimer(v);
+            if (timer == null) {
+                return;
+            }
+
+            if (timer.isPaused()) {
+                DataModel.getDataModel().resetOrDeleteTimer(timer, R.string.label_deskclock);
+            } else if (timer.isRunning() || timer.isExpired()) {
+                DataModel.getDataModel().addTimerMinute(timer);
+                Events.sendTimerEvent(R.string.action_add_minute, R.string.label_deskclock);
+            }
+        }
+    }
+
+    private class EditLabelListener implements View.OnClickListener {
+
+        private static final String TAG = "label_dialog";
+
+        @Override
+        public void onClick(View v) {
+            final Timer timer = getTimer(v);
+            if (timer == null) {
+                return;
+            }
+
+            final FragmentTransaction ft = mFragmentManager.beginTransaction();
+            final Fragment existingFragment = mFragmentManager.findFragmentByTag(TAG);
+            if (existingFragment != null) {
+                ft.remove(existingFragment);
+            }
+            ft.addToBackStack(null);
+            LabelDialogFragment.newInstance(timer).show(ft, TAG);
+        }
     }
-}
\ No newline at end of file
+}
@@ -43,11 +43,14 @@ public final class TimerService extends Service {
     private static final String ACTION_PREFIX = "com.android.deskclock.action.";
 
     private static final String ACTION_TIMER_EXPIRED = ACTION_PREFIX + "TIMER_EXPIRED";
+    private static final String ACTION_TIMER_PHASE = ACTION_PREFIX + "TIMER_PHASE";
     private static final String ACTION_UPDATE_NOTIFICATION = ACTION_PREFIX + "UPDATE_NOTIFICATION";
     private static final String ACTION_RESET_EXPIRED_TIMERS = ACTION_PREFIX +
             "RESET_EXPIRED_TIMERS";
     private static final String ACTION_RESET_UNEXPIRED_TIMERS = ACTION_PREFIX +
             "RESET_UNEXPIRED_TIMERS";
+    private static final String ACTION_START_TIMERS = ACTION_PREFIX + "START_TIMERS";
+    private static final String ACTION_PAUSE_TIMERS = ACTION_PREFIX + "PAUSE_TIMERS";
 
     public static Intent createTimerExpiredIntent(Context context, Timer timer) {
         final int timerId = timer == null ? -1 : timer.getId();
@@ -56,6 +59,11 @@ public final class TimerService extends Service {
                 .putExtra(HandleDeskClockApiCalls.EXTRA_TIMER_ID, timerId);
     }
 
+    public static Intent createTimerPhaseIntent(Context context) {
+        return new Intent(context, TimerService.class)
+                .setAction(ACTION_TIMER_PHASE);
+    }
+
     public static Intent createResetExpiredTimersIntent(Context context) {
         return new Intent(context, TimerService.class)
                 .setAction(ACTION_RESET_EXPIRED_TIMERS);
@@ -66,6 +74,16 @@ public final class TimerService extends Service {
                 .setAction(ACTION_RESET_UNEXPIRED_TIMERS);
     }
 
+    public static Intent createStartTimersIntent(Context context) {
+        return new Intent(context, TimerService.class)
+                .setAction(ACTION_START_TIMERS);
+    }
+
+    public static Intent createPauseTimersIntent(Context context) {
+        return new Intent(context, TimerService.class)
+                .setAction(ACTION_PAUSE_TIMERS);
+    }
+
     public static Intent createAddMinuteTimerIntent(Context context, int timerId) {
         return new Intent(context, TimerService.class)
                 .setAction(HandleDeskClockApiCalls.ACTION_ADD_MINUTE_TIMER)
@@ -90,6 +108,10 @@ public final class TimerService extends Service {
                     DataModel.getDataModel().updateTimerNotification();
                     return START_NOT_STICKY;
                 }
+                case ACTION_TIMER_PHASE: {
+                    DataModel.getDataModel().updateTimerPhases();
+                    return START_NOT_STICKY;
+                }
                 case ACTION_RESET_EXPIRED_TIMERS: {
                     DataModel.getDataModel().resetExpiredTimers(R.string.label_notification);
                     return START_NOT_STICKY;
@@ -98,6 +120,16 @@ public final class TimerService extends Service {
                     DataModel.getDataModel().resetUnexpiredTimers(R.string.label_notification);
                     return START_NOT_STICKY;
                 }
+                case ACTION_START_TIMERS: {
+                    DataModel.getDataModel().startTimers();
+                    Events.sendTimerEvent(R.string.action_start, R.string.label_notification);
+                    return START_NOT_STICKY;
+                }
+                case ACTION_PAUSE_TIMERS: {
+                    DataModel.getDataModel().pauseTimers();
+                    Events.sendTimerEvent(R.string.action_pause, R.string.label_notification);
+                    return START_NOT_STICKY;
+                }
             }
 
             // Look up the timer in question.
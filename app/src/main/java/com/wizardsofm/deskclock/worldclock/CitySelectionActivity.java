@@ -48,6 +48,7 @@ import com.wizardsofm.deskclock.data.City;
 import com.wizardsofm.deskclock.data.DataModel;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -94,6 +95,10 @@ public final class CitySelectionActivity extends BaseActivity {
         super.onCreate(savedInstanceState);
 
         setContentView(com.wizardsofm.deskclock.R.layout.cities_activity);
+
+        // Ready the search index while the user looks over the list.
+        DataModel.getDataModel().preloadCitySearchIndex();
+
         mSearchMenuItemController =
                 new SearchMenuItemController(getSupportActionBar().getThemedContext(),
                         new SearchView.OnQueryTextListener() {
@@ -241,8 +246,8 @@ public final class CitySelectionActivity extends BaseActivity {
         /** The precomputed section headers. */
         private String[] mSectionHeaders;
 
-        /** The corresponding location of each precomputed section header. */
-        private Integer[] mSectionHeaderPositions;
+        /** The corresponding location of each precomputed section header, in ascending order. */
+        private int[] mSectionHeaderPositions;
 
         /** Menu item controller for search. Search query is maintained here. */
         private final SearchMenuItemController mSearchMenuItemController;
@@ -389,12 +394,13 @@ public final class CitySelectionActivity extends BaseActivity {
                 // Make an educated guess at the expected number of sections.
                 final int approximateSectionCount = getCount() / 5;
                 final List<String> sections = new ArrayList<>(approximateSectionCount);
-                final List<Integer> positions = new ArrayList<>(approximateSectionCount);
+                int[] positions = new int[Math.max(approximateSectionCount, 1)];
+                int positionCount = 0;
 
                 // Add a section for the "Selected Cities" header if it exists.
                 if (hasHeader()) {
                     sections.add("+");
-                    positions.add(0);
+                    positions[positionCount++] = 0;
                 }
 
                 for (int position = 0; position < getCount(); position++) {
@@ -410,12 +416,15 @@ public final class CitySelectionActivity extends BaseActivity {
                                 sections.add(Utils.getGMTHourOffset(timezone, Utils.isPreL()));
                                 break;
                         }
-                        positions.add(position);
+                        if (positionCount == positions.length) {
+                            positions = Arrays.copyOf(positions, positionCount * 2);
+                        }
+                        positions[positionCount++] = position;
                     }
                 }
 
                 mSectionHeaders = sections.toArray(new String[sections.size()]);
-                mSectionHeaderPositions = positions.toArray(new Integer[positions.size()]);
+                mSectionHeaderPositions = Arrays.copyOf(positions, positionCount);
             }
             return mSectionHeaders;
         }
@@ -431,14 +440,9 @@ public final class CitySelectionActivity extends BaseActivity {
                 return 0;
             }
 
-            for (int i = 0; i < mSectionHeaderPositions.length - 2; i++) {
-                if (position < mSectionHeaderPositions[i]) continue;
-                if (position >= mSectionHeaderPositions[i + 1]) continue;
-
-                return i;
-            }
-
-            return mSectionHeaderPositions.length - 1;
+            // Locate the last section starting at or before the position.
+            final int index = Arrays.binarySearch(mSectionHeaderPositions, position);
+            return index >= 0 ? index : Math.max(0, -index - 2);
         }
 
         /**
@@ -481,13 +485,7 @@ public final class CitySelectionActivity extends BaseActivity {
             if (TextUtils.isEmpty(query)) {
                 filteredCities = DataModel.getDataModel().getAllCities();
             } else {
-                final List<City> unselected = DataModel.getDataModel().getUnselectedCities();
-                filteredCities = new ArrayList<>(unselected.size());
-                for (City city : unselected) {
-                    if (city.matches(query)) {
-                        filteredCities.add(city);
-                    }
-                }
+                filteredCities = DataModel.getDataModel().searchUnselectedCities(query);
             }
 
             // Swap in the filtered list of cities and notify of the data change.